@@ -0,0 +1,185 @@
+package com.nttdata.transactions.benchmark;
+
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.CreditResponse;
+import com.nttdata.transactions.dto.response.TypeAccountResponse;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.service.AccountService;
+import com.nttdata.transactions.service.BalanceOutboxService;
+import com.nttdata.transactions.service.CreditService;
+import com.nttdata.transactions.service.ProductLanes;
+import com.nttdata.transactions.utilities.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lightweight stubs of the collaborators of the services, so the benchmarks only measure the
+ * code of this service.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BenchmarkStubs {
+  /**
+   * Return an account of the debit card.
+   *
+   * @param position        Position of the account in the debit card
+   * @param balance         Balance of the account
+   * @param maxTransactions Transactions of the month without commission
+   * @param commission      Commission once maxTransactions is reached
+   */
+  public static AccountResponse account(int position, long balance, Integer maxTransactions,
+                                        long commission) {
+    return AccountResponse.builder()
+        .id(new ObjectId().toString())
+        .number(String.valueOf(1234567890L + position))
+        .debitCard("4567123456781234")
+        .position(position)
+        .balance(BigDecimal.valueOf(balance))
+        .typeAccount(new TypeAccountResponse(1, BigDecimal.ZERO, maxTransactions,
+            BigDecimal.valueOf(commission), null))
+        .status(true)
+        .build();
+  }
+
+  /**
+   * Return an account service that always answers with the same accounts.
+   */
+  public static AccountService accountService(AccountResponse... accounts) {
+    Mono<AccountResponse> first = Mono.just(accounts[0]);
+    Flux<AccountResponse> all = Flux.fromIterable(Arrays.asList(accounts));
+
+    return new AccountService() {
+      @Override
+      public Flux<AccountResponse> listByDebitCard(String debitCard) {
+        return all;
+      }
+
+      @Override
+      public Mono<AccountResponse> findAccount(String number) {
+        return first;
+      }
+
+      @Override
+      public Mono<AccountResponse> findAccountForDebit(String number) {
+        return first;
+      }
+
+      @Override
+      public Mono<BigDecimal> getTotalBalanceByDebitCard(String debitCard) {
+        return Mono.just(BigDecimal.ZERO);
+      }
+
+      @Override
+      public Mono<Void> updateAccount(String id, BigDecimal amount, String idempotencyKey) {
+        return Mono.empty();
+      }
+    };
+  }
+
+  /**
+   * Return a credit service that always answers with the same credit.
+   */
+  public static CreditService creditService(CreditResponse credit) {
+    Mono<CreditResponse> mono = Mono.just(credit);
+
+    return new CreditService() {
+      @Override
+      public Mono<CreditResponse> findCredit(String number) {
+        return mono;
+      }
+
+      @Override
+      public Mono<Void> updateCredit(String id, BigDecimal amount, String idempotencyKey) {
+        return Mono.empty();
+      }
+    };
+  }
+
+  /**
+   * Return an outbox that accepts every balance change.
+   */
+  public static BalanceOutboxService balanceOutboxService() {
+    return new BalanceOutboxService() {
+      @Override
+      public void enqueue(Transaction transaction, Money amount) {
+        // the transactions of the benchmarks are not stored
+      }
+
+      @Override
+      public void wakeUp() {
+        // there is no dispatcher
+      }
+
+      @Override
+      public Mono<Long> drain() {
+        return Mono.just(0L);
+      }
+
+      @Override
+      public Mono<Map<String, Money>> unsettled(int collection, Collection<String> idProducts,
+                                                LocalDateTime readAt) {
+        return Mono.just(Collections.emptyMap());
+      }
+
+      @Override
+      public Mono<Long> resolve(String delivery, boolean applied) {
+        return Mono.just(0L);
+      }
+    };
+  }
+
+  /**
+   * Return the lanes of the products, without metrics.
+   */
+  public static ProductLanes productLanes() {
+    return new ProductLanes(true, 1024,
+        new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+  }
+
+  /**
+   * Return a repository that stores nothing and counts the same transactions for every product.
+   *
+   * @param count Transactions of every product in the current month
+   */
+  public static TransactionRepository transactionRepository(long count) {
+    Mono<Long> monoCount = Mono.just(count);
+
+    return (TransactionRepository) Proxy.newProxyInstance(
+        TransactionRepository.class.getClassLoader(),
+        new Class<?>[] {TransactionRepository.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "countByIdProductAndCollection":
+              return monoCount;
+            case "countByIdProductsAndCollection":
+              return Flux.fromIterable((Collection<?>) args[0])
+                  .collectMap(String::valueOf, id -> count);
+            case "save":
+            case "insert":
+              return args[0] instanceof Iterable
+                  ? Flux.fromIterable((Iterable<?>) args[0])
+                  : Mono.just(args[0]);
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            case "toString":
+              return "TransactionRepository stub";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
@@ -0,0 +1,112 @@
+package com.nttdata.transactions.benchmark;
+
+import com.nttdata.transactions.utilities.Money;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Arithmetic of a debit card withdrawal, balance check, available balances, split between the
+ * accounts and balance deltas, with BigDecimal against Money. gc.alloc.rate.norm reports the
+ * heap allocated per withdrawal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MoneyBenchmark {
+  @Param({"1", "4"})
+  private int accounts;
+
+  private BigDecimal[] decimalBalances;
+  private BigDecimal decimalCommission;
+  private BigDecimal decimalAmount;
+  private Money[] moneyBalances;
+  private Money moneyCommission;
+  private Money moneyAmount;
+
+  /**
+   * Creates the balances of the accounts, the amount needs every account but the last one.
+   */
+  @Setup
+  public void setUp() {
+    decimalBalances = new BigDecimal[accounts];
+    moneyBalances = new Money[accounts];
+    for (int i = 0; i < accounts; i++) {
+      decimalBalances[i] = BigDecimal.valueOf(50025 + i * 100L, 2);
+      moneyBalances[i] = Money.of(decimalBalances[i]);
+    }
+    decimalCommission = BigDecimal.valueOf(2);
+    moneyCommission = Money.of(decimalCommission);
+    decimalAmount = BigDecimal.valueOf(500L * accounts - 250);
+    moneyAmount = Money.of(decimalAmount);
+  }
+
+  @Benchmark
+  public BigDecimal bigDecimal() {
+    BigDecimal total = BigDecimal.ZERO;
+    BigDecimal[] available = new BigDecimal[accounts];
+    for (int i = 0; i < accounts; i++) {
+      available[i] = decimalBalances[i].subtract(decimalCommission);
+      total = total.add(available[i]);
+    }
+    if (total.compareTo(decimalAmount) < 0) {
+      return BigDecimal.ZERO;
+    }
+
+    BigDecimal remaining = decimalAmount;
+    BigDecimal deltas = BigDecimal.ZERO;
+    for (int i = 0; i < accounts && remaining.compareTo(BigDecimal.ZERO) > 0; i++) {
+      BigDecimal amount;
+      if (available[i].subtract(remaining).compareTo(BigDecimal.ZERO) <= 0) {
+        remaining = remaining.subtract(available[i]);
+        amount = decimalBalances[i];
+      } else {
+        amount = remaining.add(decimalCommission);
+        remaining = BigDecimal.ZERO;
+      }
+      deltas = deltas.add(amount.multiply(BigDecimal.valueOf(-1)));
+    }
+    return deltas;
+  }
+
+  @Benchmark
+  public Money money() {
+    Money total = Money.ZERO;
+    Money[] available = new Money[accounts];
+    for (int i = 0; i < accounts; i++) {
+      available[i] = moneyBalances[i].subtract(moneyCommission);
+      total = total.add(available[i]);
+    }
+    if (total.isLessThan(moneyAmount)) {
+      return Money.ZERO;
+    }
+
+    Money remaining = moneyAmount;
+    Money deltas = Money.ZERO;
+    for (int i = 0; i < accounts && remaining.signum() > 0; i++) {
+      Money amount;
+      if (available[i].subtract(remaining).signum() <= 0) {
+        remaining = remaining.subtract(available[i]);
+        amount = moneyBalances[i];
+      } else {
+        amount = remaining.add(moneyCommission);
+        remaining = Money.ZERO;
+      }
+      deltas = deltas.add(amount.negate());
+    }
+    return deltas;
+  }
+}
@@ -0,0 +1,127 @@
+package com.nttdata.transactions.benchmark;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.utilities.StatementCsv;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEventHttpMessageWriter;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import reactor.core.publisher.Flux;
+
+/**
+ * Statement of an account written as CSV into pooled buffers against the SSE listing of the
+ * same transactions. The bytes counter reports the output bytes per second and
+ * gc.alloc.rate.norm the heap allocated per statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class StatementExportBenchmark {
+  @Param({"1000", "10000"})
+  private int transactions;
+
+  private final DataBufferFactory bufferFactory =
+      new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+  private final ServerSentEventHttpMessageWriter sseWriter = new ServerSentEventHttpMessageWriter(
+      new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json().build()));
+  private List<Transaction> statement;
+
+  /**
+   * Bytes written by the benchmark.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Output {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  /**
+   * Creates the transactions of the statement.
+   */
+  @Setup
+  public void setUp() {
+    String idProduct = new ObjectId().toString();
+    List<Transaction> list = new ArrayList<>(transactions);
+    for (int i = 0; i < transactions; i++) {
+      Transaction transaction = new Transaction(ACCOUNT, idProduct,
+          i % 10 == 0 ? "Transferencia, cuenta \"ahorro\"" : "Retiro de efectivo",
+          i % 2 == 0 ? ENTRY : EXIT, BigDecimal.valueOf(i, 2), BigDecimal.ZERO);
+      transaction.setId(new ObjectId());
+      list.add(transaction);
+    }
+    statement = Collections.unmodifiableList(list);
+  }
+
+  @Benchmark
+  public long csv(Output output) {
+    return count(StatementCsv.encode(Flux.fromIterable(statement), bufferFactory, 256), output);
+  }
+
+  @Benchmark
+  public long sse(Output output) {
+    MockServerHttpResponse response = new MockServerHttpResponse(bufferFactory);
+    long[] bytes = new long[1];
+    response.setWriteHandler(body -> Flux.from(body)
+        .doOnNext(buffer -> {
+          bytes[0] += buffer.readableByteCount();
+          DataBufferUtils.release(buffer);
+        })
+        .then());
+
+    sseWriter.write(Flux.fromIterable(statement), ResolvableType.forClass(Transaction.class),
+        MediaType.TEXT_EVENT_STREAM, response, Collections.emptyMap()).block();
+    output.bytes += bytes[0];
+    return bytes[0];
+  }
+
+  private static long count(Flux<DataBuffer> buffers, Output output) {
+    long bytes = buffers
+        .map(buffer -> {
+          long count = buffer.readableByteCount();
+          DataBufferUtils.release(buffer);
+          return count;
+        })
+        .reduce(0L, Long::sum)
+        .block();
+    output.bytes += bytes;
+    return bytes;
+  }
+}
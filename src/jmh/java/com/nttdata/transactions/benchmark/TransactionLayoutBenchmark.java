@@ -0,0 +1,156 @@
+package com.nttdata.transactions.benchmark;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Range queries over the transactions of a product stored in a regular collection, with the
+ * index of the service, against the same transactions in a time-series collection. The statement
+ * reads a month of a product oldest first and the count reads a year of a product. It needs
+ * MongoDB 6.0 at -Dbenchmark.mongo.uri, mongodb://localhost:27017 by default, and the data is
+ * written to a database of its own that is dropped at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionLayoutBenchmark {
+  private static final String DATABASE = "transactions_benchmark";
+  private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+
+  @Param({"regular", "timeseries"})
+  private String layout;
+
+  @Param({"200"})
+  private int products;
+
+  @Param({"1000"})
+  private int transactionsPerProduct;
+
+  private MongoClient client;
+  private MongoCollection<Document> transactions;
+  private List<ObjectId> idProducts;
+
+  /**
+   * Creates the collection of the layout and stores the transactions of a year.
+   */
+  @Setup
+  public void setUp() {
+    client = MongoClients.create(System.getProperty("benchmark.mongo.uri",
+        "mongodb://localhost:27017"));
+    MongoDatabase database = client.getDatabase(DATABASE);
+    String name = "transactions_" + layout;
+    Mono.from(database.getCollection(name).drop()).block();
+
+    if ("timeseries".equals(layout)) {
+      Mono.from(database.createCollection(name, new CreateCollectionOptions().timeSeriesOptions(
+          new TimeSeriesOptions("date").metaField("idProduct")
+              .granularity(TimeSeriesGranularity.HOURS)))).block();
+    }
+    transactions = database.getCollection(name);
+    Mono.from(transactions.createIndex(new Document("idProduct", 1).append("collection", 1)
+            .append("date", 1).append("_id", 1),
+        new IndexOptions().name("idProduct_collection_date_id"))).block();
+
+    idProducts = new ArrayList<>();
+    for (int i = 0; i < products; i++) {
+      idProducts.add(new ObjectId());
+    }
+    Flux.fromIterable(idProducts)
+        .concatMap(idProduct -> Mono.from(transactions.insertMany(transactions(idProduct))))
+        .blockLast();
+  }
+
+  @TearDown
+  public void tearDown() {
+    Mono.from(client.getDatabase(DATABASE).drop()).block();
+    client.close();
+  }
+
+  private List<Document> transactions(ObjectId idProduct) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<Document> documents = new ArrayList<>(transactionsPerProduct);
+    for (int i = 0; i < transactionsPerProduct; i++) {
+      LocalDate day = FIRST_DAY.plusDays(random.nextInt(365));
+      Date date = Date.from(day.atTime(random.nextInt(24), random.nextInt(60))
+          .atZone(ZoneId.systemDefault()).toInstant());
+      documents.add(new Document("_id", new ObjectId())
+          .append("collection", ACCOUNT)
+          .append("idProduct", idProduct)
+          .append("description", "Benchmark")
+          .append("type", random.nextBoolean() ? ENTRY : EXIT)
+          .append("date", date)
+          .append("period", day.toString().substring(0, 7))
+          .append("amount", new Decimal128(random.nextInt(1, 1000)))
+          .append("commission", new Decimal128(0)));
+    }
+    return documents;
+  }
+
+  private Bson range(ObjectId idProduct, LocalDate start, LocalDate end) {
+    return Filters.and(
+        Filters.eq("idProduct", idProduct),
+        Filters.eq("collection", ACCOUNT),
+        Filters.gte("date", Date.from(start.atStartOfDay(ZoneId.systemDefault()).toInstant())),
+        Filters.lt("date", Date.from(end.atStartOfDay(ZoneId.systemDefault()).toInstant())));
+  }
+
+  private ObjectId randomProduct() {
+    return idProducts.get(ThreadLocalRandom.current().nextInt(idProducts.size()));
+  }
+
+  @Benchmark
+  public List<Document> monthStatement() {
+    LocalDate start = FIRST_DAY.plusMonths(ThreadLocalRandom.current().nextInt(12));
+    return Flux.from(transactions.find(range(randomProduct(), start, start.plusMonths(1)))
+            .sort(Sorts.ascending("date", "_id")))
+        .collectList()
+        .block();
+  }
+
+  @Benchmark
+  public Long yearCount() {
+    return Mono.from(transactions.countDocuments(
+            range(randomProduct(), FIRST_DAY, FIRST_DAY.plusYears(1))))
+        .block();
+  }
+}
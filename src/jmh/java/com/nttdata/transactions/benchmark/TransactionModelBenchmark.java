@@ -0,0 +1,73 @@
+package com.nttdata.transactions.benchmark;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.model.Transaction;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Cost of creating a transaction and of writing the documents returned by the API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TransactionModelBenchmark {
+  private final String idProduct = new ObjectId().toString();
+  private final BigDecimal amount = BigDecimal.valueOf(150.25);
+  private final BigDecimal commission = BigDecimal.valueOf(2);
+
+  private Transaction transaction;
+  private AccountResponse account;
+  private ObjectWriter transactionWriter;
+  private ObjectWriter accountWriter;
+
+  /**
+   * Uses the same mapper configuration as the WebFlux codecs.
+   */
+  @Setup
+  public void setUp() {
+    ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    transactionWriter = mapper.writerFor(Transaction.class);
+    accountWriter = mapper.writerFor(AccountResponse.class);
+
+    transaction = newTransaction();
+    transaction.setId(new ObjectId());
+    account = BenchmarkStubs.account(1, 500, 20, 2);
+  }
+
+  @Benchmark
+  public Transaction newTransaction() {
+    return new Transaction(ACCOUNT, idProduct, "Benchmark", EXIT, amount, commission);
+  }
+
+  @Benchmark
+  public byte[] writeTransaction() throws JsonProcessingException {
+    return transactionWriter.writeValueAsBytes(transaction);
+  }
+
+  @Benchmark
+  public byte[] writeAccount() throws JsonProcessingException {
+    return accountWriter.writeValueAsBytes(account);
+  }
+}
@@ -0,0 +1,96 @@
+package com.nttdata.transactions.benchmark;
+
+import static com.nttdata.transactions.benchmark.BenchmarkStubs.account;
+
+import com.nttdata.transactions.dto.request.TransactionRequest;
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.CreditResponse;
+import com.nttdata.transactions.service.TransactionServiceImpl;
+import com.nttdata.transactions.utilities.Commissions;
+import com.nttdata.transactions.utilities.Money;
+import com.nttdata.transactions.utilities.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the commission rules and of the transaction flows with stubbed collaborators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TransactionServiceBenchmark {
+  @Param({"1", "4"})
+  private int accounts;
+
+  @Param({"0", "30"})
+  private long count;
+
+  private AccountResponse account;
+  private TransactionServiceImpl transactionService;
+
+  /**
+   * Creates the service over the stubs.
+   */
+  @Setup
+  public void setUp() {
+    AccountResponse[] debitCard = new AccountResponse[accounts];
+    for (int i = 0; i < accounts; i++) {
+      debitCard[i] = account(i + 1, 500, 20, 2);
+    }
+    account = debitCard[0];
+
+    CreditResponse credit = new CreditResponse();
+    credit.setId(account.getId());
+    transactionService = new TransactionServiceImpl(BenchmarkStubs.transactionRepository(count),
+        BenchmarkStubs.accountService(debitCard), BenchmarkStubs.creditService(credit),
+        BenchmarkStubs.balanceOutboxService(), BenchmarkStubs.productLanes(), null,
+        new TransactionMetrics(new SimpleMeterRegistry()));
+  }
+
+  @Benchmark
+  public Money commission() {
+    return Commissions.getCommission(count, account);
+  }
+
+  @Benchmark
+  public String deposit() {
+    return transactionService.depositAccount(account.getNumber(), request(100)).block();
+  }
+
+  @Benchmark
+  public String withdrawal() {
+    return transactionService.withdrawalAccount(account.getNumber(), request(100)).block();
+  }
+
+  /**
+   * The amount takes the whole first account, so the split loop visits every account.
+   */
+  @Benchmark
+  public String withdrawalFromDebitCard() {
+    return transactionService
+        .withdrawalFromDebitCard(account.getDebitCard(), request(400L * accounts))
+        .block();
+  }
+
+  private static TransactionRequest request(long amount) {
+    TransactionRequest request = new TransactionRequest();
+    request.setDescription("Benchmark");
+    request.setAmount(BigDecimal.valueOf(amount));
+    return request;
+  }
+}
@@ -2,15 +2,38 @@ package com.nttdata.transactions;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
- * Transaction application, enable eureka client.
+ * Transaction application, enable eureka client and scheduling.
  */
 @EnableEurekaClient
+@EnableScheduling
 @SpringBootApplication
 public class TransactionsApplication {
+  private static final int STARTUP_STEPS = 4096;
+
+  /**
+   * Start the application. A training run exits once it is ready, so the classes it loaded can
+   * be archived for the next starts.
+   */
   public static void main(String[] args) {
-    SpringApplication.run(TransactionsApplication.class, args);
+    ConfigurableApplicationContext context = application().run(args);
+    if (context.getEnvironment()
+        .getProperty("transactions.startup.exit-after-ready", Boolean.class, false)) {
+      System.exit(SpringApplication.exit(context));
+    }
+  }
+
+  /**
+   * Return the application, it buffers its startup steps for the startup endpoint.
+   */
+  static SpringApplication application() {
+    SpringApplication application = new SpringApplication(TransactionsApplication.class);
+    application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+    return application;
   }
 }
@@ -0,0 +1,61 @@
+package com.nttdata.transactions.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Connection pool and resilience settings of every downstream service.
+ */
+@Data
+@ConfigurationProperties("backend.client")
+public class BackendClientProperties {
+  private Pool account = new Pool();
+  private Pool credit = new Pool();
+
+  /**
+   * Connection pool, timeouts and resilience of a downstream service.
+   */
+  @Data
+  public static class Pool {
+    private int maxConnections = 100;
+    private int pendingAcquireMaxCount = 500;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration evictInBackground = Duration.ofSeconds(60);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(5);
+    private Duration deadline = Duration.ofSeconds(2);
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Hedge hedge = new Hedge();
+  }
+
+  /**
+   * Circuit breaker of the reads of a downstream service, it opens when the failure or slow call
+   * rate of the last calls reaches its threshold and lets a few probes through once half-open.
+   */
+  @Data
+  public static class CircuitBreaker {
+    private boolean enabled = true;
+    private float failureRateThreshold = 50;
+    private float slowCallRateThreshold = 100;
+    private Duration slowCallDuration = Duration.ofSeconds(1);
+    private int slidingWindowSize = 50;
+    private int minimumNumberOfCalls = 20;
+    private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+    private int permittedCallsInHalfOpenState = 5;
+  }
+
+  /**
+   * Hedged reads, a second request is sent when the first one takes longer than the percentile
+   * of the latency of the downstream service.
+   */
+  @Data
+  public static class Hedge {
+    private boolean enabled = false;
+    private double percentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(20);
+    private Duration maxDelay = Duration.ofMillis(500);
+  }
+}
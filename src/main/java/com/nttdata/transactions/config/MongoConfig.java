@@ -0,0 +1,17 @@
+package com.nttdata.transactions.config;
+
+import com.nttdata.transactions.utilities.MoneyConverters;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+/**
+ * Mongo mapping configuration.
+ */
+@Configuration
+public class MongoConfig {
+  @Bean
+  public MongoCustomConversions mongoCustomConversions() {
+    return new MongoCustomConversions(MoneyConverters.converters());
+  }
+}
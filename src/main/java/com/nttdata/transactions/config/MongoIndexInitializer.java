@@ -0,0 +1,176 @@
+package com.nttdata.transactions.config;
+
+import com.mongodb.MongoException;
+import com.nttdata.transactions.model.IdempotencyRecord;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionQueries;
+import com.nttdata.transactions.repository.TransactionTiers;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Creates the indexes declared on the documents and asks the server to explain a sample of every
+ * query shape of the transactions collection, reporting the shapes planned as a collection scan.
+ * The default build only matches the shapes to the declared indexes (TransactionQueriesTest),
+ * the plans of a real server are seen by this check at startup and by TransactionIndexesIT,
+ * which needs the integration profile and a MongoDB binary.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer implements ApplicationRunner {
+  private static final Logger logger = LogManager.getLogger(MongoIndexInitializer.class);
+  private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+  private static final int RETRIES = 5;
+  private static final Duration RETRY_BACKOFF = Duration.ofSeconds(2);
+  private static final String IDEMPOTENCY_TTL = "createdAt_ttl";
+  private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final MongoMappingContext mappingContext;
+  private final TransactionTiers tiers;
+
+  @Value("${transactions.indexes.fail-on-collection-scan:false}")
+  private boolean failOnCollectionScan;
+
+  @Value("${transactions.idempotency.ttl:10m}")
+  private Duration idempotencyTtl;
+
+  /**
+   * Create and verify the indexes in the background, so a slow or absent Mongo does not delay
+   * the startup. With fail-on-collection-scan the startup waits and fails when the indexes can
+   * not be created or a query shape is not served by one.
+   */
+  @Override
+  public void run(ApplicationArguments args) {
+    Mono<List<String>> check = ensureIndexes().then(findCollectionScans());
+    if (failOnCollectionScan) {
+      report(check.block(STARTUP_TIMEOUT));
+      return;
+    }
+
+    check
+        .retryWhen(Retry.backoff(RETRIES, RETRY_BACKOFF)
+            .doBeforeRetry(retry -> logger.warn("The indexes could not be created or verified, "
+                + "attempt {}: {}", retry.totalRetries() + 1, retry.failure().getMessage())))
+        .subscribe(this::report,
+            e -> logger.error("The indexes could not be created or verified", e));
+  }
+
+  private void report(List<String> collectionScans) {
+    if (collectionScans != null && !collectionScans.isEmpty()) {
+      String message = "Query shapes without index: " + collectionScans;
+      if (failOnCollectionScan) {
+        throw new IllegalStateException(message);
+      }
+      logger.warn(message);
+    }
+  }
+
+  /**
+   * Return a mono that completes when the indexes of every document have been created, the
+   * archive of the transactions has the same indexes as the transactions collection.
+   */
+  public Mono<Void> ensureIndexes() {
+    IndexResolver resolver = IndexResolver.create(mappingContext);
+    return Flux.fromIterable(mappingContext.getPersistentEntities())
+        .filter(entity -> entity.isAnnotationPresent(
+            org.springframework.data.mongodb.core.mapping.Document.class))
+        .flatMap(entity -> Flux
+            .fromIterable(resolver.resolveIndexFor(entity.getTypeInformation()))
+            .flatMap(index -> mongoTemplate.indexOps(entity.getType()).ensureIndex(index)
+                .concatWith(entity.getType() == Transaction.class && tiers.isEnabled()
+                    ? mongoTemplate.indexOps(tiers.getCollection()).ensureIndex(index)
+                    : Mono.empty()))
+            .doOnNext(name -> logger.info("Index {} ready on {}", name, entity.getCollection())))
+        .then(ensureIdempotencyTtl());
+  }
+
+  /**
+   * Return a mono that completes when the idempotency keys expire after the configured ttl, the
+   * index of a previous ttl is changed in place.
+   */
+  private Mono<Void> ensureIdempotencyTtl() {
+    String collection = mongoTemplate.getCollectionName(IdempotencyRecord.class);
+    Index index = new Index()
+        .on("createdAt", Sort.Direction.ASC)
+        .named(IDEMPOTENCY_TTL)
+        .expire(idempotencyTtl);
+    return mongoTemplate.indexOps(collection).ensureIndex(index)
+        .onErrorResume(MongoIndexInitializer::isIndexOptionsConflict, e -> mongoTemplate
+            .executeCommand(new Document("collMod", collection)
+                .append("index", new Document("name", IDEMPOTENCY_TTL)
+                    .append("expireAfterSeconds", idempotencyTtl.getSeconds())))
+            .thenReturn(IDEMPOTENCY_TTL))
+        .doOnNext(name -> logger.info("Index {} ready on {} with a ttl of {}", name, collection,
+            idempotencyTtl))
+        .then();
+  }
+
+  private static boolean isIndexOptionsConflict(Throwable e) {
+    Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+    return cause instanceof MongoException
+        && ((MongoException) cause).getCode() == INDEX_OPTIONS_CONFLICT;
+  }
+
+  /**
+   * Return the names of the transaction query shapes whose winning plan is a collection scan.
+   */
+  public Mono<List<String>> findCollectionScans() {
+    MongoPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(Transaction.class);
+    return Flux.fromIterable(TransactionQueries.samples().entrySet())
+        .concatMap(sample -> explain(sample.getValue(), entity)
+            .filter(MongoIndexInitializer::isCollectionScan)
+            .map(plan -> sample.getKey()))
+        .collectList();
+  }
+
+  private Mono<Document> explain(Query query, MongoPersistentEntity<?> entity) {
+    QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+    Document filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+    Document sort = queryMapper.getMappedSort(query.getSortObject(), entity);
+    return mongoTemplate.getCollection(entity.getCollection())
+        .flatMap(collection -> Mono.from(collection.find(filter)
+            .sort(sort)
+            .limit(query.getLimit())
+            .explain()));
+  }
+
+  private static boolean isCollectionScan(Object plan) {
+    if (plan instanceof Document) {
+      Document document = (Document) plan;
+      if ("COLLSCAN".equals(document.get("stage"))) {
+        return true;
+      }
+      return document.entrySet().stream()
+          .filter(entry -> !"rejectedPlans".equals(entry.getKey()))
+          .map(Map.Entry::getValue)
+          .anyMatch(MongoIndexInitializer::isCollectionScan);
+    }
+    if (plan instanceof Collection) {
+      return ((Collection<?>) plan).stream().anyMatch(MongoIndexInitializer::isCollectionScan);
+    }
+    return false;
+  }
+}
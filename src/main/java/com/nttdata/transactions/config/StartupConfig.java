@@ -0,0 +1,40 @@
+package com.nttdata.transactions.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Startup configuration. With lazy initialization a bean is created on its first use, so the
+ * ones only reached through callbacks of the container are kept eager or they would never run.
+ */
+@Configuration
+public class StartupConfig {
+  /**
+   * Keep eager the beans with scheduled methods and the ones that act once every singleton
+   * has been created.
+   */
+  @Bean
+  static LazyInitializationExcludeFilter eagerCallbacks() {
+    return (beanName, definition, type) -> type != null
+        && (SmartInitializingSingleton.class.isAssignableFrom(type) || isScheduled(type));
+  }
+
+  @Bean
+  public StartupReport startupReport(MeterRegistry meterRegistry) {
+    return new StartupReport(meterRegistry);
+  }
+
+  private static boolean isScheduled(Class<?> type) {
+    Map<?, Scheduled> scheduled = MethodIntrospector.selectMethods(type,
+        (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+            AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class));
+    return !scheduled.isEmpty();
+  }
+}
@@ -0,0 +1,55 @@
+package com.nttdata.transactions.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records how long after the JVM started the first request was answered, which is how long a
+ * new instance takes to be useful once it is scheduled.
+ */
+@RequiredArgsConstructor
+public class StartupReport implements WebFilter, Ordered {
+  public static final String FIRST_REQUEST = "transactions.startup.first-request";
+  private static final Logger logger = LogManager.getLogger(StartupReport.class);
+
+  private final MeterRegistry meterRegistry;
+  private final AtomicBoolean served = new AtomicBoolean();
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (served.get()) {
+      return chain.filter(exchange);
+    }
+    return chain.filter(exchange)
+        .doFinally(signal -> {
+          if (served.compareAndSet(false, true)) {
+            record(exchange);
+          }
+        });
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  private void record(ServerWebExchange exchange) {
+    long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+    TimeGauge.builder(FIRST_REQUEST, () -> uptime, TimeUnit.MILLISECONDS)
+        .description("Time from the start of the JVM to the first answered request")
+        .register(meterRegistry);
+    logger.info("First request {} {} answered {} ms after the JVM started",
+        exchange.getRequest().getMethod(), exchange.getRequest().getPath(), uptime);
+  }
+}
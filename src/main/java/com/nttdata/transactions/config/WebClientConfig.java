@@ -1,18 +1,80 @@
 package com.nttdata.transactions.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
- * WebClient configuration.
+ * WebClient configuration, one pre-built client with its own connection pool per downstream.
  */
 @Configuration
+@EnableConfigurationProperties(BackendClientProperties.class)
 public class WebClientConfig {
   @Bean("wcLoadBalanced")
   @LoadBalanced
   public WebClient.Builder webClient() {
     return WebClient.builder();
   }
+
+  @Bean(name = "accountConnectionProvider", destroyMethod = "dispose")
+  public ConnectionProvider accountConnectionProvider(BackendClientProperties properties) {
+    return connectionProvider("account-service", properties.getAccount());
+  }
+
+  @Bean(name = "creditConnectionProvider", destroyMethod = "dispose")
+  public ConnectionProvider creditConnectionProvider(BackendClientProperties properties) {
+    return connectionProvider("credits", properties.getCredit());
+  }
+
+  /**
+   * WebClient of account-service.
+   */
+  @Bean("accountWebClient")
+  public WebClient accountWebClient(@Qualifier("wcLoadBalanced") WebClient.Builder builder,
+                                    @Qualifier("accountConnectionProvider")
+                                        ConnectionProvider provider,
+                                    BackendClientProperties properties) {
+    return webClient(builder, provider, properties.getAccount());
+  }
+
+  /**
+   * WebClient of credits.
+   */
+  @Bean("creditWebClient")
+  public WebClient creditWebClient(@Qualifier("wcLoadBalanced") WebClient.Builder builder,
+                                   @Qualifier("creditConnectionProvider")
+                                       ConnectionProvider provider,
+                                   BackendClientProperties properties) {
+    return webClient(builder, provider, properties.getCredit());
+  }
+
+  private static ConnectionProvider connectionProvider(String name,
+                                                       BackendClientProperties.Pool pool) {
+    return ConnectionProvider.builder(name)
+        .maxConnections(pool.getMaxConnections())
+        .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+        .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+        .maxIdleTime(pool.getMaxIdleTime())
+        .maxLifeTime(pool.getMaxLifeTime())
+        .evictInBackground(pool.getEvictInBackground())
+        .metrics(true)
+        .build();
+  }
+
+  private static WebClient webClient(WebClient.Builder builder, ConnectionProvider provider,
+                                     BackendClientProperties.Pool pool) {
+    HttpClient httpClient = HttpClient.create(provider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+        .responseTimeout(pool.getResponseTimeout());
+    return builder.clone()
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .build();
+  }
 }
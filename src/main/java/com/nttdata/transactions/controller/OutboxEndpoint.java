@@ -0,0 +1,36 @@
+package com.nttdata.transactions.controller;
+
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.service.BalanceOutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Operator actions over the balance outbox, served with the management endpoints and not with
+ * the client routes, so a deployment restricts them with the rest of the actuator: a separate
+ * management.server.port or leaving outbox out of management.endpoints.web.exposure.
+ *
+ * <p>POST /actuator/outbox/{delivery} with {"applied": true|false} closes a delivery left
+ * failed for a manual review, once the operator checked with the service of its product
+ * whether it was applied. It answers the number of balance changes closed, or 404 when the
+ * delivery is not failed.
+ */
+@Component
+@WebEndpoint(id = "outbox")
+@RequiredArgsConstructor
+public class OutboxEndpoint {
+  private final BalanceOutboxService balanceOutboxService;
+
+  @WriteOperation
+  public Mono<WebEndpointResponse<Object>> resolve(@Selector String delivery, boolean applied) {
+    return balanceOutboxService.resolve(delivery, applied)
+        .map(count -> new WebEndpointResponse<Object>(count))
+        .onErrorResume(CustomNotFoundException.class, e -> Mono.just(
+            new WebEndpointResponse<>(e.getMessage(), WebEndpointResponse.STATUS_NOT_FOUND)));
+  }
+}
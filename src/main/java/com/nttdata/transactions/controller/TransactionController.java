@@ -1,20 +1,48 @@
 package com.nttdata.transactions.controller;
 
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
+import com.nttdata.transactions.dto.request.BatchOperationRequest;
 import com.nttdata.transactions.dto.request.FilterRequest;
+import com.nttdata.transactions.dto.request.TransactionPageRequest;
 import com.nttdata.transactions.dto.request.TransactionRequest;
+import com.nttdata.transactions.dto.response.BatchOperationResponse;
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
+import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.exceptions.customs.CustomInsufficientBalanceException;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
 import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionCursor;
+import com.nttdata.transactions.service.BatchTransactionService;
+import com.nttdata.transactions.service.IdempotencyService;
 import com.nttdata.transactions.service.TransactionService;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
 import javax.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
@@ -26,16 +54,63 @@ import reactor.core.publisher.Mono;
 @RestController
 @RequiredArgsConstructor
 public class TransactionController {
+  private static final String NEXT_CURSOR = "X-Next-Cursor";
+  private static final String TEXT_CSV_VALUE = "text/csv";
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+
   private final TransactionService transactionService;
+  private final BatchTransactionService batchTransactionService;
+  private final IdempotencyService idempotencyService;
+
+  @Value("${transactions.feed.heartbeat:15s}")
+  private Duration heartbeat = Duration.ofSeconds(15);
 
+  @Value("${transactions.page.default-limit:100}")
+  private int defaultLimit = 100;
+
+  /**
+   * Transactions of an account, oldest first. With a limit or after they are paged newest first
+   * and the header X-Next-Cursor has the value of after for the next page, after without a
+   * limit reads pages of transactions.page.default-limit.
+   */
   @GetMapping(value = "/get/account/{number}", produces = TEXT_EVENT_STREAM_VALUE)
-  public Flux<Transaction> listByAccountNumber(@PathVariable String number) {
-    return transactionService.listByAccountNumber(number);
+  public Mono<ResponseEntity<Flux<Transaction>>> listByAccountNumber(
+      @PathVariable String number, @Valid TransactionPageRequest page) {
+    limit(page);
+    return page(page, transactionService.listByAccountNumber(number, page));
   }
 
+  /**
+   * Transactions of a credit, oldest first. With a limit or after they are paged newest first
+   * and the header X-Next-Cursor has the value of after for the next page, after without a
+   * limit reads pages of transactions.page.default-limit.
+   */
   @GetMapping(value = "/get/credit/{number}", produces = TEXT_EVENT_STREAM_VALUE)
-  public Flux<Transaction> listByCreditNumber(@PathVariable String number) {
-    return transactionService.listByCreditNumber(number);
+  public Mono<ResponseEntity<Flux<Transaction>>> listByCreditNumber(
+      @PathVariable String number, @Valid TransactionPageRequest page) {
+    limit(page);
+    return page(page, transactionService.listByCreditNumber(number, page));
+  }
+
+  /**
+   * New transactions of an account as they are stored. The id of every event is the cursor of
+   * its transaction, a reconnection with the Last-Event-ID header or after resumes from it.
+   */
+  @GetMapping(value = "/watch/account/{number}", produces = TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Transaction>> watchByAccountNumber(
+      @PathVariable String number, @RequestParam(required = false) String after,
+      @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+    Flux<ServerSentEvent<Transaction>> transactions = transactionService
+        .watchByAccountNumber(number, StringUtils.defaultIfBlank(lastEventId, after))
+        .map(transaction -> ServerSentEvent.builder(transaction)
+            .id(TransactionCursor.of(transaction).encode())
+            .event("transaction")
+            .build());
+    Flux<ServerSentEvent<Transaction>> heartbeats = Flux.interval(heartbeat)
+        .map(tick -> ServerSentEvent.<Transaction>builder().comment("heartbeat").build());
+    return transactions.publish(shared -> Flux.merge(shared,
+        heartbeats.takeUntilOther(shared.then())));
   }
 
   @GetMapping(value = "/get/account/{number}/commissions", produces = TEXT_EVENT_STREAM_VALUE)
@@ -45,16 +120,61 @@ public class TransactionController {
   }
 
   /**
-   * Deposit account.
+   * Commission totals of an account between two dates, grouped by day or month and type.
+   */
+  @GetMapping("/get/account/{number}/commissions/report")
+  public Flux<CommissionReportResponse> reportAccountCommissions(
+      @PathVariable String number, @Valid FilterRequest request,
+      @RequestParam(defaultValue = "day") String groupBy) {
+    return transactionService.reportAccountCommissions(number, request, groupBy);
+  }
+
+  /**
+   * Totals of an account between two dates, both inclusive.
+   */
+  @GetMapping("/get/account/{number}/summary")
+  public Mono<TransactionSummaryResponse> summaryByAccountNumber(@PathVariable String number,
+                                                                 @Valid FilterRequest request) {
+    return transactionService.summaryByAccountNumber(number, request);
+  }
+
+  /**
+   * Totals of a credit between two dates, both inclusive.
+   */
+  @GetMapping("/get/credit/{number}/summary")
+  public Mono<TransactionSummaryResponse> summaryByCreditNumber(@PathVariable String number,
+                                                                @Valid FilterRequest request) {
+    return transactionService.summaryByCreditNumber(number, request);
+  }
+
+  /**
+   * Statement of an account between two dates as CSV, streamed while it is read.
+   */
+  @GetMapping(value = "/export/account/{number}", produces = TEXT_CSV_VALUE)
+  public Flux<DataBuffer> exportAccountStatement(@PathVariable String number,
+                                                 @Valid FilterRequest request,
+                                                 ServerHttpResponse response) {
+    response.getHeaders().setContentDisposition(ContentDisposition.attachment()
+        .filename("statement-" + number + ".csv")
+        .build());
+    return transactionService.exportAccountStatement(number, request, response.bufferFactory());
+  }
+
+  /**
+   * Deposit account. The write endpoints run once per Idempotency-Key header, a repeated key
+   * returns the result of the first request.
    */
   @PostMapping("/deposit/account/{number}")
   @ResponseStatus(CREATED)
   public Mono<String> depositAccount(@PathVariable String number,
-                                     @Valid @RequestBody TransactionRequest request) {
+                                     @Valid @RequestBody TransactionRequest request,
+                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                         String idempotencyKey) {
     if (StringUtils.isBlank(request.getDescription())) {
       request.setDescription("Ingreso en efectivo");
     }
-    return transactionService.depositAccount(number, request);
+    return idempotent(idempotencyKey, request("deposit", request, number),
+        () -> transactionService.depositAccount(number, request));
   }
 
   /**
@@ -63,11 +183,14 @@ public class TransactionController {
   @PostMapping("/withdrawal/account/{number}")
   @ResponseStatus(CREATED)
   public Mono<String> withdrawalAccount(@PathVariable String number,
-                                        @Valid @RequestBody TransactionRequest request) {
+                                        @Valid @RequestBody TransactionRequest request,
+                                        @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                            String idempotencyKey) {
     if (StringUtils.isBlank(request.getDescription())) {
       request.setDescription("Retiro de efectivo");
     }
-    return transactionService.withdrawalAccount(number, request);
+    return idempotent(idempotencyKey, request("withdrawal", request, number),
+        () -> transactionService.withdrawalAccount(number, request));
   }
 
   /**
@@ -76,11 +199,14 @@ public class TransactionController {
   @PostMapping("/withdrawal/debitCard/{debitCard}")
   @ResponseStatus(CREATED)
   public Mono<String> withdrawalFromDebitCard(@PathVariable String debitCard,
-                                              @Valid @RequestBody TransactionRequest request) {
+                                              @Valid @RequestBody TransactionRequest request,
+                                              @RequestHeader(value = IDEMPOTENCY_KEY,
+                                                  required = false) String idempotencyKey) {
     if (StringUtils.isBlank(request.getDescription())) {
       request.setDescription("Retiro de efectivo");
     }
-    return transactionService.withdrawalFromDebitCard(debitCard, request);
+    return idempotent(idempotencyKey, request("debit_card_withdrawal", request, debitCard),
+        () -> transactionService.withdrawalFromDebitCard(debitCard, request));
   }
 
   /**
@@ -90,25 +216,130 @@ public class TransactionController {
   @ResponseStatus(CREATED)
   public Mono<String> transferBetweenAccounts(@PathVariable String exitNumber,
                                               @PathVariable String entryNumber,
-                                              @Valid @RequestBody TransactionRequest request) {
+                                              @Valid @RequestBody TransactionRequest request,
+                                              @RequestHeader(value = IDEMPOTENCY_KEY,
+                                                  required = false) String idempotencyKey) {
     if (StringUtils.isBlank(request.getDescription())) {
       request.setDescription("Transferencia entre cuentas");
     }
-    return transactionService.transferBetweenAccounts(exitNumber, entryNumber, request);
+    return idempotent(idempotencyKey,
+        request("transfer", request, exitNumber, entryNumber),
+        () -> transactionService.transferBetweenAccounts(exitNumber, entryNumber, request));
   }
 
   @PostMapping("/pay/credit/{number}")
   @ResponseStatus(CREATED)
   public Mono<String> payCredit(@PathVariable String number,
-                                BigDecimal amount) {
-    return transactionService.payCredit(number, amount);
+                                BigDecimal amount,
+                                @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                    String idempotencyKey) {
+    return idempotent(idempotencyKey, String.join("|", "pay_credit", number, amount(amount)),
+        () -> transactionService.payCredit(number, amount));
   }
 
   @PostMapping("/spend/credit/{number}")
   @ResponseStatus(CREATED)
   public Mono<String> spendCredit(@PathVariable String number,
-                                  BigDecimal amount) {
+                                  BigDecimal amount,
+                                  @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                      String idempotencyKey) {
     BigDecimal finalAmount = amount.multiply(BigDecimal.valueOf(-1));
-    return transactionService.spendCredit(number, finalAmount);
+    return idempotent(idempotencyKey, String.join("|", "spend_credit", number, amount(amount)),
+        () -> transactionService.spendCredit(number, finalAmount));
+  }
+
+  /**
+   * Deposits and withdrawals of many accounts, one JSON object per line in the request and
+   * one result per line in the response. With an Idempotency-Key the batch is read before it is
+   * processed, the key is bound to a hash of its lines, and the results are sent once the whole
+   * batch has been processed.
+   */
+  @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE,
+      produces = APPLICATION_NDJSON_VALUE)
+  public Flux<BatchOperationResponse> batch(@RequestBody Flux<BatchOperationRequest> operations,
+                                            @RequestHeader(value = IDEMPOTENCY_KEY,
+                                                required = false) String idempotencyKey) {
+    if (StringUtils.isBlank(idempotencyKey)) {
+      return batchTransactionService.process(operations);
+    }
+    return operations.collectList()
+        .flatMap(list -> idempotent(idempotencyKey, batchRequest(list),
+            () -> batchTransactionService.process(Flux.fromIterable(list)).collectList()))
+        .flatMapIterable(results -> results);
+  }
+
+  private <T> Mono<T> idempotent(String idempotencyKey, String request,
+                                 Supplier<Mono<T>> operation) {
+    return StringUtils.isBlank(idempotencyKey)
+        ? operation.get()
+        : idempotencyService.execute(idempotencyKey, request, operation,
+            TransactionController::rejected);
+  }
+
+  /**
+   * Return whether a write request failed before storing anything: its checks rejected it or a
+   * product could not be read, both happen before its first transaction is stored.
+   */
+  private static boolean rejected(Throwable error) {
+    return error instanceof CustomInformationException
+        || error instanceof CustomNotFoundException
+        || error instanceof CustomInsufficientBalanceException
+        || error instanceof CustomUnavailableException;
+  }
+
+  /**
+   * Return the amount of a request fingerprint, the same amount written with another scale
+   * is the same request.
+   */
+  private static String amount(BigDecimal amount) {
+    return amount == null ? null : amount.stripTrailingZeros().toPlainString();
+  }
+
+  private static String request(String operation, TransactionRequest request,
+                                String... numbers) {
+    return String.join("|", operation, String.join("|", numbers),
+        amount(request.getAmount()), request.getDescription());
+  }
+
+  private static String batchRequest(List<BatchOperationRequest> operations) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      operations.forEach(operation -> digest.update((String.join("|",
+          operation.getAccountNumber(), String.valueOf(operation.getType()),
+          amount(operation.getAmount()), operation.getDescription()) + "\n")
+          .getBytes(StandardCharsets.UTF_8)));
+      return "batch|" + operations.size() + "|"
+          + String.format("%064x", new BigInteger(1, digest.digest()));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Give the default limit to a page read after a cursor without one, so it is a page with the
+   * cursor of the next one and not the rest of the listing.
+   */
+  private void limit(TransactionPageRequest page) {
+    if (page.getLimit() == null && StringUtils.isNotBlank(page.getAfter())) {
+      page.setLimit(defaultLimit);
+    }
+  }
+
+  private Mono<ResponseEntity<Flux<Transaction>>> page(TransactionPageRequest page,
+                                                       Flux<Transaction> transactions) {
+    if (page.getLimit() == null) {
+      return Mono.just(ResponseEntity.ok(transactions));
+    }
+
+    // a full page always has a cursor, so the page after the last one can be empty
+    return transactions.collectList()
+        .map(list -> {
+          ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+          if (list.size() == page.getLimit()) {
+            response.header(NEXT_CURSOR, TransactionCursor.of(list.get(list.size() - 1))
+                .encode());
+          }
+          return response.body(Flux.fromIterable(list));
+        });
   }
 }
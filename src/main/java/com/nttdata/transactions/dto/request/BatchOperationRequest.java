@@ -0,0 +1,19 @@
+package com.nttdata.transactions.dto.request;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Deposit or withdrawal of an account, one line of a batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationRequest {
+  private String accountNumber;
+  private int type;
+  private String description;
+  private BigDecimal amount;
+}
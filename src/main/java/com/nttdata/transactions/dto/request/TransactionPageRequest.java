@@ -0,0 +1,18 @@
+package com.nttdata.transactions.dto.request;
+
+import java.util.List;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * Page of a transaction listing, every field is optional.
+ */
+@Data
+public class TransactionPageRequest {
+  @Min(value = 1, message = "The minimum limit must be 1")
+  @Max(value = 500, message = "The maximum limit must be 500")
+  private Integer limit;
+  private String after;
+  private List<String> fields;
+}
@@ -1,6 +1,7 @@
 package com.nttdata.transactions.dto.request;
 
 import java.math.BigDecimal;
+import javax.validation.constraints.Digits;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import lombok.Data;
@@ -13,5 +14,6 @@ public class TransactionRequest {
   private String description;
   @NotNull(message = "Field amount must be required")
   @Min(value = 1, message = "The minimum amount must be 1")
+  @Digits(integer = 15, fraction = 2, message = "Field amount must have at most 2 decimals")
   private BigDecimal amount;
 }
@@ -1,9 +1,11 @@
 package com.nttdata.transactions.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.nttdata.transactions.utilities.Money;
 import java.math.BigDecimal;
 import java.util.List;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -11,6 +13,7 @@ import lombok.NoArgsConstructor;
  * Account object.
  */
 @Data
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -25,6 +28,6 @@ public class AccountResponse {
   private List<String> signatories;
   private BigDecimal balance;
   private Long totalTransactions;
-  private BigDecimal availableBalance;
+  private Money availableBalance;
   private boolean status;
 }
@@ -0,0 +1,20 @@
+package com.nttdata.transactions.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of one line of a batch, index is the position of the line in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOperationResponse {
+  private long index;
+  private String accountNumber;
+  private boolean success;
+  private String message;
+}
@@ -0,0 +1,20 @@
+package com.nttdata.transactions.dto.response;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Commissions of an account in a day or month for a type of transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionReportResponse {
+  private String period;
+  private int type;
+  private long transactions;
+  private long charged;
+  private BigDecimal commission;
+}
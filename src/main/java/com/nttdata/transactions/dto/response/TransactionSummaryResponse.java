@@ -0,0 +1,36 @@
+package com.nttdata.transactions.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totals of the transactions of a product between two dates.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSummaryResponse {
+  @JsonFormat(pattern = "dd/MM/yyyy")
+  private LocalDate start;
+  @JsonFormat(pattern = "dd/MM/yyyy")
+  private LocalDate end;
+  private long days;
+  private long transactions;
+  private long entries;
+  private long exits;
+  private BigDecimal entryAmount;
+  private BigDecimal exitAmount;
+  private BigDecimal commission;
+
+  /**
+   * Return the summary of a range without transactions.
+   */
+  public static TransactionSummaryResponse empty(LocalDate start, LocalDate end) {
+    return new TransactionSummaryResponse(start, end, 0, 0, 0, 0,
+        BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+  }
+}
@@ -3,6 +3,7 @@ package com.nttdata.transactions.exceptions;
 import com.nttdata.transactions.exceptions.customs.CustomInformationException;
 import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
 import com.nttdata.transactions.exceptions.customs.CustomResult;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -37,4 +38,16 @@ public class GlobalExceptionController {
     customResult.setMessage(ex.getMessage());
     return ResponseEntity.status(HttpStatus.NOT_FOUND).body(customResult);
   }
+
+  /**
+   * Returns a JSON object with an error message.
+   *
+   * @return CustomUnavailableException
+   */
+  @ExceptionHandler
+  public ResponseEntity<CustomResult> handle(CustomUnavailableException ex) {
+    CustomResult customResult = new CustomResult();
+    customResult.setMessage(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(customResult);
+  }
 }
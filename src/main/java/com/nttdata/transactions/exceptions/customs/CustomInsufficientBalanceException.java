@@ -0,0 +1,10 @@
+package com.nttdata.transactions.exceptions.customs;
+
+/**
+ * Object that returns a message when the product does not have enough balance.
+ */
+public class CustomInsufficientBalanceException extends CustomInformationException {
+  public CustomInsufficientBalanceException(String message) {
+    super(message);
+  }
+}
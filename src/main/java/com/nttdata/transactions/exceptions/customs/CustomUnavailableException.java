@@ -0,0 +1,14 @@
+package com.nttdata.transactions.exceptions.customs;
+
+/**
+ * Object that returns a message when a downstream service does not answer in time.
+ */
+public class CustomUnavailableException extends RuntimeException {
+  public CustomUnavailableException(String message) {
+    super(message);
+  }
+
+  public CustomUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,38 @@
+package com.nttdata.transactions.model;
+
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PENDING;
+
+import com.nttdata.transactions.utilities.Money;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+/**
+ * Balance delta of a transaction waiting to be sent to the service of its product. It is stored
+ * inside the transaction, so the transaction and its delta are written at once. The delivery is
+ * the id of the request that carries the delta, every retry of that request sends it again. The
+ * claim is the token of the last drain that took the delta to send it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceChange {
+  private Money amount;
+  private int status;
+  private int attempts;
+  private LocalDateTime nextAttemptAt;
+  private LocalDateTime lockedUntil;
+  private ObjectId delivery;
+  private LocalDateTime doneAt;
+  private String lastError;
+  private ObjectId claim;
+
+  /**
+   * Return the pending change of an amount, ready to be sent.
+   */
+  public static BalanceChange pending(Money amount) {
+    return new BalanceChange(amount, PENDING, 0, LocalDateTime.now(), null, null, null, null, null);
+  }
+}
@@ -0,0 +1,26 @@
+package com.nttdata.transactions.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Result of a write request by its Idempotency-Key. The TTL index on createdAt, created by
+ * MongoIndexInitializer, removes it once transactions.idempotency.ttl has passed.
+ */
+@Document("idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+  @Id
+  private String id;
+  private String request;
+  private int status;
+  private Object response;
+  private LocalDateTime createdAt;
+  private LocalDateTime lockedUntil;
+}
@@ -1,17 +1,20 @@
 package com.nttdata.transactions.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
@@ -20,6 +23,18 @@ import org.springframework.data.mongodb.core.mapping.FieldType;
  * Transaction object.
  */
 @Document("transactions")
+@CompoundIndexes({
+    @CompoundIndex(name = "idProduct_collection_date_id",
+        def = "{'idProduct': 1, 'collection': 1, 'date': 1, '_id': 1}"),
+    @CompoundIndex(name = "balance_status_nextAttemptAt",
+        def = "{'balance.status': 1, 'balance.nextAttemptAt': 1}",
+        partialFilter = "{'balance.status': {$exists: true}}"),
+    @CompoundIndex(name = "balance_delivery", def = "{'balance.delivery': 1}",
+        partialFilter = "{'balance.delivery': {$exists: true}}"),
+    @CompoundIndex(name = "idProduct_collection_balance_status_doneAt",
+        def = "{'idProduct': 1, 'collection': 1, 'balance.status': 1, 'balance.doneAt': 1}",
+        partialFilter = "{'balance.status': {$exists: true}}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,18 +43,21 @@ public class Transaction {
   @Id
   @JsonSerialize(using = ToStringSerializer.class)
   private ObjectId id;
-  private int collection;
+  private Integer collection;
   @JsonSerialize(using = ToStringSerializer.class)
   private ObjectId idProduct;
   private String description;
-  private int type;
+  private Integer type;
   @JsonFormat(pattern = "dd/MM/yyyy HH:mm:ss")
   private LocalDateTime date;
-  private int month;
+  private Integer month;
+  private String period;
   @Field(targetType = FieldType.DECIMAL128)
   private BigDecimal amount;
   @Field(targetType = FieldType.DECIMAL128)
   private BigDecimal commission;
+  @JsonIgnore
+  private BalanceChange balance;
 
   /**
    * Return transaction.
@@ -58,9 +76,19 @@ public class Transaction {
     this.idProduct = new ObjectId(idProduct);
     this.description = description;
     this.type = type;
-    this.date = LocalDateTime.now();
-    this.month = LocalDate.now().getMonthValue();
+    setDate(LocalDateTime.now());
     this.amount = amount;
     this.commission = commission;
   }
+
+  /**
+   * Set the date of the transaction and the month and period that are derived from it.
+   * The period is the year and month, yyyy-MM, the month alone is kept for the clients that
+   * read it.
+   */
+  public void setDate(LocalDateTime date) {
+    this.date = date;
+    this.month = date == null ? null : date.getMonthValue();
+    this.period = date == null ? null : YearMonth.from(date).toString();
+  }
 }
@@ -0,0 +1,44 @@
+package com.nttdata.transactions.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+/**
+ * Transactions of a product in a month stored together. A bucket holds up to a fixed number of
+ * transactions, the next ones go to an overflow bucket of the same month, and it keeps their
+ * count and totals.
+ */
+@Document("transaction_buckets")
+@CompoundIndexes({
+    @CompoundIndex(name = "idProduct_collection_period_count",
+        def = "{'idProduct': 1, 'collection': 1, 'period': 1, 'count': 1}")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBucket {
+  @Id
+  private String id;
+  private ObjectId idProduct;
+  private int collection;
+  private String period;
+  private int count;
+  private int charged;
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal entryAmount;
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal exitAmount;
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal commission;
+  private List<Transaction> transactions;
+}
@@ -0,0 +1,36 @@
+package com.nttdata.transactions.model;
+
+import java.time.YearMonth;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Monthly transaction counter of a product, one document per product, collection and month.
+ */
+@Document("transaction_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionCounter {
+  @Id
+  private String id;
+  private ObjectId idProduct;
+  private int collection;
+  private String period;
+  private long count;
+
+  /**
+   * Return the counter key.
+   *
+   * @param idProduct  Id of account or credit
+   * @param collection Account or credit collection - use TransactionCollection constant
+   * @param period     Year and month of the transactions
+   */
+  public static String key(ObjectId idProduct, int collection, YearMonth period) {
+    return idProduct.toHexString() + ":" + collection + ":" + period;
+  }
+}
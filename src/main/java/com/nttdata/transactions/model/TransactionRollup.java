@@ -0,0 +1,53 @@
+package com.nttdata.transactions.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+/**
+ * Daily totals of the transactions of a product, one document per product, collection and day.
+ */
+@Document("transaction_daily_rollups")
+@CompoundIndexes({
+    @CompoundIndex(name = "idProduct_collection_day",
+        def = "{'idProduct': 1, 'collection': 1, 'day': 1}")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionRollup {
+  @Id
+  private String id;
+  private ObjectId idProduct;
+  private int collection;
+  private String day;
+  private long transactions;
+  private long entries;
+  private long exits;
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal entryAmount;
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal exitAmount;
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal commission;
+
+  /**
+   * Return the rollup key.
+   *
+   * @param idProduct  Id of account or credit
+   * @param collection Account or credit collection - use TransactionCollection constant
+   * @param day        Day of the transactions
+   */
+  public static String key(ObjectId idProduct, int collection, LocalDate day) {
+    return idProduct.toHexString() + ":" + collection + ":" + day;
+  }
+}
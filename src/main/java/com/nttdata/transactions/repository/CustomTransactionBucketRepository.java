@@ -0,0 +1,19 @@
+package com.nttdata.transactions.repository;
+
+import com.nttdata.transactions.model.Transaction;
+import java.time.YearMonth;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom transaction bucket repository.
+ */
+public interface CustomTransactionBucketRepository {
+  Mono<Void> append(Transaction transaction);
+
+  Flux<Transaction> findHistoryByIdProductAndCollection(ObjectId idProduct, int collection,
+                                                        YearMonth start, YearMonth end);
+
+  Mono<Void> rebuild();
+}
@@ -0,0 +1,201 @@
+package com.nttdata.transactions.repository;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.model.TransactionBucket;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom transaction bucket repository implementation.
+ */
+public class CustomTransactionBucketRepositoryImpl implements CustomTransactionBucketRepository {
+  private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+  private static final Duration CLOSING = Duration.ofMinutes(1);
+  private static final int OBJECT_ID = 7;
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionTiers tiers;
+  private final int maxSize;
+
+  /**
+   * Return the repository of the buckets.
+   *
+   * @param maxSize Transactions of a bucket before the next ones go to an overflow bucket
+   */
+  public CustomTransactionBucketRepositoryImpl(
+      ReactiveMongoTemplate mongoTemplate,
+      TransactionTiers tiers,
+      @Value("${transactions.storage.buckets.max-size:200}") int maxSize) {
+    this.mongoTemplate = mongoTemplate;
+    this.tiers = tiers;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Push a transaction into the open bucket of its product and month, a new bucket is created
+   * when there is none or the open one is full. The balance change of the transaction is not
+   * copied, it is only tracked in the transactions collection.
+   */
+  @Override
+  public Mono<Void> append(Transaction transaction) {
+    LocalDateTime date = transaction.getDate() == null
+        ? LocalDateTime.now()
+        : transaction.getDate();
+    BigDecimal commission = transaction.getCommission();
+    Query query = new Query(where("idProduct").is(transaction.getIdProduct())
+        .and("collection").is(transaction.getCollection())
+        .and("period").is(YearMonth.from(date).toString())
+        .and("count").lt(maxSize));
+    Update update = new Update()
+        .push("transactions", withoutBalance(transaction))
+        .inc("count", 1)
+        .inc("charged", commission != null && commission.signum() > 0 ? 1 : 0)
+        .inc("commission", decimal(commission));
+    if (transaction.getType() == ENTRY) {
+      update.inc("entryAmount", decimal(transaction.getAmount()));
+    } else if (transaction.getType() == EXIT) {
+      update.inc("exitAmount", decimal(transaction.getAmount()));
+    }
+    return mongoTemplate.upsert(query, update, TransactionBucket.class).then();
+  }
+
+  /**
+   * Return the transactions of a product between two months, both inclusive, oldest first.
+   * Every month is read from its buckets and ordered in memory before the next one is read. A
+   * transaction is returned once while a rebuild has not yet removed its appended bucket.
+   */
+  @Override
+  public Flux<Transaction> findHistoryByIdProductAndCollection(ObjectId idProduct,
+                                                               int collection,
+                                                               YearMonth start, YearMonth end) {
+    Query query = new Query(where("idProduct").is(idProduct)
+        .and("collection").is(collection)
+        .and("period").gte(start.toString()).lte(end.toString()))
+        .with(Sort.by(Sort.Direction.ASC, "period"));
+    return mongoTemplate.find(query, TransactionBucket.class)
+        .bufferUntilChanged(TransactionBucket::getPeriod)
+        .concatMapIterable(buckets -> {
+          Set<ObjectId> ids = new HashSet<>();
+          return buckets.stream()
+              .filter(bucket -> bucket.getTransactions() != null)
+              .flatMap(bucket -> bucket.getTransactions().stream())
+              .filter(transaction -> ids.add(transaction.getId()))
+              .sorted(TransactionQueries.OLDEST_FIRST)
+              .collect(Collectors.toList());
+        });
+  }
+
+  /**
+   * Recalculate the buckets of the closed months from the transactions collection and its
+   * archive, the work is done inside Mongo. The transactions of a product and month are numbered
+   * and grouped by chunks of the bucket size, so no group holds more than a bucket, and every
+   * bucket is merged by its id. The buckets of the closed months created by the appends are
+   * removed afterwards. The current month is left to the appends, a month is closed a minute
+   * after it ends so its last appends have landed.
+   */
+  @Override
+  public Mono<Void> rebuild() {
+    String collectionName = mongoTemplate.getCollectionName(TransactionBucket.class);
+    LocalDateTime closedBefore = LocalDateTime.now().minus(CLOSING);
+    String openPeriod = YearMonth.from(closedBefore).toString();
+    Criteria closed = where("date").lt(Date.from(YearMonth.from(closedBefore).atDay(1)
+        .atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    Document bucket = new Document("idProduct", "$idProduct")
+        .append("collection", "$collection")
+        .append("period", TransactionQueries.period());
+    List<AggregationOperation> operations = new ArrayList<>();
+    operations.add(Aggregation.match(closed));
+    operations.addAll(tiers.union(closed));
+    operations.addAll(List.of(
+        context -> new Document("$unset", "balance"),
+        context -> new Document("$setWindowFields", new Document("partitionBy", bucket)
+            .append("sortBy", new Document("date", 1).append("_id", 1))
+            .append("output", new Document("seq", new Document("$documentNumber",
+                new Document())))),
+        context -> new Document("$sort", new Document("idProduct", 1)
+            .append("collection", 1)
+            .append("date", 1)
+            .append("_id", 1)),
+        context -> new Document("$group", new Document("_id", new Document(bucket)
+            .append("chunk", new Document("$floor", new Document("$divide", List.of(
+                new Document("$subtract", List.of("$seq", 1)), maxSize)))))
+            .append("transactions", new Document("$push", "$$ROOT"))),
+        context -> new Document("$set", new Document("transactions", new Document("$map",
+            new Document("input", "$transactions")
+                .append("in", new Document("$unsetField", new Document("field", "seq")
+                    .append("input", "$$this")))))),
+        context -> new Document("$project", new Document("_id", new Document("$concat", List.of(
+            new Document("$toString", "$_id.idProduct"), ":",
+            new Document("$toString", "$_id.collection"), ":",
+            "$_id.period", ":",
+            new Document("$toString", "$_id.chunk"))))
+            .append("idProduct", "$_id.idProduct")
+            .append("collection", "$_id.collection")
+            .append("period", "$_id.period")
+            .append("count", new Document("$size", "$transactions"))
+            .append("charged", new Document("$size", new Document("$filter",
+                new Document("input", "$transactions")
+                    .append("cond", new Document("$gt", List.of("$$this.commission", 0))))))
+            .append("entryAmount", new Document("$toDecimal", sumIf("$transactions", ENTRY)))
+            .append("exitAmount", new Document("$toDecimal", sumIf("$transactions", EXIT)))
+            .append("commission", new Document("$toDecimal",
+                new Document("$sum", "$transactions.commission")))
+            .append("transactions", 1)),
+        context -> new Document("$merge", new Document("into", collectionName)
+            .append("on", "_id")
+            .append("whenMatched", "replace")
+            .append("whenNotMatched", "insert"))));
+
+    // the appended buckets have an ObjectId, the rebuilt ones the id of their chunk
+    Query appended = new Query(where("period").lt(openPeriod).and("_id").type(OBJECT_ID));
+    return mongoTemplate
+        .aggregate(Aggregation.newAggregation(operations)
+                .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build()),
+            mongoTemplate.getCollectionName(Transaction.class), Document.class)
+        .then(mongoTemplate.remove(appended, collectionName))
+        .then();
+  }
+
+  private static Document sumIf(String transactions, int type) {
+    return new Document("$sum", new Document("$map", new Document("input", transactions)
+        .append("in", new Document("$cond", List.of(
+            new Document("$eq", List.of("$$this.type", type)), "$$this.amount", 0)))));
+  }
+
+  private static Transaction withoutBalance(Transaction transaction) {
+    return new Transaction(transaction.getId(), transaction.getCollection(),
+        transaction.getIdProduct(), transaction.getDescription(), transaction.getType(),
+        transaction.getDate(), transaction.getMonth(), transaction.getPeriod(),
+        transaction.getAmount(), transaction.getCommission(), null);
+  }
+
+  private static Decimal128 decimal(BigDecimal value) {
+    return value == null ? ZERO : new Decimal128(value);
+  }
+}
@@ -0,0 +1,14 @@
+package com.nttdata.transactions.repository;
+
+import java.time.YearMonth;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom transaction counter repository.
+ */
+public interface CustomTransactionCounterRepository {
+  Mono<Void> increment(ObjectId idProduct, int collection, YearMonth period);
+
+  Mono<Void> rebuild();
+}
@@ -0,0 +1,83 @@
+package com.nttdata.transactions.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.model.TransactionCounter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom transaction counter repository implementation.
+ */
+@RequiredArgsConstructor
+public class CustomTransactionCounterRepositoryImpl implements CustomTransactionCounterRepository {
+  private static final Duration CLOSING = Duration.ofMinutes(1);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionTiers tiers;
+
+  @Override
+  public Mono<Void> increment(ObjectId idProduct, int collection, YearMonth period) {
+    Query query = new Query(where("_id").is(TransactionCounter.key(idProduct, collection, period)));
+    Update update = new Update()
+        .inc("count", 1)
+        .setOnInsert("idProduct", idProduct)
+        .setOnInsert("collection", collection)
+        .setOnInsert("period", period.toString());
+    return mongoTemplate.upsert(query, update, TransactionCounter.class).then();
+  }
+
+  /**
+   * Recalculate every counter from the transactions collection and its archive, the work is
+   * done inside Mongo and the result is merged into the counters collection. The counters of
+   * the closed months are replaced, the one of the current month only grows: a replace would
+   * lose the increments made while the rebuild runs. A month is closed a minute after it ends,
+   * so its last increments have landed.
+   */
+  @Override
+  public Mono<Void> rebuild() {
+    String collectionName = mongoTemplate.getCollectionName(TransactionCounter.class);
+    String openPeriod = YearMonth.from(LocalDateTime.now().minus(CLOSING)).toString();
+    List<AggregationOperation> operations = new ArrayList<>(tiers.union(null));
+    operations.addAll(List.of(
+        context -> new Document("$group", new Document("_id",
+            new Document("idProduct", "$idProduct")
+                .append("collection", "$collection")
+                .append("period", TransactionQueries.period()))
+            .append("count", new Document("$sum", 1L))),
+        context -> new Document("$project", new Document("_id", new Document("$concat", List.of(
+            new Document("$toString", "$_id.idProduct"), ":",
+            new Document("$toString", "$_id.collection"), ":",
+            "$_id.period")))
+            .append("idProduct", "$_id.idProduct")
+            .append("collection", "$_id.collection")
+            .append("period", "$_id.period")
+            .append("count", 1)),
+        context -> new Document("$merge", new Document("into", collectionName)
+            .append("on", "_id")
+            .append("whenMatched", List.of(new Document("$set", new Document("count",
+                new Document("$cond", List.of(
+                    new Document("$lt", List.of("$period", openPeriod)),
+                    "$$new.count",
+                    new Document("$max", List.of("$count", "$$new.count"))))))))
+            .append("whenNotMatched", "insert"))));
+
+    return mongoTemplate
+        .aggregate(Aggregation.newAggregation(operations),
+            mongoTemplate.getCollectionName(Transaction.class), Document.class)
+        .then();
+  }
+}
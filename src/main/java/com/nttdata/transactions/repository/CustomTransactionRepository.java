@@ -1,7 +1,13 @@
 package com.nttdata.transactions.repository;
 
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
 import com.nttdata.transactions.model.Transaction;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Map;
+import org.bson.types.ObjectId;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -11,6 +17,28 @@ import reactor.core.publisher.Mono;
 public interface CustomTransactionRepository {
   Mono<Long> countByIdProductAndCollection(String idProduct, Integer collection);
 
+  Mono<Map<String, Long>> countByIdProductsAndCollection(Collection<String> idProducts,
+                                                         int collection, YearMonth period);
+
+  Flux<Transaction> findPageByIdProductAndCollection(ObjectId idProduct, int collection,
+                                                     TransactionCursor after, Integer limit,
+                                                     Collection<String> fields);
+
+  Flux<Transaction> findFeedByIdProductAndCollection(ObjectId idProduct, int collection,
+                                                     TransactionCursor after, int batchSize);
+
+  Flux<Transaction> findStatementByIdProductAndCollection(ObjectId idProduct, int collection,
+                                                         LocalDate start, LocalDate end,
+                                                         int batchSize);
+
   Flux<Transaction> listWithTaxByIdProductAndCollection(LocalDate start, LocalDate end,
                                                         String idProduct, int collection);
+
+  Flux<CommissionReportResponse> commissionReportByIdProductAndCollection(
+      String idProduct, int collection, LocalDate start, LocalDate end, boolean monthly);
+
+  Mono<TransactionSummaryResponse> summaryByIdProductAndCollection(String idProduct,
+                                                                  int collection,
+                                                                  LocalDate start,
+                                                                  LocalDate end);
 }
@@ -2,11 +2,32 @@ package com.nttdata.transactions.repository;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
 import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.model.TransactionCounter;
+import com.nttdata.transactions.model.TransactionRollup;
+import com.nttdata.transactions.utilities.TransactionMetrics;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -17,21 +38,238 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class CustomTransactionRepositoryImpl implements CustomTransactionRepository {
   private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionBucketRepository bucketRepository;
+  private final TransactionTiers tiers;
+  private final TransactionMetrics metrics;
 
+  /**
+   * Whether the statements and the commission listing read their months from the buckets. The
+   * pages of a listing stay on the transactions collection, their cursor and selected fields
+   * are served by the product and date index, while a bucket would be read whole for a page.
+   */
+  @Value("${transactions.storage.buckets.enabled:false}")
+  private boolean buckets;
+
+  /**
+   * Return the transactions of the current month, read from the materialized counter.
+   */
   @Override
   public Mono<Long> countByIdProductAndCollection(String idProduct, Integer collection) {
-    Query query = new Query(where("idProduct").is(new ObjectId(idProduct))
-        .and("collection").is(collection)
-        .and("month").is(LocalDate.now().getMonthValue()));
-    return mongoTemplate.count(query, Transaction.class);
+    return countByIdProductsAndCollection(List.of(idProduct), collection, YearMonth.now())
+        .map(counts -> counts.get(idProduct));
+  }
+
+  /**
+   * Return the transactions of every product in a month, added up from the materialized
+   * counters in one aggregation. Every product is in the result, with 0 when it has no counter.
+   */
+  @Override
+  public Mono<Map<String, Long>> countByIdProductsAndCollection(Collection<String> idProducts,
+                                                                int collection,
+                                                                YearMonth period) {
+    List<String> keys = idProducts.stream()
+        .distinct()
+        .map(idProduct -> TransactionCounter.key(new ObjectId(idProduct), collection, period))
+        .collect(Collectors.toList());
+    List<AggregationOperation> operations = List.of(
+        Aggregation.match(where("_id").in(keys)),
+        context -> new Document("$group", new Document("_id", "$idProduct")
+            .append("count", new Document("$sum", "$count"))));
+
+    return metrics.stage("count", mongoTemplate
+        .aggregate(Aggregation.newAggregation(TransactionCounter.class, operations),
+            Document.class)
+        .collectMap(counter -> counter.getObjectId("_id").toHexString(),
+            counter -> counter.get("count", Number.class).longValue())
+        .map(counts -> {
+          Map<String, Long> result = new HashMap<>();
+          idProducts.forEach(idProduct -> result.put(idProduct,
+              counts.getOrDefault(idProduct, 0L)));
+          return result;
+        }));
+  }
+
+  @Override
+  public Flux<Transaction> findPageByIdProductAndCollection(ObjectId idProduct, int collection,
+                                                            TransactionCursor after,
+                                                            Integer limit,
+                                                            Collection<String> fields) {
+    Query query = TransactionQueries.pageByProduct(idProduct, collection, after, limit, fields);
+    if (!tiers.isEnabled()) {
+      return metrics.stage("page", mongoTemplate.find(query, Transaction.class));
+    }
+    if (limit == null) {
+      return metrics.stage("page", tiered(query, TransactionQueries.isPaged(after, null)
+          ? TransactionQueries.NEWEST_FIRST
+          : TransactionQueries.OLDEST_FIRST, true));
+    }
+    // the archive is only read when the hot page is short or reaches before the horizon
+    return metrics.stage("page", mongoTemplate.find(query, Transaction.class)
+        .collectList()
+        .flatMapMany(hot -> hot.size() == limit
+            && !tiers.reaches(hot.get(hot.size() - 1).getDate())
+            ? Flux.fromIterable(hot)
+            : merge(Flux.fromIterable(hot), archived(query), TransactionQueries.NEWEST_FIRST)
+            .take(limit)));
+  }
+
+  @Override
+  public Flux<Transaction> findFeedByIdProductAndCollection(ObjectId idProduct, int collection,
+                                                            TransactionCursor after,
+                                                            int batchSize) {
+    Query query = TransactionQueries.feedByProduct(idProduct, collection, after)
+        .cursorBatchSize(batchSize);
+    return metrics.stage("feed_replay", tiered(query, TransactionQueries.OLDEST_FIRST,
+        tiers.reaches(after == null ? null : after.getDate())));
+  }
+
+  @Override
+  public Flux<Transaction> findStatementByIdProductAndCollection(ObjectId idProduct,
+                                                                 int collection,
+                                                                 LocalDate start, LocalDate end,
+                                                                 int batchSize) {
+    if (buckets) {
+      return metrics.stage("statement", history(idProduct, collection, start, end));
+    }
+    Query query = TransactionQueries.statementByProduct(idProduct, collection, start, end)
+        .cursorBatchSize(batchSize);
+    return metrics.stage("statement", tiered(query, TransactionQueries.OLDEST_FIRST,
+        tiers.reaches(start.atStartOfDay())));
   }
 
   @Override
   public Flux<Transaction> listWithTaxByIdProductAndCollection(LocalDate start, LocalDate end,
                                                                String idProduct, int collection) {
-    Query query = new Query(where("idProduct").is(new ObjectId(idProduct))
-        .and("collection").is(collection)
-        .and("date").gte(start).lt(end.plusDays(1)));
-    return mongoTemplate.find(query, Transaction.class);
+    if (buckets) {
+      return metrics.stage("list_with_commission",
+          history(new ObjectId(idProduct), collection, start, end));
+    }
+    Query query = TransactionQueries
+        .byProductAndDate(new ObjectId(idProduct), collection, start, end);
+    if (tiers.reaches(start.atStartOfDay())) {
+      query.with(Sort.by(Sort.Direction.ASC, "date", "_id"));
+      return metrics.stage("list_with_commission",
+          tiered(query, TransactionQueries.OLDEST_FIRST, true));
+    }
+    return metrics.stage("list_with_commission", mongoTemplate.find(query, Transaction.class));
+  }
+
+  /**
+   * Return the transactions of a sorted query, merged with the archived ones in the same order
+   * when the query reaches the archive. A transaction being archived can be in both
+   * collections, it is returned once.
+   */
+  private Flux<Transaction> tiered(Query query, Comparator<Transaction> order,
+                                   boolean reachesArchive) {
+    Flux<Transaction> hot = mongoTemplate.find(query, Transaction.class);
+    return reachesArchive ? merge(hot, archived(query), order) : hot;
+  }
+
+  private Flux<Transaction> archived(Query query) {
+    return mongoTemplate.find(query, Transaction.class, tiers.getCollection());
+  }
+
+  private static Flux<Transaction> merge(Flux<Transaction> hot, Flux<Transaction> archived,
+                                         Comparator<Transaction> order) {
+    return Flux.mergeComparing(order, hot, archived)
+        .distinctUntilChanged(Transaction::getId);
+  }
+
+  /**
+   * Return the transactions of a product between two dates, both inclusive, read from the
+   * monthly buckets so only the buckets of the months in the range are read.
+   */
+  private Flux<Transaction> history(ObjectId idProduct, int collection,
+                                    LocalDate start, LocalDate end) {
+    LocalDateTime from = start.atStartOfDay();
+    LocalDateTime to = end.plusDays(1).atStartOfDay();
+    return bucketRepository
+        .findHistoryByIdProductAndCollection(idProduct, collection,
+            YearMonth.from(start), YearMonth.from(end))
+        .filter(transaction -> transaction.getDate() != null
+            && !transaction.getDate().isBefore(from)
+            && transaction.getDate().isBefore(to));
+  }
+
+  /**
+   * Return the commissions of a product grouped by day or month and type of transaction, the
+   * totals are calculated inside Mongo.
+   */
+  @Override
+  public Flux<CommissionReportResponse> commissionReportByIdProductAndCollection(
+      String idProduct, int collection, LocalDate start, LocalDate end, boolean monthly) {
+    Document period = monthly
+        ? TransactionQueries.period()
+        : new Document("$dateToString", new Document("format", "%Y-%m-%d")
+            .append("date", "$date")
+            .append("timezone", ZoneId.systemDefault().getId()));
+    Document charged = new Document("$cond", List.of(
+        new Document("$gt", List.of("$commission", 0)), 1L, 0L));
+    Criteria range = TransactionQueries
+        .productAndDate(new ObjectId(idProduct), collection, start, end);
+    List<AggregationOperation> operations = new ArrayList<>();
+    operations.add(Aggregation.match(range));
+    if (tiers.reaches(start.atStartOfDay())) {
+      operations.addAll(tiers.union(range));
+    }
+    operations.addAll(List.of(
+        context -> new Document("$group", new Document("_id",
+            new Document("period", period).append("type", "$type"))
+            .append("transactions", new Document("$sum", 1L))
+            .append("charged", new Document("$sum", charged))
+            .append("commission", new Document("$sum", "$commission"))),
+        context -> new Document("$project", new Document("_id", 0)
+            .append("period", "$_id.period")
+            .append("type", "$_id.type")
+            .append("transactions", 1)
+            .append("charged", 1)
+            .append("commission", 1)),
+        context -> new Document("$sort", new Document("period", 1).append("type", 1))));
+
+    return metrics.stage("commission_report", mongoTemplate.aggregate(
+        Aggregation.newAggregation(Transaction.class, operations),
+        CommissionReportResponse.class));
+  }
+
+  /**
+   * Return the totals of a product between two dates, both inclusive, added up from the daily
+   * rollups so only one document per day is read.
+   */
+  @Override
+  public Mono<TransactionSummaryResponse> summaryByIdProductAndCollection(String idProduct,
+                                                                         int collection,
+                                                                         LocalDate start,
+                                                                         LocalDate end) {
+    List<AggregationOperation> operations = List.of(
+        Aggregation.match(where("idProduct").is(new ObjectId(idProduct))
+            .and("collection").is(collection)
+            .and("day").gte(start.toString()).lte(end.toString())),
+        context -> new Document("$group", new Document("_id", null)
+            .append("days", new Document("$sum", 1L))
+            .append("transactions", new Document("$sum", "$transactions"))
+            .append("entries", new Document("$sum", "$entries"))
+            .append("exits", new Document("$sum", "$exits"))
+            .append("entryAmount", new Document("$sum", "$entryAmount"))
+            .append("exitAmount", new Document("$sum", "$exitAmount"))
+            .append("commission", new Document("$sum", "$commission"))),
+        context -> new Document("$project", new Document("_id", 0)
+            .append("days", 1)
+            .append("transactions", 1)
+            .append("entries", 1)
+            .append("exits", 1)
+            .append("entryAmount", new Document("$toDecimal", "$entryAmount"))
+            .append("exitAmount", new Document("$toDecimal", "$exitAmount"))
+            .append("commission", new Document("$toDecimal", "$commission"))));
+
+    return metrics.stage("summary", mongoTemplate.aggregate(
+            Aggregation.newAggregation(TransactionRollup.class, operations),
+            TransactionSummaryResponse.class)
+        .next()
+        .map(summary -> {
+          summary.setStart(start);
+          summary.setEnd(end);
+          return summary;
+        })
+        .defaultIfEmpty(TransactionSummaryResponse.empty(start, end)));
   }
 }
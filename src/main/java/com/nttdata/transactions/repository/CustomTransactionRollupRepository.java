@@ -0,0 +1,13 @@
+package com.nttdata.transactions.repository;
+
+import com.nttdata.transactions.model.Transaction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom transaction rollup repository.
+ */
+public interface CustomTransactionRollupRepository {
+  Mono<Void> increment(Transaction transaction);
+
+  Mono<Void> rebuild();
+}
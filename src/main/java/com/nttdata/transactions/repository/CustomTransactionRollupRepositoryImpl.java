@@ -0,0 +1,124 @@
+package com.nttdata.transactions.repository;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.model.TransactionRollup;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom transaction rollup repository implementation.
+ */
+@RequiredArgsConstructor
+public class CustomTransactionRollupRepositoryImpl implements CustomTransactionRollupRepository {
+  private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+  private static final Duration CLOSING = Duration.ofMinutes(1);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionTiers tiers;
+
+  /**
+   * Add a transaction to the rollup of its day, the rollup is created by the first one.
+   */
+  @Override
+  public Mono<Void> increment(Transaction transaction) {
+    LocalDate day = transaction.getDate() == null
+        ? LocalDate.now()
+        : transaction.getDate().toLocalDate();
+    Query query = new Query(where("_id").is(TransactionRollup.key(transaction.getIdProduct(),
+        transaction.getCollection(), day)));
+    Update update = new Update()
+        .inc("transactions", 1L)
+        .inc("commission", decimal(transaction.getCommission()))
+        .setOnInsert("idProduct", transaction.getIdProduct())
+        .setOnInsert("collection", transaction.getCollection())
+        .setOnInsert("day", day.toString());
+    if (transaction.getType() == ENTRY) {
+      update.inc("entries", 1L).inc("entryAmount", decimal(transaction.getAmount()));
+    } else if (transaction.getType() == EXIT) {
+      update.inc("exits", 1L).inc("exitAmount", decimal(transaction.getAmount()));
+    }
+    return mongoTemplate.upsert(query, update, TransactionRollup.class).then();
+  }
+
+  /**
+   * Recalculate the rollups of the closed days from the transactions collection and its
+   * archive, the work is done inside Mongo and the result is merged into the rollups collection.
+   * The current day is left to the increments, a replace would lose the ones made while the
+   * rebuild runs. A day is closed a minute after it ends, so its last increments have landed.
+   */
+  @Override
+  public Mono<Void> rebuild() {
+    String collectionName = mongoTemplate.getCollectionName(TransactionRollup.class);
+    ZoneId zone = ZoneId.systemDefault();
+    Document day = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+        .append("date", "$date")
+        .append("timezone", zone.getId()));
+    Criteria closed = where("date").lt(Date.from(LocalDateTime.now().minus(CLOSING)
+        .toLocalDate().atStartOfDay(zone).toInstant()));
+    List<AggregationOperation> operations = new ArrayList<>();
+    operations.add(Aggregation.match(closed));
+    operations.addAll(tiers.union(closed));
+    operations.addAll(List.of(
+        context -> new Document("$group", new Document("_id",
+            new Document("idProduct", "$idProduct")
+                .append("collection", "$collection")
+                .append("day", day))
+            .append("transactions", new Document("$sum", 1L))
+            .append("entries", sumIf(ENTRY, 1L))
+            .append("exits", sumIf(EXIT, 1L))
+            .append("entryAmount", sumIf(ENTRY, "$amount"))
+            .append("exitAmount", sumIf(EXIT, "$amount"))
+            .append("commission", new Document("$sum", "$commission"))),
+        context -> new Document("$project", new Document("_id", new Document("$concat", List.of(
+            new Document("$toString", "$_id.idProduct"), ":",
+            new Document("$toString", "$_id.collection"), ":",
+            "$_id.day")))
+            .append("idProduct", "$_id.idProduct")
+            .append("collection", "$_id.collection")
+            .append("day", "$_id.day")
+            .append("transactions", 1)
+            .append("entries", 1)
+            .append("exits", 1)
+            .append("entryAmount", new Document("$toDecimal", "$entryAmount"))
+            .append("exitAmount", new Document("$toDecimal", "$exitAmount"))
+            .append("commission", new Document("$toDecimal", "$commission"))),
+        context -> new Document("$merge", new Document("into", collectionName)
+            .append("on", "_id")
+            .append("whenMatched", "replace")
+            .append("whenNotMatched", "insert"))));
+
+    return mongoTemplate
+        .aggregate(Aggregation.newAggregation(operations),
+            mongoTemplate.getCollectionName(Transaction.class), Document.class)
+        .then();
+  }
+
+  private static Document sumIf(int type, Object value) {
+    return new Document("$sum", new Document("$cond",
+        List.of(new Document("$eq", List.of("$type", type)), value, 0L)));
+  }
+
+  private static Decimal128 decimal(BigDecimal value) {
+    return value == null ? ZERO : new Decimal128(value);
+  }
+}
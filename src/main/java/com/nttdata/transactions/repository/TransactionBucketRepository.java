@@ -0,0 +1,14 @@
+package com.nttdata.transactions.repository;
+
+import com.nttdata.transactions.model.TransactionBucket;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Transaction bucket repository.
+ */
+@Repository
+public interface TransactionBucketRepository
+    extends ReactiveMongoRepository<TransactionBucket, String>,
+    CustomTransactionBucketRepository {
+}
@@ -0,0 +1,14 @@
+package com.nttdata.transactions.repository;
+
+import com.nttdata.transactions.model.TransactionCounter;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Transaction counter repository.
+ */
+@Repository
+public interface TransactionCounterRepository
+    extends ReactiveMongoRepository<TransactionCounter, String>,
+    CustomTransactionCounterRepository {
+}
@@ -0,0 +1,47 @@
+package com.nttdata.transactions.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.nttdata.transactions.model.Transaction;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+/**
+ * Position of a transaction in a listing sorted by date and id, both descending.
+ */
+@Value
+public class TransactionCursor {
+  private static final String SEPARATOR = "_";
+
+  LocalDateTime date;
+  ObjectId id;
+
+  public static TransactionCursor of(Transaction transaction) {
+    return new TransactionCursor(transaction.getDate(), transaction.getId());
+  }
+
+  /**
+   * Return the cursor of an opaque value.
+   *
+   * @param value Value returned by encode
+   * @throws IllegalArgumentException when the value is not a cursor
+   */
+  public static TransactionCursor decode(String value) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(value), UTF_8).split(SEPARATOR);
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Invalid cursor " + value);
+      }
+      return new TransactionCursor(LocalDateTime.parse(parts[0]), new ObjectId(parts[1]));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor " + value, e);
+    }
+  }
+
+  public String encode() {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString((date + SEPARATOR + id.toHexString()).getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,244 @@
+package com.nttdata.transactions.repository;
+
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.DONE;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.FAILED;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PENDING;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PROCESSING;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.nttdata.transactions.model.Transaction;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Query shapes used over the transactions collection, each one must be served by an index.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TransactionQueries {
+  /**
+   * Fields of a transaction that can be selected in a listing.
+   */
+  public static final Set<String> FIELDS = Set.of("collection", "idProduct", "description",
+      "type", "date", "month", "period", "amount", "commission");
+
+  /**
+   * Order of the statements and feeds, by date and then id.
+   */
+  public static final Comparator<Transaction> OLDEST_FIRST = Comparator
+      .comparing(Transaction::getDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Transaction::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  /**
+   * Order of the pages, by date and then id.
+   */
+  public static final Comparator<Transaction> NEWEST_FIRST = OLDEST_FIRST.reversed();
+
+  /**
+   * Return the expression of the year and month of a transaction, yyyy-MM. It reads the stored
+   * period and only the transactions saved before it existed calculate it from their date.
+   */
+  public static Document period() {
+    return new Document("$ifNull", List.of("$period", new Document("$dateToString",
+        new Document("format", "%Y-%m")
+            .append("date", "$date")
+            .append("timezone", ZoneId.systemDefault().getId()))));
+  }
+
+  /**
+   * Return the query of every transaction of a product.
+   */
+  public static Query byProduct(ObjectId idProduct, int collection) {
+    return new Query(where("idProduct").is(idProduct)
+        .and("collection").is(collection));
+  }
+
+  /**
+   * Return the query of the transactions of a product between two dates, both inclusive.
+   */
+  public static Query byProductAndDate(ObjectId idProduct, int collection,
+                                       LocalDate start, LocalDate end) {
+    return new Query(productAndDate(idProduct, collection, start, end));
+  }
+
+  /**
+   * Return the criteria of byProductAndDate, used to match the transactions of an aggregation.
+   */
+  public static Criteria productAndDate(ObjectId idProduct, int collection,
+                                        LocalDate start, LocalDate end) {
+    return where("idProduct").is(idProduct)
+        .and("collection").is(collection)
+        .and("date").gte(start).lt(end.plusDays(1));
+  }
+
+  /**
+   * Return the statement of a product between two dates, both inclusive, oldest first and with
+   * only the fields of the statement.
+   */
+  public static Query statementByProduct(ObjectId idProduct, int collection,
+                                         LocalDate start, LocalDate end) {
+    Query query = byProductAndDate(idProduct, collection, start, end)
+        .with(Sort.by(Sort.Direction.ASC, "date", "_id"));
+    query.fields().include("date", "type", "description", "amount", "commission");
+    return query;
+  }
+
+  /**
+   * Return a page of the transactions of a product, newest first. The date and id are always
+   * selected because the cursor of the next page is built from them. Without a limit and after
+   * it is the whole listing, oldest first as it was before the pages.
+   *
+   * @param after  Last transaction of the previous page, null for the first page
+   * @param limit  Maximum transactions of the page, null for all of them
+   * @param fields Selected fields, null or empty for every field
+   */
+  public static Query pageByProduct(ObjectId idProduct, int collection, TransactionCursor after,
+                                    Integer limit, Collection<String> fields) {
+    Query query = byProduct(idProduct, collection);
+    if (after != null) {
+      query.addCriteria(new Criteria().orOperator(
+          where("date").lt(after.getDate()),
+          where("date").is(after.getDate()).and("_id").lt(after.getId())));
+    }
+    query.with(Sort.by(isPaged(after, limit) ? Sort.Direction.DESC : Sort.Direction.ASC,
+        "date", "_id"));
+    if (limit != null) {
+      query.limit(limit);
+    }
+    if (fields != null && !fields.isEmpty()) {
+      fields.forEach(field -> query.fields().include(field));
+      query.fields().include("date");
+    }
+    return query;
+  }
+
+  /**
+   * Return whether a listing is read by pages, newest first.
+   */
+  public static boolean isPaged(TransactionCursor after, Integer limit) {
+    return after != null || limit != null;
+  }
+
+  /**
+   * Return the transactions of a product after a position, oldest first. It is the replay of a
+   * feed that then follows the new transactions.
+   *
+   * @param after Last transaction received, null for every transaction
+   */
+  public static Query feedByProduct(ObjectId idProduct, int collection,
+                                    TransactionCursor after) {
+    Query query = byProduct(idProduct, collection);
+    if (after != null) {
+      query.addCriteria(new Criteria().orOperator(
+          where("date").gt(after.getDate()),
+          where("date").is(after.getDate()).and("_id").gt(after.getId())));
+    }
+    return query.with(Sort.by(Sort.Direction.ASC, "date", "_id"));
+  }
+
+  /**
+   * Return the transactions whose balance change can be sent, the pending ones that are due and
+   * the ones whose sender did not finish before its lease expired.
+   */
+  public static Query dueBalanceChanges(LocalDateTime now) {
+    return new Query(new Criteria().orOperator(due(now)));
+  }
+
+  /**
+   * Return the transactions of some ids whose balance change is still due, the ones another
+   * drain did not claim in the meantime.
+   */
+  public static Query dueBalanceChanges(Collection<ObjectId> ids, LocalDateTime now) {
+    return new Query(where("_id").in(ids).orOperator(due(now)));
+  }
+
+  /**
+   * Return the transactions of some ids whose balance change was claimed by a drain.
+   */
+  public static Query byClaim(Collection<ObjectId> ids, ObjectId claim) {
+    return new Query(where("_id").in(ids).and("balance.claim").is(claim));
+  }
+
+  /**
+   * Return the transactions whose balance changes are sent by a delivery.
+   */
+  public static Query byDelivery(ObjectId delivery) {
+    return new Query(where("balance.delivery").is(delivery));
+  }
+
+  /**
+   * Return the balance debits of some products that a balance read at a time may not include
+   * yet, the ones still waiting to be sent, the failed ones whose outcome is unknown and the ones
+   * sent after that time. The credits are left out, a balance may already include them and must
+   * not count them twice, and so are the debits the service rejected.
+   */
+  public static Query unsettledBalanceDebits(Collection<ObjectId> idProducts, int collection,
+                                             LocalDateTime readAt) {
+    return new Query(where("idProduct").in(idProducts)
+        .and("collection").is(collection)
+        .and("balance.amount").lt(Decimal128.POSITIVE_ZERO)
+        .orOperator(where("balance.status").in(PENDING, PROCESSING, FAILED),
+            where("balance.status").is(DONE).and("balance.doneAt").gt(readAt)));
+  }
+
+  /**
+   * Return the transactions of a delivery left failed for a manual review.
+   */
+  public static Query failedByDelivery(ObjectId delivery) {
+    return new Query(where("balance.delivery").is(delivery).and("balance.status").is(FAILED));
+  }
+
+  /**
+   * Return the transactions whose balance change was sent before a time.
+   */
+  public static Query sentBalanceChanges(LocalDateTime before) {
+    return new Query(where("balance.status").is(DONE).and("balance.doneAt").lt(before));
+  }
+
+  private static Criteria[] due(LocalDateTime now) {
+    return new Criteria[] {
+        where("balance.status").is(PENDING).and("balance.nextAttemptAt").lte(now),
+        where("balance.status").is(PROCESSING).and("balance.lockedUntil").lt(now)};
+  }
+
+  /**
+   * Return a sample of every query shape, used to check the execution plans.
+   */
+  public static Map<String, Query> samples() {
+    ObjectId idProduct = new ObjectId();
+    LocalDate today = LocalDate.now();
+    Map<String, Query> samples = new LinkedHashMap<>();
+    samples.put("byProduct", byProduct(idProduct, 1));
+    samples.put("byProductAndDate", byProductAndDate(idProduct, 1, today.minusMonths(1), today));
+    samples.put("statementByProduct", statementByProduct(idProduct, 1, today.minusMonths(1),
+        today));
+    samples.put("pageByProduct", pageByProduct(idProduct, 1,
+        new TransactionCursor(LocalDateTime.now(), new ObjectId()), 20, null));
+    samples.put("feedByProduct", feedByProduct(idProduct, 1,
+        new TransactionCursor(LocalDateTime.now(), new ObjectId())));
+    samples.put("dueBalanceChanges", dueBalanceChanges(LocalDateTime.now()));
+    samples.put("dueBalanceChangesByIds", dueBalanceChanges(List.of(new ObjectId()),
+        LocalDateTime.now()));
+    samples.put("byClaim", byClaim(List.of(new ObjectId()), new ObjectId()));
+    samples.put("byDelivery", byDelivery(new ObjectId()));
+    samples.put("failedByDelivery", failedByDelivery(new ObjectId()));
+    samples.put("unsettledBalanceDebits", unsettledBalanceDebits(List.of(idProduct), 1,
+        LocalDateTime.now()));
+    samples.put("sentBalanceChanges", sentBalanceChanges(LocalDateTime.now()));
+    return samples;
+  }
+}
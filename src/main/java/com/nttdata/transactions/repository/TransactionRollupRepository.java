@@ -0,0 +1,14 @@
+package com.nttdata.transactions.repository;
+
+import com.nttdata.transactions.model.TransactionRollup;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Transaction daily rollup repository.
+ */
+@Repository
+public interface TransactionRollupRepository
+    extends ReactiveMongoRepository<TransactionRollup, String>,
+    CustomTransactionRollupRepository {
+}
@@ -0,0 +1,70 @@
+package com.nttdata.transactions.repository;
+
+import com.nttdata.transactions.model.Transaction;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveAfterSaveCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the materialized data of a transaction up to date once it is stored. The transaction
+ * is already stored when they are updated, so an update that fails is logged and left to the
+ * rebuild of that data instead of failing the request.
+ */
+@Component
+public class TransactionSaveCallback implements ReactiveAfterSaveCallback<Transaction> {
+  private static final Logger logger = LogManager.getLogger(TransactionSaveCallback.class);
+  private static final String TRANSACTIONS = "transactions";
+
+  private final TransactionCounterRepository counterRepository;
+  private final TransactionRollupRepository rollupRepository;
+  private final TransactionBucketRepository bucketRepository;
+  private final boolean buckets;
+
+  /**
+   * Return the callback of the stored transactions.
+   *
+   * @param buckets Whether the transactions are also appended to their monthly bucket
+   */
+  public TransactionSaveCallback(@Lazy TransactionCounterRepository counterRepository,
+                                 @Lazy TransactionRollupRepository rollupRepository,
+                                 @Lazy TransactionBucketRepository bucketRepository,
+                                 @Value("${transactions.storage.buckets.enabled:false}")
+                                     boolean buckets) {
+    this.counterRepository = counterRepository;
+    this.rollupRepository = rollupRepository;
+    this.bucketRepository = bucketRepository;
+    this.buckets = buckets;
+  }
+
+  @Override
+  public Publisher<Transaction> onAfterSave(Transaction entity, Document document,
+                                            String collection) {
+    if (!TRANSACTIONS.equals(collection) || entity.getIdProduct() == null) {
+      return Mono.just(entity);
+    }
+
+    LocalDateTime date = entity.getDate() == null ? LocalDateTime.now() : entity.getDate();
+    return Mono.when(
+            recover("counter", entity, counterRepository
+                .increment(entity.getIdProduct(), entity.getCollection(), YearMonth.from(date))),
+            recover("rollup", entity, rollupRepository.increment(entity)),
+            buckets ? recover("bucket", entity, bucketRepository.append(entity)) : Mono.empty())
+        .thenReturn(entity);
+  }
+
+  private static Mono<Void> recover(String data, Transaction entity, Mono<Void> update) {
+    return update.onErrorResume(e -> {
+      logger.error("The {} of transaction {} could not be updated, it is fixed by the next "
+          + "rebuild", data, entity.getId(), e);
+      return Mono.empty();
+    });
+  }
+}
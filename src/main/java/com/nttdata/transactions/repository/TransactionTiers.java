@@ -0,0 +1,78 @@
+package com.nttdata.transactions.repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hot and archive tiers of the transactions. The archiver only moves the transactions older than
+ * the horizon, so the archive is read only when a query reaches before it.
+ */
+@Component
+public class TransactionTiers {
+  private final boolean enabled;
+  private final String collection;
+  private final Duration age;
+
+  /**
+   * Return the tiers of the transactions.
+   *
+   * @param enabled    Whether the old transactions are moved to the archive
+   * @param collection Archive collection
+   * @param age        Age from which a transaction is moved to the archive
+   */
+  public TransactionTiers(@Value("${transactions.archive.enabled:false}") boolean enabled,
+                          @Value("${transactions.archive.collection:transactions_archive}")
+                              String collection,
+                          @Value("${transactions.archive.age:365d}") Duration age) {
+    this.enabled = enabled;
+    this.collection = collection;
+    this.age = age;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public String getCollection() {
+    return collection;
+  }
+
+  /**
+   * Return the date before which the transactions may be in the archive.
+   */
+  public LocalDateTime horizon() {
+    return LocalDateTime.now().minus(age);
+  }
+
+  /**
+   * Return whether the transactions of a date may be in the archive.
+   *
+   * @param date Oldest date of a query, null when it has no lower bound
+   */
+  public boolean reaches(LocalDateTime date) {
+    return enabled && (date == null || date.isBefore(horizon()));
+  }
+
+  /**
+   * Return the stages that add the matching archived transactions to an aggregation over the
+   * hot collection, none when the archive is disabled.
+   *
+   * @param criteria Criteria of the archived transactions, null for all of them
+   */
+  public List<AggregationOperation> union(Criteria criteria) {
+    if (!enabled) {
+      return List.of();
+    }
+    return List.of(context -> new Document("$unionWith", new Document("coll", collection)
+        .append("pipeline", criteria == null
+            ? List.of()
+            : List.of(Aggregation.match(criteria).toDocument(context)))));
+  }
+}
@@ -0,0 +1,102 @@
+package com.nttdata.transactions.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nttdata.transactions.dto.response.AccountResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded cache of account snapshots by account number, concurrent lookups of the same number
+ * share a single remote call.
+ */
+@Component
+public class AccountCache {
+  private final boolean enabled;
+  private final AsyncCache<String, AccountResponse> accounts;
+  private final Cache<String, String> numbersById;
+
+  /**
+   * Return the account cache.
+   *
+   * @param enabled       Whether the snapshots are cached
+   * @param ttl           Time a snapshot is kept since it was read
+   * @param maxSize       Maximum number of snapshots
+   * @param meterRegistry Registry of the hit, miss and eviction metrics
+   */
+  public AccountCache(@Value("${backend.account-cache.enabled:true}") boolean enabled,
+                      @Value("${backend.account-cache.ttl:5s}") Duration ttl,
+                      @Value("${backend.account-cache.max-size:10000}") long maxSize,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+    this.enabled = enabled;
+    this.accounts = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .buildAsync();
+    this.numbersById = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .build();
+    meterRegistry.ifAvailable(registry ->
+        CaffeineCacheMetrics.monitor(registry, accounts.synchronous(), "accounts"));
+  }
+
+  /**
+   * Return the cached snapshot of the account, it is loaded when it is missing or expired.
+   */
+  public Mono<AccountResponse> get(String number, Supplier<Mono<AccountResponse>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+    return Mono
+        .fromFuture(() -> accounts.get(number, (key, executor) -> load(key, loader)))
+        .map(account -> account.toBuilder().build());
+  }
+
+  /**
+   * Return a fresh snapshot of the account and replace the cached one.
+   */
+  public Mono<AccountResponse> refresh(String number, Supplier<Mono<AccountResponse>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+    return Mono
+        .fromFuture(() -> {
+          CompletableFuture<AccountResponse> future = load(number, loader);
+          accounts.put(number, future);
+          return future;
+        })
+        .map(account -> account.toBuilder().build());
+  }
+
+  /**
+   * Remove the cached snapshot of the account, if any, once its balance changed. The snapshot is
+   * not patched with the change: it may have been read after the change and already include it.
+   */
+  public void invalidateById(String id) {
+    String number = numbersById.getIfPresent(id);
+    if (number != null) {
+      invalidate(number);
+    }
+  }
+
+  public void invalidate(String number) {
+    accounts.synchronous().invalidate(number);
+  }
+
+  private CompletableFuture<AccountResponse> load(String number,
+                                                  Supplier<Mono<AccountResponse>> loader) {
+    return loader.get()
+        .doOnNext(account -> numbersById.put(account.getId(), number))
+        .toFuture();
+  }
+}
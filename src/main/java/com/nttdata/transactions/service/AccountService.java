@@ -13,7 +13,16 @@ public interface AccountService {
 
   Mono<AccountResponse> findAccount(String number);
 
+  Mono<AccountResponse> findAccountForDebit(String number);
+
   Mono<BigDecimal> getTotalBalanceByDebitCard(String debitCard);
 
-  void updateAccount(String id, BigDecimal amount);
+  /**
+   * Add an amount to the balance of an account.
+   *
+   * @param idempotencyKey Key of the change. Applying a key once is a contract the account
+   *                       service must honour, declared by
+   *                       transactions.outbox.idempotent-downstream
+   */
+  Mono<Void> updateAccount(String id, BigDecimal amount, String idempotencyKey);
 }
@@ -1,11 +1,13 @@
 package com.nttdata.transactions.service;
 
+import static com.nttdata.transactions.service.BackendResilience.ACCOUNT;
 import static com.nttdata.transactions.utilities.Constants.AccountType.FIXED_TERM;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 import com.nttdata.transactions.dto.response.AccountResponse;
 import com.nttdata.transactions.exceptions.customs.CustomInformationException;
 import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.utilities.TransactionMetrics;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,68 +27,93 @@ public class AccountServiceImpl implements AccountService {
   private String urlAccount;
 
   private static final String NOT_FOUND_MESSAGE = " not found";
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
   @Autowired
-  @Qualifier("wcLoadBalanced")
-  private WebClient.Builder webClient;
+  @Qualifier("accountWebClient")
+  private WebClient webClient;
+
+  @Autowired
+  private AccountCache accountCache;
+
+  @Autowired
+  private TransactionMetrics metrics;
+
+  @Autowired
+  private BackendResilience resilience;
+
+  @Value("${backend.account-cache.fresh-read-on-debit:true}")
+  private boolean freshReadOnDebit;
 
   @Override
   public Flux<AccountResponse> listByDebitCard(String debitCard) {
-    return webClient
-        .build()
-        .get()
-        .uri(urlAccount + "/get/debitCard/{debitCard}", debitCard)
-        .retrieve()
-        .onStatus(status -> status == NOT_FOUND, response -> Mono
-            .error(new CustomNotFoundException("Debit card " + debitCard + NOT_FOUND_MESSAGE)))
-        .bodyToFlux(AccountResponse.class);
+    return metrics.stage("account_list_by_debit_card",
+        resilience.readMany(ACCOUNT, () -> webClient
+            .get()
+            .uri(urlAccount + "/get/debitCard/{debitCard}", debitCard)
+            .retrieve()
+            .onStatus(status -> status == NOT_FOUND, response -> Mono
+                .error(new CustomNotFoundException("Debit card " + debitCard + NOT_FOUND_MESSAGE)))
+            .bodyToFlux(AccountResponse.class)));
   }
 
   @Override
   public Mono<AccountResponse> findAccount(String number) {
-    return webClient
-        .build()
-        .get()
-        .uri(urlAccount + "/get/number/{number}", number)
-        .retrieve()
-        .onStatus(NOT_FOUND::equals, response ->
-            Mono.error(new CustomNotFoundException("Account " + number + NOT_FOUND_MESSAGE)))
-        .bodyToMono(AccountResponse.class)
-        .onErrorStop()
-        .flatMap(account -> {
-          if (account.getTypeAccount().getOption() == FIXED_TERM) {
-            int currentDay = LocalDate.now().getDayOfMonth();
-            if (currentDay != account.getTypeAccount().getDay()) {
-              return Mono.error(new CustomInformationException("Only the day "
-                  + account.getTypeAccount().getDay()
-                  + " of each month you can make a transaction for your account"));
-            }
-          }
-
-          return Mono.just(account);
-        });
+    return accountCache.get(number, () -> getAccount(number))
+        .flatMap(this::checkFixedTermDay);
+  }
+
+  @Override
+  public Mono<AccountResponse> findAccountForDebit(String number) {
+    Mono<AccountResponse> account = freshReadOnDebit
+        ? accountCache.refresh(number, () -> getAccount(number))
+        : accountCache.get(number, () -> getAccount(number));
+    return account.flatMap(this::checkFixedTermDay);
   }
 
   @Override
   public Mono<BigDecimal> getTotalBalanceByDebitCard(String debitCard) {
-    return webClient
-        .build()
+    return metrics.stage("account_total_balance", webClient
         .get()
         .uri(urlAccount + "/get/totalBalance/{debitCard}", debitCard)
         .retrieve()
         .onStatus(status -> status == NOT_FOUND, response -> Mono
             .error(new CustomNotFoundException("Debit card " + debitCard + NOT_FOUND_MESSAGE)))
-        .bodyToMono(BigDecimal.class);
+        .bodyToMono(BigDecimal.class));
   }
 
   @Override
-  public void updateAccount(String id, BigDecimal amount) {
-    webClient
-        .build()
+  public Mono<Void> updateAccount(String id, BigDecimal amount, String idempotencyKey) {
+    return metrics.stage("account_update", webClient
         .put()
         .uri(urlAccount + "/balance/{id}/amount/{amount}", id, amount)
+        .header(IDEMPOTENCY_KEY, idempotencyKey)
+        .retrieve()
+        .bodyToMono(Void.class))
+        .doOnSuccess(x -> accountCache.invalidateById(id));
+  }
+
+  private Mono<AccountResponse> getAccount(String number) {
+    return metrics.stage("account_lookup", resilience.read(ACCOUNT, () -> webClient
+        .get()
+        .uri(urlAccount + "/get/number/{number}", number)
         .retrieve()
-        .bodyToMono(Void.class)
-        .subscribe();
+        .onStatus(NOT_FOUND::equals, response ->
+            Mono.error(new CustomNotFoundException("Account " + number + NOT_FOUND_MESSAGE)))
+        .bodyToMono(AccountResponse.class)))
+        .onErrorStop();
+  }
+
+  private Mono<AccountResponse> checkFixedTermDay(AccountResponse account) {
+    if (account.getTypeAccount().getOption() == FIXED_TERM) {
+      int currentDay = LocalDate.now().getDayOfMonth();
+      if (currentDay != account.getTypeAccount().getDay()) {
+        return Mono.error(new CustomInformationException("Only the day "
+            + account.getTypeAccount().getDay()
+            + " of each month you can make a transaction for your account"));
+      }
+    }
+
+    return Mono.just(account);
   }
 }
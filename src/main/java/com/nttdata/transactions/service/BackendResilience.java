@@ -0,0 +1,179 @@
+package com.nttdata.transactions.service;
+
+import com.nttdata.transactions.config.BackendClientProperties;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Deadline, circuit breaker and hedging of the reads sent to every downstream service.
+ */
+@Component
+public class BackendResilience {
+  public static final String ACCOUNT = "account";
+  public static final String CREDIT = "credit";
+  public static final String LATENCY = "transactions.backend.latency";
+  public static final String HEDGES = "transactions.backend.hedges";
+
+  private final Map<String, Downstream> downstreams;
+
+  /**
+   * Return the resilience of the downstream services.
+   *
+   * @param properties    Settings of every downstream service
+   * @param meterRegistry Registry of the circuit breaker, latency and hedge metrics
+   */
+  public BackendResilience(BackendClientProperties properties,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+    MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    this.downstreams = Map.of(
+        ACCOUNT, new Downstream(ACCOUNT, properties.getAccount(), circuitBreakers, registry),
+        CREDIT, new Downstream(CREDIT, properties.getCredit(), circuitBreakers, registry));
+    TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(registry);
+  }
+
+  /**
+   * Return the result of an idempotent read, it fails with CustomUnavailableException when the
+   * deadline of the downstream service is reached or its circuit is open.
+   *
+   * @param downstream Name of the downstream service
+   * @param read       Request sent to the downstream service, called once per attempt
+   */
+  public <T> Mono<T> read(String downstream, Supplier<Mono<T>> read) {
+    Downstream settings = downstreams.get(downstream);
+    Mono<T> mono = settings.pool.getHedge().isEnabled()
+        ? hedged(settings, read)
+        : attempt(settings, read);
+    mono = mono.timeout(settings.pool.getDeadline(), Mono.error(() ->
+        new CustomUnavailableException(unavailable(downstream) + " did not answer in time")));
+    if (settings.circuitBreaker != null) {
+      mono = mono
+          .transformDeferred(CircuitBreakerOperator.of(settings.circuitBreaker))
+          .onErrorMap(CallNotPermittedException.class, e ->
+              new CustomUnavailableException(unavailable(downstream) + " is unavailable", e));
+    }
+    return mono;
+  }
+
+  /**
+   * Return the elements of an idempotent read, they are collected before being emitted so a
+   * hedged read never mixes the elements of both attempts.
+   *
+   * @param downstream Name of the downstream service
+   * @param read       Request sent to the downstream service, called once per attempt
+   */
+  public <T> Flux<T> readMany(String downstream, Supplier<Flux<T>> read) {
+    return read(downstream, () -> read.get().collectList())
+        .flatMapMany(Flux::fromIterable);
+  }
+
+  private static <T> Mono<T> attempt(Downstream downstream, Supplier<Mono<T>> read) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start();
+      return read.get().doOnSuccess(x -> sample.stop(downstream.latency));
+    });
+  }
+
+  private static <T> Mono<T> hedged(Downstream downstream, Supplier<Mono<T>> read) {
+    return Mono.defer(() -> {
+      Mono<T> hedge = Mono.delay(downstream.hedgeDelay())
+          .doOnNext(x -> downstream.hedgesSent.increment())
+          .then(attempt(downstream, read))
+          .doOnSuccess(x -> downstream.hedgesWon.increment());
+      return Mono.firstWithSignal(attempt(downstream, read), hedge);
+    });
+  }
+
+  private static String unavailable(String downstream) {
+    return ACCOUNT.equals(downstream) ? "Account service" : "Credit service";
+  }
+
+  private static boolean isFailure(Throwable error) {
+    if (error instanceof CustomNotFoundException) {
+      return false;
+    }
+    return !(error instanceof WebClientResponseException)
+        || ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+  }
+
+  /**
+   * Circuit breaker and metrics of a downstream service.
+   */
+  private static final class Downstream {
+    private final BackendClientProperties.Pool pool;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer latency;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    private Downstream(String name, BackendClientProperties.Pool pool,
+                       CircuitBreakerRegistry circuitBreakers, MeterRegistry registry) {
+      this.pool = pool;
+      this.circuitBreaker = pool.getCircuitBreaker().isEnabled()
+          ? circuitBreakers.circuitBreaker(name, circuitBreakerConfig(pool.getCircuitBreaker()))
+          : null;
+      this.latency = Timer.builder(LATENCY)
+          .tag("downstream", name)
+          .publishPercentiles(pool.getHedge().getPercentile())
+          .distributionStatisticExpiry(Duration.ofMinutes(1))
+          .register(registry);
+      this.hedgesSent = Counter.builder(HEDGES)
+          .tag("downstream", name)
+          .tag("outcome", "sent")
+          .register(registry);
+      this.hedgesWon = Counter.builder(HEDGES)
+          .tag("downstream", name)
+          .tag("outcome", "won")
+          .register(registry);
+    }
+
+    private Duration hedgeDelay() {
+      double nanos = 0;
+      for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+        nanos = value.value(TimeUnit.NANOSECONDS);
+      }
+      Duration delay = Duration.ofNanos((long) nanos);
+      if (delay.compareTo(pool.getHedge().getMinDelay()) < 0) {
+        return pool.getHedge().getMinDelay();
+      }
+      if (delay.compareTo(pool.getHedge().getMaxDelay()) > 0) {
+        return pool.getHedge().getMaxDelay();
+      }
+      return delay;
+    }
+
+    private static CircuitBreakerConfig circuitBreakerConfig(
+        BackendClientProperties.CircuitBreaker settings) {
+      return CircuitBreakerConfig.custom()
+          .failureRateThreshold(settings.getFailureRateThreshold())
+          .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+          .slowCallDurationThreshold(settings.getSlowCallDuration())
+          .slidingWindowSize(settings.getSlidingWindowSize())
+          .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+          .waitDurationInOpenState(settings.getWaitDurationInOpenState())
+          .permittedNumberOfCallsInHalfOpenState(settings.getPermittedCallsInHalfOpenState())
+          .recordException(BackendResilience::isFailure)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.nttdata.transactions.service;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.utilities.Money;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import reactor.core.publisher.Mono;
+
+/**
+ * Balance outbox service interface.
+ */
+public interface BalanceOutboxService {
+  /**
+   * Add a balance change to a transaction before it is stored, the change is written with the
+   * transaction and sent once the transaction is stored.
+   */
+  void enqueue(Transaction transaction, Money amount);
+
+  /**
+   * Let the dispatcher know that transactions with balance changes were stored.
+   */
+  void wakeUp();
+
+  Mono<Long> drain();
+
+  /**
+   * Return the balance debits of every product that a balance read at the given time may not
+   * include yet, the debits still waiting to be sent and the ones sent around or after that
+   * time. The credits are not returned, so a balance with the debits added is never higher than
+   * the real one.
+   *
+   * @param collection Collection of the products
+   * @param idProducts Ids of the products
+   * @param readAt     Time the balances were read, or earlier
+   */
+  Mono<Map<String, Money>> unsettled(int collection, Collection<String> idProducts,
+                                     LocalDateTime readAt);
+
+  /**
+   * Close a delivery left failed for a manual review, once an operator checked with the service
+   * of its product whether it was applied. An applied delivery is settled like a sent one, one
+   * that was not applied is rejected; either way its debits stop holding the balance.
+   *
+   * @param delivery Id of the delivery, the Idempotency-Key it was sent with
+   * @param applied  Whether the service applied it
+   * @return Number of balance changes closed
+   */
+  Mono<Long> resolve(String delivery, boolean applied);
+}
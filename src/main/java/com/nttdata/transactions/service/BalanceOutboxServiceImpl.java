@@ -0,0 +1,455 @@
+package com.nttdata.transactions.service;
+
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.DONE;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.FAILED;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PENDING;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PROCESSING;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.REJECTED;
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.CREDIT;
+
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.model.BalanceChange;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionQueries;
+import com.nttdata.transactions.utilities.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Balance outbox service implementation. Every balance change is stored inside its transaction
+ * and a single dispatcher sends the pending changes to the account and credit services, retrying
+ * with an exponential backoff until they are accepted. The pending changes of the same product
+ * are added up into a delivery that is sent in one request, the id of the delivery goes as the
+ * Idempotency-Key of the request.
+ *
+ * <p>Applying a key once is a contract the account and credit services must honour, this
+ * service can not verify it. Only when transactions.outbox.idempotent-downstream declares it is
+ * a delivery whose outcome is unknown sent again; otherwise it is only sent again when the
+ * request never reached the service, and the rest are left failed for a manual review. A
+ * delivery the service answered with a client error was not applied and is rejected.
+ *
+ * <p>The failed deliveries are counted by transactions.outbox.failed and keep holding the
+ * balance of their product until an operator resolves them as applied or not applied.
+ */
+@Service
+public class BalanceOutboxServiceImpl implements BalanceOutboxService {
+  private static final Logger logger = LogManager.getLogger(BalanceOutboxServiceImpl.class);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final AccountService accountService;
+  private final CreditService creditService;
+  private final DistributionSummary coalesced;
+  private final Counter failed;
+  private final Sinks.Many<Long> wakeUp = Sinks.many().multicast().directBestEffort();
+  private Disposable dispatcher;
+
+  @Value("${transactions.outbox.enabled:true}")
+  private boolean enabled;
+
+  @Value("${transactions.outbox.poll-interval:1s}")
+  private Duration pollInterval;
+
+  @Value("${transactions.outbox.batch-size:100}")
+  private int batchSize;
+
+  @Value("${transactions.outbox.concurrency:8}")
+  private int concurrency;
+
+  @Value("${transactions.outbox.idempotent-downstream:false}")
+  private boolean idempotentDownstream;
+
+  @Value("${transactions.outbox.max-attempts:10}")
+  private int maxAttempts;
+
+  @Value("${transactions.outbox.backoff:500ms}")
+  private Duration backoff;
+
+  @Value("${transactions.outbox.max-backoff:5m}")
+  private Duration maxBackoff;
+
+  @Value("${transactions.outbox.lease:30s}")
+  private Duration lease;
+
+  @Value("${transactions.outbox.coalesce-window:20ms}")
+  private Duration coalesceWindow;
+
+  @Value("${transactions.outbox.coalesce-max:50}")
+  private int coalesceMax;
+
+  @Value("${transactions.outbox.retention:7d}")
+  private Duration retention;
+
+  @Value("${transactions.outbox.clock-skew:5s}")
+  private Duration clockSkew;
+
+  /**
+   * Return the outbox service.
+   *
+   * @param meterRegistry Registry of the coalesced and failed entries metrics
+   */
+  public BalanceOutboxServiceImpl(ReactiveMongoTemplate mongoTemplate,
+                                  AccountService accountService,
+                                  CreditService creditService,
+                                  MeterRegistry meterRegistry) {
+    this.mongoTemplate = mongoTemplate;
+    this.accountService = accountService;
+    this.creditService = creditService;
+    this.coalesced = DistributionSummary.builder("transactions.outbox.coalesced")
+        .description("Outbox entries sent in one balance request")
+        .baseUnit("entries")
+        .register(meterRegistry);
+    this.failed = Counter.builder("transactions.outbox.failed")
+        .description("Outbox entries left failed for a manual review")
+        .baseUnit("entries")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void enqueue(Transaction transaction, Money amount) {
+    BalanceChange balance = transaction.getBalance();
+    if (balance == null) {
+      transaction.setBalance(BalanceChange.pending(amount));
+    } else {
+      balance.setAmount(balance.getAmount().add(amount));
+    }
+  }
+
+  @Override
+  public void wakeUp() {
+    wakeUp.tryEmitNext(0L);
+  }
+
+  @Override
+  public Mono<Long> drain() {
+    return claim()
+        .flatMapMany(this::deliveries)
+        .flatMap(this::dispatch, concurrency)
+        .reduce(0L, Long::sum);
+  }
+
+  @Override
+  public Mono<Map<String, Money>> unsettled(int collection, Collection<String> idProducts,
+                                            LocalDateTime readAt) {
+    List<ObjectId> ids = idProducts.stream()
+        .map(ObjectId::new)
+        .collect(Collectors.toList());
+    Query query = TransactionQueries.unsettledBalanceDebits(ids, collection,
+        readAt.minus(clockSkew));
+    query.fields().include("idProduct").include("balance.amount");
+
+    return mongoTemplate.find(query, Transaction.class)
+        .reduceWith(LinkedHashMap<String, Money>::new, (amounts, transaction) -> {
+          amounts.merge(transaction.getIdProduct().toString(),
+              transaction.getBalance().getAmount(), Money::add);
+          return amounts;
+        })
+        .map(amounts -> {
+          idProducts.forEach(id -> amounts.putIfAbsent(id, Money.ZERO));
+          return amounts;
+        });
+  }
+
+  @Override
+  public Mono<Long> resolve(String delivery, boolean applied) {
+    if (!ObjectId.isValid(delivery)) {
+      return Mono.error(new CustomNotFoundException("Delivery " + delivery + " not found"));
+    }
+    Update update = applied
+        ? new Update().set("balance.status", DONE).set("balance.doneAt", LocalDateTime.now())
+        : new Update().set("balance.status", REJECTED);
+
+    return mongoTemplate.updateMulti(TransactionQueries.failedByDelivery(new ObjectId(delivery)),
+            update, Transaction.class)
+        .map(result -> result.getModifiedCount())
+        .filter(count -> count > 0)
+        .switchIfEmpty(Mono.error(() -> new CustomNotFoundException("Failed delivery "
+            + delivery + " not found")))
+        .doOnNext(count -> logger.info("Delivery {} resolved as {}", delivery,
+            applied ? "applied" : "not applied"));
+  }
+
+  /**
+   * Starts the dispatcher once the application is ready.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled || dispatcher != null) {
+      return;
+    }
+
+    // a wake up received while draining is kept once, the rest are covered by that drain
+    dispatcher = Flux.merge(Flux.interval(pollInterval), wakeUp.asFlux())
+        .onBackpressureDrop()
+        .concatMap(tick -> Mono.delay(coalesceWindow)
+            .then(drain())
+            .onErrorResume(e -> {
+              logger.error("The balance outbox could not be drained", e);
+              return Mono.just(0L);
+            }), 1)
+        .subscribe();
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (dispatcher != null) {
+      dispatcher.dispose();
+    }
+  }
+
+  /**
+   * Removes the balance changes sent before the retention, which only served to settle the
+   * balances read before they were sent.
+   */
+  @Scheduled(cron = "${transactions.outbox.cleanup-cron:0 15 * * * *}")
+  public void cleanup() {
+    mongoTemplate.updateMulti(TransactionQueries.sentBalanceChanges(LocalDateTime.now()
+            .minus(retention)), new Update().unset("balance"), Transaction.class)
+        .doOnNext(result -> logger.info("{} sent balance changes removed",
+            result.getModifiedCount()))
+        .doOnError(e -> logger.error("The sent balance changes could not be removed", e))
+        .onErrorResume(e -> Mono.empty())
+        .subscribe();
+  }
+
+  /**
+   * Return up to batch-size due changes, claimed in one update whatever their number. The update
+   * marks the ones still due with a new claim token, the rest were claimed by another drain in
+   * the meantime, and the claimed changes are read back by that token.
+   */
+  private Mono<List<Transaction>> claim() {
+    LocalDateTime now = LocalDateTime.now();
+    ObjectId claim = new ObjectId();
+    Query due = TransactionQueries.dueBalanceChanges(now).limit(batchSize);
+    due.fields().include("_id");
+    Update update = new Update()
+        .set("balance.status", PROCESSING)
+        .set("balance.lockedUntil", now.plus(lease))
+        .set("balance.claim", claim)
+        .inc("balance.attempts", 1);
+
+    return mongoTemplate.find(due, Transaction.class)
+        .map(Transaction::getId)
+        .collectList()
+        .filter(ids -> !ids.isEmpty())
+        .flatMap(ids -> mongoTemplate.updateMulti(TransactionQueries.dueBalanceChanges(ids, now),
+                update, Transaction.class)
+            .filter(result -> result.getModifiedCount() > 0)
+            .flatMap(result -> {
+              Query claimed = TransactionQueries.byClaim(ids, claim);
+              claimed.fields().include("collection").include("idProduct").include("balance");
+              return mongoTemplate.find(claimed, Transaction.class).collectList();
+            }))
+        .defaultIfEmpty(List.of());
+  }
+
+  /**
+   * Return the deliveries of the claimed changes. A change claimed again keeps the delivery it
+   * was sent with, the new ones of the same product are added up into new deliveries of at most
+   * coalesce-max changes.
+   */
+  private Flux<ObjectId> deliveries(List<Transaction> claimed) {
+    Map<String, List<Transaction>> products = new LinkedHashMap<>();
+    claimed.stream()
+        .filter(transaction -> transaction.getBalance().getDelivery() == null)
+        .forEach(transaction -> products
+            .computeIfAbsent(transaction.getCollection() + ":" + transaction.getIdProduct(),
+                key -> new ArrayList<>())
+            .add(transaction));
+
+    List<List<Transaction>> chunks = new ArrayList<>();
+    products.values().forEach(product -> {
+      for (int i = 0; i < product.size(); i += coalesceMax) {
+        chunks.add(product.subList(i, Math.min(i + coalesceMax, product.size())));
+      }
+    });
+
+    Flux<ObjectId> claimedAgain = Flux.fromIterable(claimed)
+        .map(transaction -> Optional.ofNullable(transaction.getBalance().getDelivery()))
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .distinct();
+    if (!idempotentDownstream) {
+      // its lease expired while it was sent, sending it again could apply it twice
+      claimedAgain = claimedAgain.concatMap(delivery -> abandon(delivery).then(Mono.empty()));
+    }
+
+    return claimedAgain.concatWith(Flux.fromIterable(chunks).concatMap(this::assign));
+  }
+
+  /**
+   * Return the id of a new delivery once it is stored in its changes. A change that got a
+   * delivery in the meantime keeps it and is not part of this one.
+   */
+  private Mono<ObjectId> assign(List<Transaction> changes) {
+    ObjectId delivery = new ObjectId();
+    List<ObjectId> ids = changes.stream()
+        .map(Transaction::getId)
+        .collect(Collectors.toList());
+    Query query = Query.query(Criteria.where("_id").in(ids)
+        .and("balance.delivery").exists(false));
+
+    return mongoTemplate.updateMulti(query, new Update().set("balance.delivery", delivery),
+            Transaction.class)
+        .thenReturn(delivery);
+  }
+
+  /**
+   * Return the number of changes of a delivery once it is sent, or scheduled again when it could
+   * not be sent. The delivery is read again, so it carries the same amount every time it is sent.
+   */
+  private Mono<Long> dispatch(ObjectId delivery) {
+    Query query = TransactionQueries.byDelivery(delivery);
+    query.fields().include("collection").include("idProduct").include("balance");
+
+    return mongoTemplate.find(query, Transaction.class)
+        .collectList()
+        .filter(changes -> changes.stream()
+            .anyMatch(change -> change.getBalance().getStatus() != DONE))
+        .flatMap(changes -> send(delivery, changes)
+            .doOnSuccess(x -> coalesced.record(changes.size()))
+            .then(Mono.defer(() -> complete(delivery)))
+            .onErrorResume(e -> retry(delivery, changes, e))
+            .thenReturn((long) changes.size()))
+        .defaultIfEmpty(0L);
+  }
+
+  private Mono<Void> send(ObjectId delivery, List<Transaction> changes) {
+    Transaction first = changes.get(0);
+    String id = first.getIdProduct().toString();
+    Money amount = changes.stream()
+        .map(change -> change.getBalance().getAmount())
+        .reduce(Money.ZERO, Money::add);
+    if (amount.signum() == 0) {
+      return Mono.empty();
+    } else if (first.getCollection() == CREDIT) {
+      return creditService.updateCredit(id, amount.toBigDecimal(), delivery.toString());
+    } else {
+      return accountService.updateAccount(id, amount.toBigDecimal(), delivery.toString());
+    }
+  }
+
+  private Mono<Void> complete(ObjectId delivery) {
+    Update update = new Update()
+        .set("balance.status", DONE)
+        .set("balance.doneAt", LocalDateTime.now())
+        .unset("balance.lockedUntil");
+
+    return mongoTemplate.updateMulti(TransactionQueries.byDelivery(delivery), update,
+        Transaction.class).then();
+  }
+
+  private Mono<Void> abandon(ObjectId delivery) {
+    logger.error("Delivery {} may have been applied and is not sent again, the downstream "
+        + "services are not declared idempotent", delivery);
+    Update update = new Update()
+        .set("balance.status", FAILED)
+        .set("balance.lastError", "The delivery may have been applied")
+        .unset("balance.lockedUntil");
+
+    return mongoTemplate.updateMulti(TransactionQueries.byDelivery(delivery), update,
+            Transaction.class)
+        .doOnNext(result -> failed.increment(result.getModifiedCount()))
+        .then();
+  }
+
+  private Mono<Void> retry(ObjectId delivery, List<Transaction> changes, Throwable error) {
+    Transaction first = changes.get(0);
+    int attempts = changes.stream()
+        .mapToInt(change -> change.getBalance().getAttempts())
+        .max()
+        .orElse(0);
+    Update update = new Update()
+        .set("balance.lastError", error.getMessage())
+        .unset("balance.lockedUntil");
+
+    if (rejected(error)) {
+      logger.error("The balance of product {} was not updated, delivery {} was rejected",
+          first.getIdProduct(), delivery, error);
+      update.set("balance.status", REJECTED);
+    } else if (!idempotentDownstream && !notSent(error)) {
+      logger.error("The balance of product {} may have been updated by delivery {}, it is not "
+          + "sent again because the downstream services are not declared idempotent",
+          first.getIdProduct(), delivery, error);
+      update.set("balance.status", FAILED);
+      failed.increment(changes.size());
+    } else if (attempts >= maxAttempts) {
+      logger.error("The balance of product {} could not be updated by delivery {} after {} "
+          + "attempts", first.getIdProduct(), delivery, attempts, error);
+      update.set("balance.status", FAILED);
+      failed.increment(changes.size());
+    } else {
+      logger.warn("The balance of product {} could not be updated by delivery {}, attempt {}: {}",
+          first.getIdProduct(), delivery, attempts, error.getMessage());
+      update.set("balance.status", PENDING)
+          .set("balance.nextAttemptAt", LocalDateTime.now().plus(backoff(attempts)));
+      if (!idempotentDownstream) {
+        // it was never received, so a delivery of the same product can take it again
+        update.unset("balance.delivery");
+      }
+    }
+
+    return mongoTemplate.updateMulti(TransactionQueries.byDelivery(delivery), update,
+        Transaction.class).then();
+  }
+
+  /**
+   * Return whether the service refused a request without applying it, it answered with a client
+   * error other than a timeout or a throttle, which are sent again.
+   */
+  private static boolean rejected(Throwable error) {
+    if (!(error instanceof WebClientResponseException)) {
+      return false;
+    }
+    HttpStatus status = ((WebClientResponseException) error).getStatusCode();
+    return status.is4xxClientError()
+        && status != HttpStatus.REQUEST_TIMEOUT
+        && status != HttpStatus.TOO_MANY_REQUESTS;
+  }
+
+  /**
+   * Return whether a failed request surely did not reach the service.
+   */
+  private static boolean notSent(Throwable error) {
+    if (error instanceof WebClientResponseException) {
+      HttpStatus status = ((WebClientResponseException) error).getStatusCode();
+      return status == HttpStatus.REQUEST_TIMEOUT || status == HttpStatus.TOO_MANY_REQUESTS;
+    }
+    return NestedExceptionUtils.getMostSpecificCause(error) instanceof ConnectException;
+  }
+
+  private Duration backoff(int attempts) {
+    Duration delay = backoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 30));
+    return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+  }
+}
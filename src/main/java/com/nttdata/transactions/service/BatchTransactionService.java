@@ -0,0 +1,12 @@
+package com.nttdata.transactions.service;
+
+import com.nttdata.transactions.dto.request.BatchOperationRequest;
+import com.nttdata.transactions.dto.response.BatchOperationResponse;
+import reactor.core.publisher.Flux;
+
+/**
+ * Batch transaction service interface.
+ */
+public interface BatchTransactionService {
+  Flux<BatchOperationResponse> process(Flux<BatchOperationRequest> operations);
+}
@@ -0,0 +1,261 @@
+package com.nttdata.transactions.service;
+
+import static com.nttdata.transactions.utilities.Commissions.getCommission;
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+
+import com.nttdata.transactions.dto.request.BatchOperationRequest;
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.BatchOperationResponse;
+import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.utilities.Money;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+/**
+ * Batch transaction service implementation. The operations of an account are applied in the
+ * order they were received, while a bounded number of accounts are processed in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchTransactionServiceImpl implements BatchTransactionService {
+  private static final Logger logger = LogManager.getLogger(BatchTransactionServiceImpl.class);
+  private static final String SUCCESS_MESSAGE = "Successful transaction";
+
+  private final TransactionRepository transactionRepository;
+  private final AccountService accountService;
+  private final BalanceOutboxService balanceOutboxService;
+  private final ProductLanes lanes;
+
+  @Value("${transactions.batch.size:100}")
+  private int batchSize;
+
+  @Value("${transactions.batch.max-wait:50ms}")
+  private Duration maxWait;
+
+  @Value("${transactions.batch.concurrency:16}")
+  private int concurrency;
+
+  @Override
+  public Flux<BatchOperationResponse> process(Flux<BatchOperationRequest> operations) {
+    // the accounts are spread over a fixed number of partitions that stay open until the input
+    // completes, every partition processes its operations in order
+    return operations
+        .index()
+        .groupBy(operation -> Math.floorMod(
+            StringUtils.defaultString(operation.getT2().getAccountNumber()).hashCode(),
+            concurrency))
+        .flatMap(this::processPartition, concurrency);
+  }
+
+  private Flux<BatchOperationResponse> processPartition(
+      GroupedFlux<Integer, Tuple2<Long, BatchOperationRequest>> operations) {
+    // the timer of bufferTimeout flushes a chunk even when it was not requested, so the chunks
+    // wait in a buffer while the lane of the previous one is slow
+    return operations
+        .bufferTimeout(batchSize, maxWait)
+        .onBackpressureBuffer()
+        .concatMap(chunk -> Flux.fromIterable(chunk.stream()
+                .collect(Collectors.groupingBy(
+                    operation -> StringUtils.defaultString(operation.getT2().getAccountNumber()),
+                    LinkedHashMap::new, Collectors.toList()))
+                .entrySet())
+            .concatMap(account -> processAccount(account.getKey(), account.getValue())));
+  }
+
+  /**
+   * Process a chunk of the operations of an account. The chunk runs in the lane of the account,
+   * like the single withdrawals, and plans its operations over the balance read in the lane
+   * with the debits not yet sent subtracted.
+   */
+  private Flux<BatchOperationResponse> processAccount(
+      String accountNumber, List<Tuple2<Long, BatchOperationRequest>> chunk) {
+    return findAccount(accountNumber)
+        .flatMap(account -> lanes.run(account.getId(), () -> findAccountState(accountNumber)
+            .flatMap(state -> write(chunk.stream()
+                .map(operation -> state.plan(operation.getT1(), operation.getT2()))
+                .collect(Collectors.toList())))))
+        .onErrorResume(e -> Mono.just(chunk.stream()
+            .map(operation -> PlannedOperation
+                .failed(operation.getT1(), accountNumber, e.getMessage()).toResponse())
+            .collect(Collectors.toList())))
+        .flatMapIterable(responses -> responses);
+  }
+
+  private Mono<AccountResponse> findAccount(String accountNumber) {
+    if (StringUtils.isBlank(accountNumber)) {
+      return Mono.error(new CustomInformationException("Field accountNumber must be required"));
+    }
+
+    return accountService.findAccount(accountNumber)
+        .switchIfEmpty(Mono.error(new CustomNotFoundException("Account " + accountNumber
+            + " not found")));
+  }
+
+  private Mono<AccountState> findAccountState(String accountNumber) {
+    LocalDateTime readAt = LocalDateTime.now();
+    return accountService.findAccountForDebit(accountNumber)
+        .switchIfEmpty(Mono.error(new CustomNotFoundException("Account " + accountNumber
+            + " not found")))
+        .flatMap(account -> Mono.zip(
+                balanceOutboxService.unsettled(ACCOUNT, List.of(account.getId()), readAt),
+                transactionRepository.countByIdProductAndCollection(account.getId(), ACCOUNT))
+            .map(state -> new AccountState(account, state.getT2(),
+                state.getT1().getOrDefault(account.getId(), Money.ZERO))));
+  }
+
+  /**
+   * Return the results of a chunk once its transactions are inserted. The ids are given before
+   * the insert, so when it fails part of the way the stored transactions are looked up and
+   * every line reports what was actually written.
+   */
+  private Mono<List<BatchOperationResponse>> write(List<PlannedOperation> batch) {
+    List<PlannedOperation> planned = batch.stream()
+        .filter(operation -> operation.getTransaction() != null)
+        .collect(Collectors.toList());
+    if (planned.isEmpty()) {
+      return Mono.just(responses(batch, Set.of()));
+    }
+
+    String accountNumber = planned.get(0).getAccountNumber();
+    planned.forEach(operation -> {
+      operation.getTransaction().setId(new ObjectId());
+      balanceOutboxService.enqueue(operation.getTransaction(), operation.getDelta());
+    });
+    List<Transaction> transactions = planned.stream()
+        .map(PlannedOperation::getTransaction)
+        .collect(Collectors.toList());
+    Set<ObjectId> ids = transactions.stream()
+        .map(Transaction::getId)
+        .collect(Collectors.toSet());
+
+    return transactionRepository.insert(transactions)
+        .then(Mono.just(ids))
+        .onErrorResume(e -> {
+          logger.error("The batch of account {} could not be stored", accountNumber, e);
+          return transactionRepository.findAllById(ids)
+              .map(Transaction::getId)
+              .collect(Collectors.toSet());
+        })
+        .flatMap(stored -> {
+          logger.info("Created {} of {} transactions for account {}", stored.size(),
+              transactions.size(), accountNumber);
+          if (!stored.isEmpty()) {
+            balanceOutboxService.wakeUp();
+          }
+          return Mono.just(responses(batch, stored));
+        })
+        .onErrorResume(e -> {
+          logger.error("The stored transactions of account {} could not be read", accountNumber,
+              e);
+          return Mono.just(batch.stream()
+              .map(operation -> operation.getTransaction() == null
+                  ? operation.toResponse()
+                  : new BatchOperationResponse(operation.getIndex(), operation.getAccountNumber(),
+                  false, "The result of the transaction is unknown"))
+              .collect(Collectors.toList()));
+        });
+  }
+
+  private static List<BatchOperationResponse> responses(List<PlannedOperation> batch,
+                                                        Set<ObjectId> stored) {
+    return batch.stream()
+        .map(operation -> operation.getTransaction() == null
+            || stored.contains(operation.getTransaction().getId())
+            ? operation.toResponse()
+            : new BatchOperationResponse(operation.getIndex(), operation.getAccountNumber(),
+            false, "The transaction could not be stored"))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Balance and monthly transactions of an account while a chunk of its batch is planned.
+   */
+  private static final class AccountState {
+    private final AccountResponse account;
+    private long count;
+    private Money balance;
+
+    private AccountState(AccountResponse account, long count, Money unsettled) {
+      this.account = account;
+      this.count = count;
+      this.balance = Money.rounded(account.getBalance())
+          .add(unsettled.signum() < 0 ? unsettled : Money.ZERO);
+    }
+
+    private PlannedOperation plan(long index, BatchOperationRequest request) {
+      if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ONE) < 0) {
+        return PlannedOperation.failed(index, account.getNumber(),
+            "The minimum amount must be 1");
+      }
+      if (!Money.isValid(request.getAmount())) {
+        return PlannedOperation.failed(index, account.getNumber(),
+            "Field amount must have at most " + Money.SCALE + " decimals");
+      }
+      if (request.getType() != ENTRY && request.getType() != EXIT) {
+        return PlannedOperation.failed(index, account.getNumber(),
+            "Field type must be " + ENTRY + " (entry) or " + EXIT + " (exit)");
+      }
+      Money amount = Money.of(request.getAmount());
+      if (request.getType() == EXIT && balance.isLessThan(amount)) {
+        return PlannedOperation.failed(index, account.getNumber(),
+            "You do not have a balance to carry out this transaction");
+      }
+
+      String description = StringUtils.isBlank(request.getDescription())
+          ? (request.getType() == ENTRY ? "Ingreso en efectivo" : "Retiro de efectivo")
+          : request.getDescription();
+      Money commission = getCommission(count, account);
+      Transaction transaction = new Transaction(ACCOUNT, account.getId(), description,
+          request.getType(), request.getAmount(), commission.toBigDecimal());
+      Money delta = (request.getType() == ENTRY ? amount : amount.negate())
+          .subtract(commission);
+
+      balance = balance.add(delta);
+      count++;
+      return new PlannedOperation(index, account.getNumber(), transaction, delta, null);
+    }
+  }
+
+  /**
+   * Operation of a batch already validated, transaction is null when it was rejected.
+   */
+  @lombok.Value
+  private static class PlannedOperation {
+    long index;
+    String accountNumber;
+    Transaction transaction;
+    Money delta;
+    String error;
+
+    private static PlannedOperation failed(long index, String accountNumber, String error) {
+      return new PlannedOperation(index, accountNumber, null, Money.ZERO, error);
+    }
+
+    private BatchOperationResponse toResponse() {
+      return transaction == null
+          ? new BatchOperationResponse(index, accountNumber, false, error)
+          : new BatchOperationResponse(index, accountNumber, true, SUCCESS_MESSAGE);
+    }
+  }
+}
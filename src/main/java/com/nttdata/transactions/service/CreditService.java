@@ -10,5 +10,12 @@ import reactor.core.publisher.Mono;
 public interface CreditService {
   Mono<CreditResponse> findCredit(String number);
 
-  void updateCredit(String id, BigDecimal amount);
+  /**
+   * Add an amount to the balance of a credit.
+   *
+   * @param idempotencyKey Key of the change. Applying a key once is a contract the credit
+   *                       service must honour, declared by
+   *                       transactions.outbox.idempotent-downstream
+   */
+  Mono<Void> updateCredit(String id, BigDecimal amount, String idempotencyKey);
 }
@@ -1,9 +1,11 @@
 package com.nttdata.transactions.service;
 
+import static com.nttdata.transactions.service.BackendResilience.CREDIT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 import com.nttdata.transactions.dto.response.CreditResponse;
 import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.utilities.TransactionMetrics;
 import java.math.BigDecimal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -17,33 +19,39 @@ import reactor.core.publisher.Mono;
  */
 @Service
 public class CreditServiceImpl implements CreditService {
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
   @Value("${backend.service.credit}")
   private String urlCredit;
 
   @Autowired
-  @Qualifier("wcLoadBalanced")
-  private WebClient.Builder webClient;
+  @Qualifier("creditWebClient")
+  private WebClient webClient;
+
+  @Autowired
+  private TransactionMetrics metrics;
+
+  @Autowired
+  private BackendResilience resilience;
 
   @Override
   public Mono<CreditResponse> findCredit(String number) {
-    return webClient
-        .build()
+    return metrics.stage("credit_lookup", resilience.read(CREDIT, () -> webClient
         .get()
         .uri(urlCredit + "/number/{number}", number)
         .retrieve()
         .onStatus(NOT_FOUND::equals, response -> Mono
             .error(new CustomNotFoundException("Credit " + number + " not found")))
-        .bodyToMono(CreditResponse.class);
+        .bodyToMono(CreditResponse.class)));
   }
 
   @Override
-  public void updateCredit(String id, BigDecimal amount) {
-    webClient
-        .build()
+  public Mono<Void> updateCredit(String id, BigDecimal amount, String idempotencyKey) {
+    return metrics.stage("credit_update", webClient
         .put()
         .uri(urlCredit + "/balance/{id}/amount/{amount}", id, amount)
+        .header(IDEMPOTENCY_KEY, idempotencyKey)
         .retrieve()
-        .bodyToMono(Void.class)
-        .subscribe();
+        .bodyToMono(Void.class));
   }
 }
@@ -0,0 +1,13 @@
+package com.nttdata.transactions.service;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Idempotency service interface.
+ */
+public interface IdempotencyService {
+  <T> Mono<T> execute(String key, String request, Supplier<Mono<T>> operation,
+                      Predicate<Throwable> rejected);
+}
@@ -0,0 +1,269 @@
+package com.nttdata.transactions.service;
+
+import static com.nttdata.transactions.utilities.Constants.IdempotencyStatus.COMPLETED;
+import static com.nttdata.transactions.utilities.Constants.IdempotencyStatus.FAILED;
+import static com.nttdata.transactions.utilities.Constants.IdempotencyStatus.IN_PROGRESS;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.model.IdempotencyRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Idempotency service implementation. The first request of a key claims it in Mongo and runs,
+ * the rest wait for its result. Concurrent requests of the same instance share the execution
+ * through the near cache, which also keeps the recent results. A request rejected before it
+ * stored anything releases its key, any other failure may have stored part of the request, so
+ * the key keeps it.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+  private static final Logger logger = LogManager.getLogger(IdempotencyServiceImpl.class);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final boolean enabled;
+  private final Duration lease;
+  private final Duration waitTimeout;
+  private final Duration pollInterval;
+  private final AsyncCache<String, IdempotencyRecord> records;
+
+  /**
+   * Return the idempotency service.
+   *
+   * @param mongoTemplate Template of the idempotency_keys collection
+   * @param enabled       Whether the Idempotency-Key header is honored
+   * @param ttl           Time a result is kept in the near cache and in Mongo
+   * @param maxSize       Maximum number of results in the near cache
+   * @param lease         Time after which a request that stopped renewing it can be run again
+   * @param waitTimeout   Maximum time a duplicate waits for the first request
+   * @param pollInterval  Time between the reads of a duplicate that waits
+   * @param meterRegistry Registry of the near cache metrics
+   */
+  public IdempotencyServiceImpl(ReactiveMongoTemplate mongoTemplate,
+                                @Value("${transactions.idempotency.enabled:true}")
+                                    boolean enabled,
+                                @Value("${transactions.idempotency.ttl:10m}") Duration ttl,
+                                @Value("${transactions.idempotency.max-size:10000}")
+                                    long maxSize,
+                                @Value("${transactions.idempotency.lease:30s}") Duration lease,
+                                @Value("${transactions.idempotency.wait-timeout:10s}")
+                                    Duration waitTimeout,
+                                @Value("${transactions.idempotency.poll-interval:50ms}")
+                                    Duration pollInterval,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
+    this.mongoTemplate = mongoTemplate;
+    this.enabled = enabled;
+    this.lease = lease;
+    this.waitTimeout = waitTimeout;
+    this.pollInterval = pollInterval;
+    this.records = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .buildAsync();
+    meterRegistry.ifAvailable(registry ->
+        CaffeineCacheMetrics.monitor(registry, records.synchronous(), "idempotency_keys"));
+  }
+
+  /**
+   * Return the result of the operation, run only by the first request of the key.
+   *
+   * @param key       Idempotency-Key of the request, blank to always run the operation
+   * @param request   Description of the request, the key can not be used by another one
+   * @param operation Operation of the request
+   * @param rejected  Whether an error of the operation proves it stored nothing, the key is then
+   *                  released for a retry
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Mono<T> execute(String key, String request, Supplier<Mono<T>> operation,
+                             Predicate<Throwable> rejected) {
+    if (!enabled || StringUtils.isBlank(key)) {
+      return operation.get();
+    }
+
+    Execution<T> execution = new Execution<>(operation, rejected,
+        LocalDateTime.now().plus(waitTimeout));
+    return Mono
+        .fromFuture(() -> records.get(key, (k, executor) -> claim(k, request, execution)
+            .toFuture()))
+        .flatMap(record -> {
+          if (!request.equals(record.getRequest())) {
+            return Mono.error(new CustomInformationException("Idempotency-Key " + key
+                + " was used by another request"));
+          }
+          if (record.getStatus() == FAILED) {
+            return Mono.error(new CustomInformationException("The request with Idempotency-Key "
+                + key + " failed and may have stored part of its transactions: "
+                + record.getResponse()));
+          }
+          return Mono.justOrEmpty((T) record.getResponse());
+        });
+  }
+
+  private <T> Mono<IdempotencyRecord> claim(String key, String request,
+                                            Execution<T> execution) {
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    IdempotencyRecord record = new IdempotencyRecord(key, request, IN_PROGRESS, null, now,
+        now.plus(lease));
+
+    return mongoTemplate.insert(record)
+        .flatMap(claimed -> run(claimed, execution))
+        .onErrorResume(DuplicateKeyException.class, e -> await(key, request, execution));
+  }
+
+  private <T> Mono<IdempotencyRecord> await(String key, String request,
+                                            Execution<T> execution) {
+    return mongoTemplate.findById(key, IdempotencyRecord.class)
+        .flatMap(record -> {
+          if (record.getStatus() != IN_PROGRESS || !request.equals(record.getRequest())) {
+            return Mono.just(record);
+          }
+
+          LocalDateTime now = LocalDateTime.now();
+          if (record.getLockedUntil() == null || record.getLockedUntil().isBefore(now)) {
+            return takeOver(record, execution);
+          }
+          if (now.isAfter(execution.getDeadline())) {
+            return Mono.error(new CustomInformationException("A request with Idempotency-Key "
+                + key + " is in progress"));
+          }
+          return Mono.delay(pollInterval)
+              .then(Mono.defer(() -> await(key, request, execution)));
+        })
+        .switchIfEmpty(Mono.defer(() -> claim(key, request, execution)));
+  }
+
+  /**
+   * Run again a request whose instance did not finish it before its lease expired.
+   */
+  private <T> Mono<IdempotencyRecord> takeOver(IdempotencyRecord record,
+                                               Execution<T> execution) {
+    Query query = new Query(where("_id").is(record.getId())
+        .and("status").is(IN_PROGRESS)
+        .and("lockedUntil").is(record.getLockedUntil()));
+    Update update = new Update().set("lockedUntil",
+        LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS).plus(lease));
+
+    return mongoTemplate
+        .findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+            IdempotencyRecord.class)
+        .flatMap(claimed -> run(claimed, execution))
+        .switchIfEmpty(Mono.defer(() -> await(record.getId(), record.getRequest(), execution)));
+  }
+
+  private <T> Mono<IdempotencyRecord> run(IdempotencyRecord record, Execution<T> execution) {
+    return Mono
+        .defer(() -> {
+          Disposable renewal = renew(record);
+          return execution.getOperation().get()
+              .doFinally(signal -> renewal.dispose());
+        })
+        .map(Optional::<Object>of)
+        .defaultIfEmpty(Optional.empty())
+        .onErrorResume(e -> (execution.getRejected().test(e) ? release(record) : fail(record, e))
+            .then(Mono.error(e)))
+        .flatMap(response -> {
+          record.setStatus(COMPLETED);
+          record.setResponse(response.orElse(null));
+          record.setLockedUntil(null);
+          // the operation is done, a failure here must not make the client retry it
+          return mongoTemplate.save(record)
+              .onErrorResume(e -> {
+                logger.error("The result of Idempotency-Key {} could not be stored",
+                    record.getId(), e);
+                return Mono.just(record);
+              });
+        });
+  }
+
+  /**
+   * Extend the lease of the record while its request runs, so a request that waits for its lane
+   * is not taken over by a retry.
+   */
+  private Disposable renew(IdempotencyRecord record) {
+    return Flux.interval(lease.dividedBy(3))
+        .concatMap(tick -> {
+          LocalDateTime lockedUntil = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS)
+              .plus(lease);
+          Query query = new Query(where("_id").is(record.getId())
+              .and("status").is(IN_PROGRESS)
+              .and("lockedUntil").is(record.getLockedUntil()));
+          return mongoTemplate
+              .updateFirst(query, new Update().set("lockedUntil", lockedUntil),
+                  IdempotencyRecord.class)
+              .doOnNext(result -> {
+                if (result.getModifiedCount() > 0) {
+                  record.setLockedUntil(lockedUntil);
+                }
+              })
+              .onErrorResume(e -> {
+                logger.warn("The lease of Idempotency-Key {} could not be renewed: {}",
+                    record.getId(), e.getMessage());
+                return Mono.empty();
+              });
+        })
+        .subscribe();
+  }
+
+  /**
+   * Remove the record of a request that failed before storing anything, so it can be retried.
+   */
+  private Mono<Void> release(IdempotencyRecord record) {
+    return mongoTemplate
+        .remove(new Query(where("_id").is(record.getId()).and("status").is(IN_PROGRESS)),
+            IdempotencyRecord.class)
+        .onErrorResume(e -> Mono.empty())
+        .then();
+  }
+
+  /**
+   * Keep the failure of a request that may have stored a write, a retry gets the failure instead
+   * of storing the write again.
+   */
+  private Mono<Void> fail(IdempotencyRecord record, Throwable error) {
+    record.setStatus(FAILED);
+    record.setResponse(error.getMessage());
+    record.setLockedUntil(null);
+    return mongoTemplate.save(record)
+        .onErrorResume(e -> {
+          logger.error("The failure of Idempotency-Key {} could not be stored", record.getId(),
+              e);
+          return Mono.empty();
+        })
+        .then();
+  }
+
+  /**
+   * Operation of the first request of a key, with the time its duplicates wait until.
+   */
+  @lombok.Value
+  private static class Execution<T> {
+    Supplier<Mono<T>> operation;
+    Predicate<Throwable> rejected;
+    LocalDateTime deadline;
+  }
+}
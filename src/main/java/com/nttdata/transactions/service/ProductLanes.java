@@ -0,0 +1,202 @@
+package com.nttdata.transactions.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Ordered lanes of the operations of the products on this instance. The key of an operation
+ * picks one of a fixed number of lanes, a lane runs its operations one at a time in the order
+ * they were submitted and different lanes run in parallel. Nothing is blocked while an operation
+ * waits for its turn.
+ *
+ * <p>The lanes live in memory, so the operations of a product sent to other instances of the
+ * service run at the same time as these. They only spare the balance checks of one instance from
+ * racing each other; the balance check of the account service, when the change is applied, is
+ * what keeps an account from being overdrawn.
+ */
+@Component
+public class ProductLanes {
+  public static final String PENDING = "transactions.lanes.pending";
+  public static final String DEPTH = "transactions.lanes.depth";
+
+  private final boolean enabled;
+  private final Lane[] lanes;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final DistributionSummary depth;
+
+  /**
+   * Return the lanes of the products.
+   *
+   * @param enabled       Whether the operations of a product on this instance are serialized
+   * @param stripes       Number of lanes, rounded up to a power of two
+   * @param meterRegistry Registry of the pending operations and lane depth metrics
+   */
+  public ProductLanes(@Value("${transactions.lanes.enabled:true}") boolean enabled,
+                      @Value("${transactions.lanes.stripes:1024}") int stripes,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+    this.enabled = enabled;
+    this.lanes = new Lane[Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1)];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new Lane();
+    }
+
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry == null) {
+      this.depth = null;
+      return;
+    }
+    Gauge.builder(PENDING, pending, AtomicInteger::get)
+        .description("Operations waiting for their lane")
+        .register(registry);
+    this.depth = DistributionSummary.builder(DEPTH)
+        .description("Operations in the lane when an operation is submitted")
+        .baseUnit("operations")
+        .register(registry);
+  }
+
+  /**
+   * Return the result of the operation, it starts once the previous operations of its lane have
+   * finished.
+   *
+   * @param key       Id of the product
+   * @param operation Operation, called when its turn comes
+   */
+  public <T> Mono<T> run(String key, Supplier<Mono<T>> operation) {
+    if (!enabled) {
+      return Mono.defer(operation);
+    }
+    return Mono.create(sink -> lanes[index(key)].submit(new Task<>(operation, sink)));
+  }
+
+  /**
+   * Return the result of an operation over many products, it runs once it holds the lane of every
+   * product. The lanes are taken in ascending order, so two operations never wait on each other.
+   *
+   * @param keys      Ids of the products
+   * @param operation Operation, called when its turn comes
+   */
+  public <T> Mono<T> run(Collection<String> keys, Supplier<Mono<T>> operation) {
+    if (!enabled) {
+      return Mono.defer(operation);
+    }
+    int[] indexes = keys.stream()
+        .mapToInt(this::index)
+        .distinct()
+        .sorted()
+        .toArray();
+    Supplier<Mono<T>> nested = operation;
+    for (int i = indexes.length - 1; i >= 0; i--) {
+      Lane lane = lanes[indexes[i]];
+      Supplier<Mono<T>> inner = nested;
+      nested = () -> Mono.create(sink -> lane.submit(new Task<>(inner, sink)));
+    }
+    return Mono.defer(nested);
+  }
+
+  private int index(String key) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (lanes.length - 1);
+  }
+
+  /**
+   * Queue of the operations of a lane. Only the thread that takes the lane from idle runs the
+   * drain loop, the operations that finish synchronously are picked up by the same loop.
+   */
+  private final class Lane {
+    private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean active;
+
+    private void submit(Task<?> task) {
+      int queued = size.incrementAndGet();
+      if (depth != null) {
+        depth.record(queued);
+      }
+      pending.incrementAndGet();
+      queue.offer(task);
+      drain();
+    }
+
+    private void done() {
+      size.decrementAndGet();
+      active = false;
+      drain();
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        if (!active) {
+          Task<?> task = queue.poll();
+          if (task != null) {
+            pending.decrementAndGet();
+            active = true;
+            task.start(this);
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+
+  /**
+   * Operation waiting in a lane and the subscriber of its result.
+   */
+  private static final class Task<T> {
+    private final Supplier<Mono<T>> operation;
+    private final MonoSink<T> sink;
+    private volatile boolean cancelled;
+    private volatile Disposable subscription;
+
+    private Task(Supplier<Mono<T>> operation, MonoSink<T> sink) {
+      this.operation = operation;
+      this.sink = sink;
+      sink.onCancel(() -> {
+        cancelled = true;
+        Disposable current = subscription;
+        if (current != null) {
+          current.dispose();
+        }
+      });
+    }
+
+    private void start(Lane lane) {
+      if (cancelled) {
+        lane.done();
+        return;
+      }
+
+      Mono<T> mono;
+      try {
+        mono = operation.get();
+      } catch (RuntimeException e) {
+        sink.error(e);
+        lane.done();
+        return;
+      }
+      subscription = mono
+          .doFinally(signal -> lane.done())
+          .contextWrite(sink.currentContext())
+          .subscribe(sink::success, sink::error, sink::success);
+      if (cancelled) {
+        subscription.dispose();
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.nttdata.transactions.service;
+
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.FAILED;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PENDING;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PROCESSING;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionTiers;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Moves the transactions older than the archive age from the transactions collection to the
+ * archive, oldest first and in bounded batches so a run never holds the collection for long.
+ * A batch is inserted into the archive before it is removed from the transactions collection
+ * and the ones already archived are skipped, so an interrupted run loses nothing.
+ */
+@Component
+public class TransactionArchiver {
+  private static final Logger logger = LogManager.getLogger(TransactionArchiver.class);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionTiers tiers;
+  private final int batchSize;
+  private final int maxBatches;
+
+  /**
+   * Return the archiver of the transactions.
+   *
+   * @param batchSize  Transactions moved at a time
+   * @param maxBatches Batches moved by a run, the rest is left for the next one
+   */
+  public TransactionArchiver(ReactiveMongoTemplate mongoTemplate,
+                             TransactionTiers tiers,
+                             @Value("${transactions.archive.batch-size:500}") int batchSize,
+                             @Value("${transactions.archive.max-batches:100}") int maxBatches) {
+    this.mongoTemplate = mongoTemplate;
+    this.tiers = tiers;
+    this.batchSize = batchSize;
+    this.maxBatches = maxBatches;
+  }
+
+  @Scheduled(cron = "${transactions.archive.cron:-}")
+  public void archiveScheduled() {
+    archive().subscribe();
+  }
+
+  /**
+   * Return a mono with the number of archived transactions once the run has finished.
+   */
+  public Mono<Long> archive() {
+    if (!tiers.isEnabled()) {
+      return Mono.just(0L);
+    }
+    long start = System.currentTimeMillis();
+    LocalDateTime horizon = tiers.horizon();
+    return Mono.defer(() -> moveBatch(horizon))
+        .repeat(Math.max(maxBatches, 1) - 1L)
+        .takeWhile(moved -> moved > 0)
+        .reduce(0L, Long::sum)
+        .doOnSuccess(moved -> logger.info("{} transactions archived in {} ms", moved,
+            System.currentTimeMillis() - start))
+        .doOnError(e -> logger.error("The transactions could not be archived", e))
+        .onErrorResume(e -> Mono.empty());
+  }
+
+  /**
+   * Return a mono with the number of transactions moved by a batch. The oldest transactions are
+   * found by id, which carries their creation time, so the id index serves the batch. The ones
+   * whose balance change was not sent stay where the outbox finds them, and the archived ones
+   * do not keep the change.
+   */
+  private Mono<Long> moveBatch(LocalDateTime horizon) {
+    String hot = mongoTemplate.getCollectionName(Transaction.class);
+    String archive = tiers.getCollection();
+    ObjectId firstKept = ObjectId.getSmallestWithDate(
+        Date.from(horizon.atZone(ZoneId.systemDefault()).toInstant()));
+    Query oldest = new Query(where("_id").lt(firstKept).and("date").lt(horizon)
+        .and("balance.status").nin(PENDING, PROCESSING, FAILED))
+        .with(Sort.by(Sort.Direction.ASC, "_id"))
+        .limit(batchSize);
+    oldest.fields().exclude("balance");
+    return mongoTemplate.find(oldest, Document.class, hot)
+        .collectList()
+        .flatMap(batch -> batch.isEmpty()
+            ? Mono.just(0L)
+            : archived(batch, archive)
+                .map(archived -> batch.stream()
+                    .filter(transaction -> !archived.contains(transaction.get("_id")))
+                    .collect(Collectors.toList()))
+                .filter(pending -> !pending.isEmpty())
+                .flatMap(pending -> mongoTemplate.insert(pending, archive).then())
+                .then(mongoTemplate.remove(new Query(where("_id").in(ids(batch))), hot))
+                .thenReturn((long) batch.size()));
+  }
+
+  private Mono<Set<Object>> archived(List<Document> batch, String archive) {
+    Query query = new Query(where("_id").in(ids(batch)));
+    query.fields().include("_id");
+    return mongoTemplate.find(query, Document.class, archive)
+        .map(transaction -> transaction.get("_id"))
+        .collect(Collectors.toSet());
+  }
+
+  private static List<Object> ids(List<Document> batch) {
+    return batch.stream()
+        .map(transaction -> transaction.get("_id"))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,53 @@
+package com.nttdata.transactions.service;
+
+import com.nttdata.transactions.repository.TransactionCounterRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rebuilds the monthly transaction counters from the transactions collection.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionCounterReconciler {
+  private static final Logger logger = LogManager.getLogger(TransactionCounterReconciler.class);
+
+  private final TransactionCounterRepository counterRepository;
+
+  @Value("${transactions.counters.reconcile-on-startup:false}")
+  private boolean reconcileOnStartup;
+
+  /**
+   * Rebuild the counters when the application starts, only if it is enabled.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void reconcileOnStartup() {
+    if (reconcileOnStartup) {
+      reconcile().subscribe();
+    }
+  }
+
+  @Scheduled(cron = "${transactions.counters.reconcile-cron:-}")
+  public void reconcileScheduled() {
+    reconcile().subscribe();
+  }
+
+  /**
+   * Return a mono that completes when every counter has been rebuilt.
+   */
+  public Mono<Void> reconcile() {
+    long start = System.currentTimeMillis();
+    return counterRepository.rebuild()
+        .doOnSuccess(x -> logger.info("Transaction counters rebuilt in {} ms",
+            System.currentTimeMillis() - start))
+        .doOnError(e -> logger.error("Transaction counters could not be rebuilt", e))
+        .onErrorResume(e -> Mono.empty());
+  }
+}
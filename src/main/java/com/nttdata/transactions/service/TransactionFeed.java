@@ -0,0 +1,241 @@
+package com.nttdata.transactions.service;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionCursor;
+import com.nttdata.transactions.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+/**
+ * Feed of the new transactions of every product. A single change stream over the transactions
+ * collection is open while someone watches, its inserts are routed in memory to the watchers of
+ * their product. It starts at the cluster time read before the first watcher registered, and
+ * every replay starts after its watcher registered, so an insert stored while a replay runs is
+ * delivered by the replay, the change stream or both, never by neither. The change stream is
+ * opened again after a transient error, any other error closes the watches.
+ */
+@Component
+public class TransactionFeed {
+  public static final String WATCHERS = "transactions.feed.watchers";
+
+  private static final Logger logger = LogManager.getLogger(TransactionFeed.class);
+  private static final String RESUMABLE = "ResumableChangeStreamError";
+  private static final Duration DEDUPLICATION_WINDOW = Duration.ofMinutes(1);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionRepository transactionRepository;
+  private final int bufferSize;
+  private final Duration retryBackoff;
+  private final Duration maxRetryBackoff;
+  private final Map<ObjectId, Set<Sinks.Many<Transaction>>> watchers = new ConcurrentHashMap<>();
+  private final AtomicInteger watching = new AtomicInteger();
+  private Disposable changeStream;
+  private volatile BsonValue resumeToken;
+  private volatile BsonTimestamp startAt;
+
+  /**
+   * Return the feed of the transactions.
+   *
+   * @param bufferSize      Transactions kept for a watcher that reads slower than they arrive
+   * @param retryBackoff    First wait before the change stream is opened again after an error
+   * @param maxRetryBackoff Longest wait before the change stream is opened again
+   * @param meterRegistry   Registry of the watchers metric
+   */
+  public TransactionFeed(ReactiveMongoTemplate mongoTemplate,
+                         TransactionRepository transactionRepository,
+                         @Value("${transactions.feed.buffer-size:256}") int bufferSize,
+                         @Value("${transactions.feed.retry-backoff:1s}") Duration retryBackoff,
+                         @Value("${transactions.feed.max-retry-backoff:1m}")
+                             Duration maxRetryBackoff,
+                         ObjectProvider<MeterRegistry> meterRegistry) {
+    this.mongoTemplate = mongoTemplate;
+    this.transactionRepository = transactionRepository;
+    this.bufferSize = bufferSize;
+    this.retryBackoff = retryBackoff;
+    this.maxRetryBackoff = maxRetryBackoff;
+    meterRegistry.ifAvailable(registry -> Gauge.builder(WATCHERS, watching, AtomicInteger::get)
+        .description("Open watches of the transaction feed")
+        .register(registry));
+  }
+
+  /**
+   * Return the transactions of a product after a position and then the new ones as they are
+   * stored. A watcher that falls more than the buffer behind receives an overflow error and
+   * can watch again from its last transaction.
+   *
+   * @param after Last transaction received, null to receive only the new ones
+   */
+  public Flux<Transaction> watch(ObjectId idProduct, int collection, TransactionCursor after) {
+    return clusterTime().flatMapMany(clusterTime -> Flux.defer(() -> {
+      LocalDateTime watchedAt = LocalDateTime.now();
+      Sinks.Many<Transaction> sink = Sinks.many().unicast()
+          .onBackpressureBuffer(Queues.<Transaction>get(bufferSize).get());
+      register(idProduct, sink, clusterTime.orElse(null));
+
+      Set<ObjectId> replayed = new HashSet<>();
+      Flux<Transaction> replay = after == null
+          ? Flux.empty()
+          : transactionRepository
+          .findFeedByIdProductAndCollection(idProduct, collection, after, bufferSize)
+          .doOnNext(transaction -> {
+            // only the recent ones can also arrive from the change stream
+            if (transaction.getDate() != null
+                && transaction.getDate().isAfter(watchedAt.minus(DEDUPLICATION_WINDOW))) {
+              replayed.add(transaction.getId());
+            }
+          });
+      Flux<Transaction> live = sink.asFlux()
+          .filter(transaction -> transaction.getCollection() == collection
+              && !replayed.contains(transaction.getId()));
+
+      return Flux.concat(replay, live)
+          .doFinally(signal -> unregister(idProduct, sink));
+    }));
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (changeStream != null) {
+      changeStream.dispose();
+      changeStream = null;
+    }
+  }
+
+  /**
+   * Register a watcher, opening the change stream at the given cluster time when it is closed.
+   * A change stream already open started before this watcher read the time, so it misses none of
+   * the inserts the replay of this watcher does not see.
+   */
+  private synchronized void register(ObjectId idProduct, Sinks.Many<Transaction> sink,
+                                     BsonTimestamp clusterTime) {
+    watchers.computeIfAbsent(idProduct, key -> ConcurrentHashMap.newKeySet()).add(sink);
+    watching.incrementAndGet();
+    // a change stream closed by an error is disposed while its watchers are still unregistering
+    if (changeStream == null || changeStream.isDisposed()) {
+      startAt = clusterTime;
+      changeStream = changes().subscribe(this::dispatch, this::close);
+    }
+  }
+
+  private synchronized void unregister(ObjectId idProduct, Sinks.Many<Transaction> sink) {
+    watchers.computeIfPresent(idProduct, (key, sinks) -> {
+      sinks.remove(sink);
+      return sinks.isEmpty() ? null : sinks;
+    });
+    if (watching.decrementAndGet() == 0) {
+      stop();
+      resumeToken = null;
+      startAt = null;
+    }
+  }
+
+  /**
+   * Return the cluster time of the server, empty when it does not report one.
+   */
+  private Mono<Optional<BsonTimestamp>> clusterTime() {
+    return mongoTemplate.executeCommand(new Document("hello", 1))
+        .map(reply -> Optional.ofNullable(reply.get("$clusterTime", Document.class))
+            .map(time -> time.get("clusterTime", BsonTimestamp.class)))
+        .defaultIfEmpty(Optional.empty())
+        .onErrorMap(e -> new CustomUnavailableException("The transaction feed could not be "
+            + "opened", e));
+  }
+
+  private Flux<Transaction> changes() {
+    return Flux
+        .defer(() -> {
+          ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+              .filter(newAggregation(match(where("operationType").is("insert"))));
+          if (resumeToken != null) {
+            options.resumeAfter(resumeToken);
+          } else if (startAt != null) {
+            options.resumeAt(startAt);
+          }
+          return mongoTemplate.changeStream(mongoTemplate.getCollectionName(Transaction.class),
+              options.build(), Transaction.class);
+        })
+        .doOnNext(event -> resumeToken = event.getResumeToken())
+        .retryWhen(Retry.backoff(Long.MAX_VALUE, retryBackoff)
+            .maxBackoff(maxRetryBackoff)
+            .filter(TransactionFeed::isTransient)
+            .doBeforeRetry(retry -> logger.warn("The transaction feed will be opened again: {}",
+                retry.failure().getMessage())))
+        .mapNotNull(ChangeStreamEvent::getBody);
+  }
+
+  /**
+   * Return whether the change stream can be opened again after an error: the server could not be
+   * reached or asked to resume, a command it rejects would fail again.
+   */
+  private static boolean isTransient(Throwable error) {
+    if (error instanceof DataAccessResourceFailureException
+        || error instanceof TransientDataAccessException) {
+      return true;
+    }
+    Throwable cause = NestedExceptionUtils.getMostSpecificCause(error);
+    return cause instanceof MongoSocketException
+        || cause instanceof MongoTimeoutException
+        || cause instanceof MongoException && ((MongoException) cause).hasErrorLabel(RESUMABLE);
+  }
+
+  private void close(Throwable error) {
+    logger.error("The transaction feed was closed: {}", error.getMessage());
+    resumeToken = null;
+    CustomUnavailableException closed =
+        new CustomUnavailableException("The transaction feed was closed", error);
+    watchers.values().forEach(sinks -> sinks.forEach(sink -> sink.tryEmitError(closed)));
+  }
+
+  private void dispatch(Transaction transaction) {
+    Set<Sinks.Many<Transaction>> sinks = watchers.get(transaction.getIdProduct());
+    if (sinks == null) {
+      return;
+    }
+    // the change stream is the only emitter, so the emissions are never concurrent
+    sinks.forEach(sink -> {
+      if (sink.tryEmitNext(transaction) == Sinks.EmitResult.FAIL_OVERFLOW) {
+        sink.tryEmitError(Exceptions.failWithOverflow("The watcher of product "
+            + transaction.getIdProduct() + " fell " + bufferSize + " transactions behind"));
+      }
+    });
+  }
+}
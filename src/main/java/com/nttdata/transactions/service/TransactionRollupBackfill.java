@@ -0,0 +1,54 @@
+package com.nttdata.transactions.service;
+
+import com.nttdata.transactions.repository.TransactionRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the daily transaction rollups from the transactions collection, used to fill them with
+ * the history and to repair them.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionRollupBackfill {
+  private static final Logger logger = LogManager.getLogger(TransactionRollupBackfill.class);
+
+  private final TransactionRollupRepository rollupRepository;
+
+  @Value("${transactions.rollups.backfill-on-startup:false}")
+  private boolean backfillOnStartup;
+
+  /**
+   * Build the rollups when the application starts, only if it is enabled.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillOnStartup() {
+    if (backfillOnStartup) {
+      backfill().subscribe();
+    }
+  }
+
+  @Scheduled(cron = "${transactions.rollups.backfill-cron:-}")
+  public void backfillScheduled() {
+    backfill().subscribe();
+  }
+
+  /**
+   * Return a mono that completes when the rollups of the closed days have been built.
+   */
+  public Mono<Void> backfill() {
+    long start = System.currentTimeMillis();
+    return rollupRepository.rebuild()
+        .doOnSuccess(x -> logger.info("Transaction rollups built in {} ms",
+            System.currentTimeMillis() - start))
+        .doOnError(e -> logger.error("Transaction rollups could not be built", e))
+        .onErrorResume(e -> Mono.empty());
+  }
+}
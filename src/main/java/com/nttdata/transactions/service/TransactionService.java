@@ -1,9 +1,14 @@
 package com.nttdata.transactions.service;
 
 import com.nttdata.transactions.dto.request.FilterRequest;
+import com.nttdata.transactions.dto.request.TransactionPageRequest;
 import com.nttdata.transactions.dto.request.TransactionRequest;
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
 import com.nttdata.transactions.model.Transaction;
 import java.math.BigDecimal;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -11,13 +16,27 @@ import reactor.core.publisher.Mono;
  * Transaction service interface.
  */
 public interface TransactionService {
-  Flux<Transaction> listByAccountNumber(String accountNumber);
+  Flux<Transaction> listByAccountNumber(String accountNumber, TransactionPageRequest page);
 
-  Flux<Transaction> listByCreditNumber(String creditNumber);
+  Flux<Transaction> listByCreditNumber(String creditNumber, TransactionPageRequest page);
+
+  Flux<Transaction> watchByAccountNumber(String accountNumber, String after);
 
   Flux<Transaction> listAccountTransactionsWithCommission(String accountNumber,
                                                           FilterRequest request);
 
+  Flux<CommissionReportResponse> reportAccountCommissions(String accountNumber,
+                                                         FilterRequest request, String groupBy);
+
+  Mono<TransactionSummaryResponse> summaryByAccountNumber(String accountNumber,
+                                                        FilterRequest request);
+
+  Mono<TransactionSummaryResponse> summaryByCreditNumber(String creditNumber,
+                                                       FilterRequest request);
+
+  Flux<DataBuffer> exportAccountStatement(String accountNumber, FilterRequest request,
+                                         DataBufferFactory bufferFactory);
+
   Mono<String> depositAccount(String accountNumber, TransactionRequest request);
 
   Mono<String> withdrawalAccount(String accountNumber, TransactionRequest request);
@@ -1,28 +1,50 @@
 package com.nttdata.transactions.service;
 
+import static com.nttdata.transactions.utilities.Commissions.getCommission;
 import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
 import static com.nttdata.transactions.utilities.Constants.TransactionCollection.CREDIT;
 import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
 import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
 
 import com.nttdata.transactions.dto.request.FilterRequest;
+import com.nttdata.transactions.dto.request.TransactionPageRequest;
 import com.nttdata.transactions.dto.request.TransactionRequest;
 import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
 import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.exceptions.customs.CustomInsufficientBalanceException;
 import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionCursor;
+import com.nttdata.transactions.repository.TransactionQueries;
 import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.utilities.Money;
+import com.nttdata.transactions.utilities.StatementCsv;
+import com.nttdata.transactions.utilities.TransactionMetrics;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 /**
  * Transaction service implementation.
@@ -36,19 +58,57 @@ public class TransactionServiceImpl implements TransactionService {
   private final TransactionRepository transactionRepository;
   private final AccountService accountService;
   private final CreditService creditService;
+  private final BalanceOutboxService balanceOutboxService;
+  private final ProductLanes lanes;
+  private final TransactionFeed feed;
+  private final TransactionMetrics metrics;
+
+  @Value("${transactions.export.rows-per-buffer:256}")
+  private int exportRowsPerBuffer = 256;
 
   @Override
-  public Flux<Transaction> listByAccountNumber(String accountNumber) {
-    return accountService.findAccount(accountNumber)
-        .flatMapMany(account -> transactionRepository
-            .findByIdProductAndCollection(new ObjectId(account.getId()), ACCOUNT));
+  public Flux<Transaction> listByAccountNumber(String accountNumber,
+                                               TransactionPageRequest page) {
+    return cursor(page)
+        .flatMapMany(after -> accountService.findAccount(accountNumber)
+            .flatMapMany(account -> transactionRepository
+                .findPageByIdProductAndCollection(new ObjectId(account.getId()), ACCOUNT,
+                    after.orElse(null), page.getLimit(), page.getFields())));
   }
 
   @Override
-  public Flux<Transaction> listByCreditNumber(String creditNumber) {
-    return creditService.findCredit(creditNumber)
-        .flatMapMany(account -> transactionRepository
-            .findByIdProductAndCollection(new ObjectId(account.getId()), CREDIT));
+  public Flux<Transaction> listByCreditNumber(String creditNumber, TransactionPageRequest page) {
+    return cursor(page)
+        .flatMapMany(after -> creditService.findCredit(creditNumber)
+            .flatMapMany(account -> transactionRepository
+                .findPageByIdProductAndCollection(new ObjectId(account.getId()), CREDIT,
+                    after.orElse(null), page.getLimit(), page.getFields())));
+  }
+
+  /**
+   * Transactions of an account after a position, then the new ones as they are stored. The
+   * position is a cursor of a listing or the id of a transaction, an id replays from the second
+   * it was created.
+   */
+  @Override
+  public Flux<Transaction> watchByAccountNumber(String accountNumber, String after) {
+    TransactionCursor cursor;
+    if (StringUtils.isBlank(after)) {
+      cursor = null;
+    } else if (ObjectId.isValid(after)) {
+      ObjectId id = new ObjectId(after);
+      cursor = new TransactionCursor(LocalDateTime.ofInstant(id.getDate().toInstant(),
+          ZoneId.systemDefault()), id);
+    } else {
+      try {
+        cursor = TransactionCursor.decode(after);
+      } catch (IllegalArgumentException e) {
+        return Flux.error(new CustomInformationException("Field after is not a valid cursor"));
+      }
+    }
+
+    return accountService.findAccount(accountNumber)
+        .flatMapMany(account -> feed.watch(new ObjectId(account.getId()), ACCOUNT, cursor));
   }
 
   @Override
@@ -61,156 +121,187 @@ public class TransactionServiceImpl implements TransactionService {
   }
 
   @Override
-  public Mono<String> depositAccount(String accountNumber, TransactionRequest request) {
-    return accountService.findAccount(accountNumber)
-        .flatMap(account -> transactionRepository
-            .countByIdProductAndCollection(account.getId(), ACCOUNT)
-            .flatMap(count -> {
-              BigDecimal commission = getCommission(count, account);
-              Transaction transaction = new Transaction(ACCOUNT, account.getId(),
-                  request.getDescription(), ENTRY, request.getAmount(), commission);
+  public Flux<CommissionReportResponse> reportAccountCommissions(String accountNumber,
+                                                                FilterRequest request,
+                                                                String groupBy) {
+    if (!"day".equalsIgnoreCase(groupBy) && !"month".equalsIgnoreCase(groupBy)) {
+      return Flux.error(new CustomInformationException("Field groupBy must be day or month"));
+    }
 
-              return create(transaction).flatMap(transact -> {
-                updateAccountBalance(transaction, request.getAmount(), ENTRY);
+    return accountService.findAccount(accountNumber)
+        .flatMapMany(account -> transactionRepository
+            .commissionReportByIdProductAndCollection(account.getId(), ACCOUNT,
+                request.getStart(), request.getEnd(), "month".equalsIgnoreCase(groupBy)));
+  }
 
-                if (commission.compareTo(BigDecimal.ZERO) > 0) {
-                  updateAccountBalance(transaction, commission, EXIT);
-                }
+  @Override
+  public Mono<TransactionSummaryResponse> summaryByAccountNumber(String accountNumber,
+                                                               FilterRequest request) {
+    return accountService.findAccount(accountNumber)
+        .flatMap(account -> transactionRepository
+            .summaryByIdProductAndCollection(account.getId(), ACCOUNT,
+                request.getStart(), request.getEnd()));
+  }
 
-                return Mono.just(SUCCESS_MESSAGE);
-              });
-            }));
+  @Override
+  public Mono<TransactionSummaryResponse> summaryByCreditNumber(String creditNumber,
+                                                              FilterRequest request) {
+    return creditService.findCredit(creditNumber)
+        .flatMap(credit -> transactionRepository
+            .summaryByIdProductAndCollection(credit.getId(), CREDIT,
+                request.getStart(), request.getEnd()));
   }
 
   @Override
-  public Mono<String> withdrawalAccount(String accountNumber, TransactionRequest request) {
+  public Flux<DataBuffer> exportAccountStatement(String accountNumber, FilterRequest request,
+                                                DataBufferFactory bufferFactory) {
     return accountService.findAccount(accountNumber)
+        .flatMapMany(account -> {
+          Flux<Transaction> transactions = transactionRepository
+              .findStatementByIdProductAndCollection(new ObjectId(account.getId()), ACCOUNT,
+                  request.getStart(), request.getEnd(), exportRowsPerBuffer);
+          return StatementCsv.encode(transactions, bufferFactory, exportRowsPerBuffer);
+        });
+  }
+
+  @Override
+  public Mono<String> depositAccount(String accountNumber, TransactionRequest request) {
+    return metrics.operation("deposit", accountService.findAccount(accountNumber)
         .flatMap(account -> transactionRepository
             .countByIdProductAndCollection(account.getId(), ACCOUNT)
             .flatMap(count -> {
-              if (account.getBalance().compareTo(request.getAmount()) < 0) {
-                return Mono.error(new CustomInformationException("You do not have a balance "
-                    + "to carry out this transaction"));
-              }
-
-              BigDecimal commission = getCommission(count, account);
+              Money amount = money(request.getAmount());
+              Money commission = getCommission(count, account);
               Transaction transaction = new Transaction(ACCOUNT, account.getId(),
-                  request.getDescription(), EXIT, request.getAmount(), commission);
-
-              return create(transaction).flatMap(transact -> {
-                updateAccountBalance(transaction, request.getAmount(), EXIT);
+                  request.getDescription(), ENTRY, request.getAmount(),
+                  commission.toBigDecimal());
+
+              updateBalance(transaction, amount, ENTRY);
+              updateCommission(transaction, commission);
+              return create(transaction)
+                  .thenReturn(SUCCESS_MESSAGE);
+            })));
+  }
 
-                if (commission.compareTo(BigDecimal.ZERO) > 0) {
-                  updateAccountBalance(transaction, commission, EXIT);
+  /**
+   * Withdraw from an account. The balance check and the write run in the lane of the account, so
+   * the withdrawals of an account on this instance are applied one after the other.
+   */
+  @Override
+  public Mono<String> withdrawalAccount(String accountNumber, TransactionRequest request) {
+    return metrics.operation("withdrawal", Mono.defer(() -> {
+      LocalDateTime readAt = LocalDateTime.now();
+      return accountService.findAccountForDebit(accountNumber)
+          .flatMap(account -> lanes.run(account.getId(), () -> settle(List.of(account), readAt)
+              .then(transactionRepository.countByIdProductAndCollection(account.getId(), ACCOUNT))
+              .flatMap(count -> {
+                Money amount = money(request.getAmount());
+                if (Money.rounded(account.getBalance()).isLessThan(amount)) {
+                  return Mono.error(new CustomInsufficientBalanceException("You do not have a "
+                      + "balance to carry out this transaction"));
                 }
 
-                return Mono.just(SUCCESS_MESSAGE);
-              });
-            }));
+                Money commission = getCommission(count, account);
+                Transaction transaction = new Transaction(ACCOUNT, account.getId(),
+                    request.getDescription(), EXIT, request.getAmount(),
+                    commission.toBigDecimal());
+
+                updateBalance(transaction, amount, EXIT);
+                updateCommission(transaction, commission);
+                return create(transaction)
+                    .thenReturn(SUCCESS_MESSAGE);
+              })));
+    }));
   }
 
+  /**
+   * Withdraw from the accounts of a debit card in order of position. The accounts are read once
+   * and their transactions of the month with a single query, the split is planned in memory
+   * while the lanes of every account are held.
+   */
   @Override
   public Mono<String> withdrawalFromDebitCard(String debitCard, TransactionRequest request) {
-    Flux<AccountResponse> fluxAccount = accountService.listByDebitCard(debitCard)
-        .flatMap(this::setTotalTransactions);
-
-    return fluxAccount
-        .map(AccountResponse::getAvailableBalance)
-        .reduce(BigDecimal.ZERO, BigDecimal::add)
-        .flatMap(total -> {
-          if (total.compareTo(request.getAmount()) < 0) {
-            return Mono.error(new CustomInformationException("You do not have "
-                + "enough balance in your accounts"));
-          }
-          return Mono.just(total);
-        })
-        .flatMapMany(total -> fluxAccount)
-        .sort(Comparator.comparing(AccountResponse::getPosition))
-        .flatMap(account -> {
-          if (request.getAmount().compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal balance = account.getAvailableBalance();
-            BigDecimal commission = getCommission(account.getTotalTransactions(), account);
-            BigDecimal amount;
-            BigDecimal amountTransaction;
-
-            if (balance.subtract(request.getAmount()).compareTo(BigDecimal.ZERO) <= 0) {
-              request.setAmount(request.getAmount().subtract(balance));
-              amount = account.getBalance();
-              amountTransaction = account.getAvailableBalance();
-            } else {
-              amount = request.getAmount().add(commission);
-              amountTransaction = request.getAmount();
-              request.setAmount(BigDecimal.ZERO);
-            }
-
-            Transaction transaction = new Transaction(ACCOUNT, account.getId(),
-                request.getDescription(), EXIT, amountTransaction, commission);
-
-            return create(transaction)
-                .map(transact -> {
-                  updateAccountBalance(transaction, amount, EXIT);
-
-                  return account;
-                });
-          } else {
-            return Mono.just(account);
-          }
-        })
-        .then(Mono.just(SUCCESS_MESSAGE));
+    return metrics.operation("debit_card_withdrawal", Mono.defer(() -> {
+      LocalDateTime readAt = LocalDateTime.now();
+      return accountService.listByDebitCard(debitCard)
+          .collectList()
+          .flatMap(accounts -> {
+            List<String> ids = accounts.stream()
+                .map(AccountResponse::getId)
+                .collect(Collectors.toList());
+            return lanes.run(ids, () -> settle(accounts, readAt)
+                .then(transactionRepository
+                    .countByIdProductsAndCollection(ids, ACCOUNT, YearMonth.now()))
+                .flatMapMany(counts -> {
+                  accounts.forEach(account -> setTotalTransactions(account,
+                      counts.getOrDefault(account.getId(), 0L)));
+                  return Flux.fromIterable(planDebitCard(accounts, request));
+                })
+                .flatMap(withdrawal -> {
+                  updateBalance(withdrawal.getT1(), withdrawal.getT2(), EXIT);
+                  return create(withdrawal.getT1());
+                })
+                .then(Mono.just(SUCCESS_MESSAGE)));
+          });
+    }));
   }
 
+  /**
+   * Transfer between two accounts, the debit of the exit account runs in its lane.
+   */
   @Override
   public Mono<String> transferBetweenAccounts(String exitNumber,
                                               String entryNumber,
                                               TransactionRequest request) {
-    Mono<AccountResponse> exitAccount = accountService.findAccount(exitNumber)
-        .subscribeOn(Schedulers.parallel());
-    Mono<AccountResponse> entryAccount = accountService.findAccount(entryNumber)
-        .subscribeOn(Schedulers.parallel());
-
-    Mono<Tuple2<AccountResponse, AccountResponse>> zip = Mono.zip(exitAccount, entryAccount);
-    return zip
-        .flatMap(res -> {
-          logger.info("Exit account: {}", res.getT1());
-          logger.info("Entry account: {}", res.getT2());
-          AccountResponse acExit = res.getT1();
-          AccountResponse acEntry = res.getT2();
-
-          return transactionRepository.countByIdProductAndCollection(acExit.getId(), ACCOUNT)
-              .flatMap(count -> {
-                if (acExit.getBalance().compareTo(request.getAmount()) < 0) {
-                  return Mono.error(new CustomInformationException("You do not have a balance "
-                      + "to carry out this transaction"));
-                }
+    return metrics.operation("transfer", Mono.defer(() -> {
+      LocalDateTime readAt = LocalDateTime.now();
+      Mono<AccountResponse> exitAccount = accountService.findAccountForDebit(exitNumber)
+          .subscribeOn(Schedulers.parallel());
+      Mono<AccountResponse> entryAccount = accountService.findAccount(entryNumber)
+          .subscribeOn(Schedulers.parallel());
+
+      Mono<Tuple2<AccountResponse, AccountResponse>> zip = Mono.zip(exitAccount, entryAccount);
+      return zip.flatMap(res -> {
+        logger.info("Exit account: {}", res.getT1());
+        logger.info("Entry account: {}", res.getT2());
+        AccountResponse acExit = res.getT1();
+        AccountResponse acEntry = res.getT2();
+
+        return lanes.run(acExit.getId(), () -> settle(List.of(acExit), readAt)
+            .then(transactionRepository.countByIdProductAndCollection(acExit.getId(), ACCOUNT))
+            .flatMap(count -> {
+              Money amount = money(request.getAmount());
+              if (Money.rounded(acExit.getBalance()).isLessThan(amount)) {
+                return Mono.error(new CustomInsufficientBalanceException("You do not have a "
+                    + "balance to carry out this transaction"));
+              }
 
-                BigDecimal commission = getCommission(count, acExit);
-                Transaction exit = new Transaction(ACCOUNT, acExit.getId(),
-                    request.getDescription(), EXIT, request.getAmount(), commission);
-                Transaction entry = new Transaction(ACCOUNT, acEntry.getId(),
-                    request.getDescription(), ENTRY, request.getAmount(), commission);
-
-                Mono<Transaction> monoExit = create(exit)
-                    .doOnNext(t -> {
-                      updateAccountBalance(exit, request.getAmount(), EXIT);
-
-                      if (commission.compareTo(BigDecimal.ZERO) > 0) {
-                        updateAccountBalance(exit, commission, EXIT);
-                      }
-                    })
-                    .subscribeOn(Schedulers.parallel());
-                Mono<Transaction> monoEntry = create(entry)
-                    .doOnNext(t -> updateAccountBalance(entry, request.getAmount(), ENTRY))
-                    .subscribeOn(Schedulers.parallel());
-
-                return Mono.zip(monoExit, monoEntry)
-                    .flatMap(t -> Mono.just(SUCCESS_MESSAGE));
-              });
-        });
+              Money commission = getCommission(count, acExit);
+              Transaction exit = new Transaction(ACCOUNT, acExit.getId(),
+                  request.getDescription(), EXIT, request.getAmount(),
+                  commission.toBigDecimal());
+              Transaction entry = new Transaction(ACCOUNT, acEntry.getId(),
+                  request.getDescription(), ENTRY, request.getAmount(),
+                  commission.toBigDecimal());
+
+              updateBalance(exit, amount, EXIT);
+              updateCommission(exit, commission);
+              updateBalance(entry, amount, ENTRY);
+              Mono<Transaction> monoExit = create(exit)
+                  .subscribeOn(Schedulers.parallel());
+              Mono<Transaction> monoEntry = create(entry)
+                  .subscribeOn(Schedulers.parallel());
+
+              return Mono.when(monoExit, monoEntry)
+                  .thenReturn(SUCCESS_MESSAGE);
+            }));
+      });
+    }));
   }
 
   @Override
   public Mono<String> payCredit(String creditNumber, BigDecimal amount) {
-    return creditService.findCredit(creditNumber)
+    return metrics.operation("pay_credit", creditService.findCredit(creditNumber)
         .flatMap(account -> {
           Transaction transaction = new Transaction();
           transaction.setIdProduct(new ObjectId(account.getId()));
@@ -218,16 +309,16 @@ public class TransactionServiceImpl implements TransactionService {
           transaction.setType(ENTRY);
           transaction.setDate(LocalDateTime.now());
           transaction.setAmount(amount);
-          create(transaction);
-          updateCreditBalance(transaction, amount, ENTRY);
 
-          return Mono.just(SUCCESS_MESSAGE);
-        });
+          updateBalance(transaction, money(amount), ENTRY);
+          return create(transaction)
+              .thenReturn(SUCCESS_MESSAGE);
+        }));
   }
 
   @Override
   public Mono<String> spendCredit(String creditNumber, BigDecimal amount) {
-    return creditService.findCredit(creditNumber)
+    return metrics.operation("spend_credit", creditService.findCredit(creditNumber)
         .flatMap(account -> {
           Transaction transaction = new Transaction();
           transaction.setIdProduct(new ObjectId(account.getId()));
@@ -235,61 +326,140 @@ public class TransactionServiceImpl implements TransactionService {
           transaction.setType(EXIT);
           transaction.setDate(LocalDateTime.now());
           transaction.setAmount(amount);
-          create(transaction);
-          updateCreditBalance(transaction, amount, EXIT);
 
-          return Mono.just(SUCCESS_MESSAGE);
-        });
+          updateBalance(transaction, money(amount), EXIT);
+          return create(transaction)
+              .thenReturn(SUCCESS_MESSAGE);
+        }));
   }
 
-  private BigDecimal getCommission(Long count, AccountResponse account) {
-    boolean requireCommission = account.getTypeAccount().getMaxTransactions() != null
-        && count >= account.getTypeAccount().getMaxTransactions();
-    if (!requireCommission) {
-      return BigDecimal.ZERO;
+  private Mono<Optional<TransactionCursor>> cursor(TransactionPageRequest page) {
+    Optional<String> invalidField = page.getFields() == null
+        ? Optional.empty()
+        : page.getFields().stream()
+        .filter(field -> !TransactionQueries.FIELDS.contains(field))
+        .findFirst();
+    if (invalidField.isPresent()) {
+      return Mono.error(new CustomInformationException("Field " + invalidField.get()
+          + " can not be selected"));
+    }
+    if (StringUtils.isBlank(page.getAfter())) {
+      return Mono.just(Optional.empty());
     }
 
-    return account.getTypeAccount().getCommission() == null
-        ? BigDecimal.ZERO :
-        account.getTypeAccount().getCommission();
+    try {
+      return Mono.just(Optional.of(TransactionCursor.decode(page.getAfter())));
+    } catch (IllegalArgumentException e) {
+      return Mono.error(new CustomInformationException("Field after is not a valid cursor"));
+    }
   }
 
-  private Mono<AccountResponse> setTotalTransactions(AccountResponse account) {
-    return transactionRepository
-        .countByIdProductAndCollection(account.getId(), ACCOUNT)
-        .flatMap(count -> {
-          BigDecimal commission = account.getTypeAccount().getCommission() == null
-              ? BigDecimal.ZERO :
-              account.getTypeAccount().getCommission();
-          BigDecimal availableBalance = count >= setInteger(account
-              .getTypeAccount().getMaxTransactions())
-              ? account.getBalance().subtract(commission) :
-              account.getBalance();
-          account.setAvailableBalance(availableBalance);
-          account.setTotalTransactions(count);
-
-          return Mono.just(account);
-        });
+  /**
+   * Subtract from the balance of every account the debits that the balance read may not include
+   * yet, the credits only count once the balance includes them.
+   */
+  private Mono<Void> settle(List<AccountResponse> accounts, LocalDateTime readAt) {
+    return balanceOutboxService
+        .unsettled(ACCOUNT, accounts.stream()
+            .map(AccountResponse::getId)
+            .collect(Collectors.toList()), readAt)
+        .doOnNext(unsettled -> accounts.forEach(account -> settle(account, unsettled)))
+        .then();
+  }
+
+  private void settle(AccountResponse account, Map<String, Money> unsettled) {
+    Money amount = unsettled.getOrDefault(account.getId(), Money.ZERO);
+    if (amount.signum() < 0) {
+      account.setBalance(Money.rounded(account.getBalance()).add(amount).toBigDecimal());
+    }
+  }
+
+  private void setTotalTransactions(AccountResponse account, long count) {
+    Money balance = Money.rounded(account.getBalance());
+    Money availableBalance = count >= setInteger(account.getTypeAccount().getMaxTransactions())
+        ? balance.subtract(Money.rounded(account.getTypeAccount().getCommission())) :
+        balance;
+    account.setAvailableBalance(availableBalance);
+    account.setTotalTransactions(count);
+  }
+
+  /**
+   * Return the transaction of every account that takes part in a debit card withdrawal and the
+   * amount debited from its balance, commission included.
+   */
+  private List<Tuple2<Transaction, Money>> planDebitCard(List<AccountResponse> accounts,
+                                                         TransactionRequest request) {
+    Money remaining = money(request.getAmount());
+    Money total = accounts.stream()
+        .map(AccountResponse::getAvailableBalance)
+        .reduce(Money.ZERO, Money::add);
+    if (total.isLessThan(remaining)) {
+      throw new CustomInsufficientBalanceException("You do not have "
+          + "enough balance in your accounts");
+    }
+
+    List<AccountResponse> sorted = new ArrayList<>(accounts);
+    sorted.sort(Comparator.comparing(AccountResponse::getPosition));
+    List<Tuple2<Transaction, Money>> withdrawals = new ArrayList<>();
+    for (AccountResponse account : sorted) {
+      if (remaining.signum() <= 0) {
+        break;
+      }
+
+      Money balance = account.getAvailableBalance();
+      Money commission = getCommission(account.getTotalTransactions(), account);
+      Money amount;
+      Money amountTransaction;
+      if (balance.subtract(remaining).signum() <= 0) {
+        remaining = remaining.subtract(balance);
+        amount = Money.rounded(account.getBalance());
+        amountTransaction = balance;
+      } else {
+        amount = remaining.add(commission);
+        amountTransaction = remaining;
+        remaining = Money.ZERO;
+      }
+
+      Transaction transaction = new Transaction(ACCOUNT, account.getId(),
+          request.getDescription(), EXIT, amountTransaction.toBigDecimal(),
+          commission.toBigDecimal());
+      withdrawals.add(Tuples.of(transaction, amount));
+    }
+    return withdrawals;
   }
 
+  /**
+   * Store a transaction together with its balance changes, they are sent once it is stored.
+   */
   private Mono<Transaction> create(Transaction transaction) {
-    return transactionRepository.save(transaction)
+    return metrics.stage("save", transactionRepository.save(transaction))
         .flatMap(x -> {
           logger.info("Created a new transaction with id = {}", x.getId());
+          balanceOutboxService.wakeUp();
           return Mono.just(x);
         });
   }
 
-  private void updateAccountBalance(Transaction transaction, BigDecimal amount, int type) {
-    BigDecimal finalAmount = type == ENTRY ? amount : amount.multiply(BigDecimal.valueOf(-1));
-    accountService
-        .updateAccount(transaction.getIdProduct().toString(), finalAmount);
+  private void updateBalance(Transaction transaction, Money amount, int type) {
+    balanceOutboxService.enqueue(transaction, type == ENTRY ? amount : amount.negate());
   }
 
-  private void updateCreditBalance(Transaction transaction, BigDecimal amount, int type) {
-    BigDecimal finalAmount = type == ENTRY ? amount : amount.multiply(BigDecimal.valueOf(-1));
-    creditService
-        .updateCredit(transaction.getIdProduct().toString(), finalAmount);
+  private void updateCommission(Transaction transaction, Money commission) {
+    if (commission.signum() > 0) {
+      updateBalance(transaction, commission, EXIT);
+    }
+  }
+
+  /**
+   * Return the money of an amount sent by the client, rejected when it has more decimals.
+   */
+  private static Money money(BigDecimal amount) {
+    try {
+      return Money.of(amount);
+    } catch (ArithmeticException e) {
+      throw new CustomInformationException("Field amount must have at most " + Money.SCALE
+          + " decimals");
+    }
   }
 
   private Integer setInteger(Integer value) {
@@ -0,0 +1,27 @@
+package com.nttdata.transactions.utilities;
+
+import com.nttdata.transactions.dto.response.AccountResponse;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Commission rules of the accounts.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Commissions {
+  /**
+   * Return the commission of the next transaction of the account.
+   *
+   * @param count   Transactions of the account in the current month
+   * @param account Account that makes the transaction
+   */
+  public static Money getCommission(Long count, AccountResponse account) {
+    boolean requireCommission = account.getTypeAccount().getMaxTransactions() != null
+        && count >= account.getTypeAccount().getMaxTransactions();
+    if (!requireCommission) {
+      return Money.ZERO;
+    }
+
+    return Money.rounded(account.getTypeAccount().getCommission());
+  }
+}
@@ -35,4 +35,26 @@ public class Constants {
     public static final int CHECKING = 2;
     public static final int FIXED_TERM = 3;
   }
+
+  /**
+   * Balance outbox status.
+   */
+  @NoArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class OutboxStatus {
+    public static final int PENDING = 1;
+    public static final int PROCESSING = 2;
+    public static final int DONE = 3;
+    public static final int FAILED = 4;
+    public static final int REJECTED = 5;
+  }
+
+  /**
+   * Idempotency key status.
+   */
+  @NoArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class IdempotencyStatus {
+    public static final int IN_PROGRESS = 1;
+    public static final int COMPLETED = 2;
+    public static final int FAILED = 3;
+  }
 }
@@ -0,0 +1,114 @@
+package com.nttdata.transactions.utilities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Amount of money as a long of cents. The operations do not allocate anything besides the
+ * result and fail with ArithmeticException instead of overflowing.
+ */
+@EqualsAndHashCode
+public final class Money implements Comparable<Money> {
+  /**
+   * Decimals of every amount.
+   */
+  public static final int SCALE = 2;
+  public static final Money ZERO = new Money(0);
+
+  private final long minor;
+
+  private Money(long minor) {
+    this.minor = minor;
+  }
+
+  /**
+   * Return the money of an amount.
+   *
+   * @param amount Amount with at most SCALE decimals, null is zero
+   * @throws ArithmeticException when the amount has more decimals or does not fit in a long
+   */
+  @JsonCreator
+  public static Money of(BigDecimal amount) {
+    if (amount == null || amount.signum() == 0) {
+      return ZERO;
+    }
+    return ofMinor(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue()
+        .longValueExact());
+  }
+
+  /**
+   * Return the money of an amount rounded half even to SCALE decimals. It is meant for the
+   * balances and commissions read from other services, which are not validated as a request.
+   *
+   * @param amount Amount with any number of decimals, null is zero
+   * @throws ArithmeticException when the amount does not fit in a long
+   */
+  public static Money rounded(BigDecimal amount) {
+    if (amount == null || amount.signum() == 0) {
+      return ZERO;
+    }
+    return ofMinor(amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue()
+        .longValueExact());
+  }
+
+  /**
+   * Return the money of an amount in cents.
+   */
+  public static Money ofMinor(long minor) {
+    return minor == 0 ? ZERO : new Money(minor);
+  }
+
+  /**
+   * Return whether the amount can be represented without rounding it.
+   */
+  public static boolean isValid(BigDecimal amount) {
+    try {
+      of(amount);
+      return true;
+    } catch (ArithmeticException e) {
+      return false;
+    }
+  }
+
+  public long getMinor() {
+    return minor;
+  }
+
+  public Money add(Money other) {
+    return other.minor == 0 ? this : ofMinor(Math.addExact(minor, other.minor));
+  }
+
+  public Money subtract(Money other) {
+    return other.minor == 0 ? this : ofMinor(Math.subtractExact(minor, other.minor));
+  }
+
+  public Money negate() {
+    return ofMinor(Math.negateExact(minor));
+  }
+
+  public int signum() {
+    return Long.signum(minor);
+  }
+
+  public boolean isLessThan(Money other) {
+    return minor < other.minor;
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    return Long.compare(minor, other.minor);
+  }
+
+  @JsonValue
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(minor, SCALE);
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString();
+  }
+}
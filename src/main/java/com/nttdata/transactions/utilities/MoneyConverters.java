@@ -0,0 +1,45 @@
+package com.nttdata.transactions.utilities;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.bson.types.Decimal128;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+/**
+ * Mongo converters of Money, stored as Decimal128 like the BigDecimal amounts.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class MoneyConverters {
+  public static List<Converter<?, ?>> converters() {
+    return List.of(MoneyToDecimal128Converter.INSTANCE, Decimal128ToMoneyConverter.INSTANCE);
+  }
+
+  /**
+   * Writes money as Decimal128.
+   */
+  @WritingConverter
+  public enum MoneyToDecimal128Converter implements Converter<Money, Decimal128> {
+    INSTANCE;
+
+    @Override
+    public Decimal128 convert(Money source) {
+      return new Decimal128(source.toBigDecimal());
+    }
+  }
+
+  /**
+   * Reads Decimal128 as money.
+   */
+  @ReadingConverter
+  public enum Decimal128ToMoneyConverter implements Converter<Decimal128, Money> {
+    INSTANCE;
+
+    @Override
+    public Money convert(Decimal128 source) {
+      return Money.of(source.bigDecimalValue());
+    }
+  }
+}
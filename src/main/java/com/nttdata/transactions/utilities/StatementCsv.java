@@ -0,0 +1,123 @@
+package com.nttdata.transactions.utilities;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.nttdata.transactions.model.Transaction;
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes the transactions of a statement as CSV rows straight into data buffers.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class StatementCsv {
+  public static final String HEADER = "id,date,type,description,amount,commission\n";
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  private static final int ROW_SIZE = 96;
+
+  /**
+   * Return the CSV of the transactions, a buffer every rowsPerBuffer rows. Only rowsPerBuffer
+   * transactions are held at once and the buffers are requested on demand.
+   *
+   * @param transactions  Transactions of the statement
+   * @param bufferFactory Factory of the response, pooled when running on Netty
+   * @param rowsPerBuffer Rows written in each buffer
+   */
+  public static Flux<DataBuffer> encode(Flux<Transaction> transactions,
+                                        DataBufferFactory bufferFactory, int rowsPerBuffer) {
+    Mono<DataBuffer> header = Mono.fromSupplier(() -> write(bufferFactory, HEADER));
+    Flux<DataBuffer> rows = transactions
+        .buffer(rowsPerBuffer)
+        .map(batch -> write(bufferFactory, rows(batch)));
+
+    return Flux.concat(header, rows)
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+  }
+
+  private static DataBuffer write(DataBufferFactory bufferFactory, CharSequence text) {
+    DataBuffer buffer = bufferFactory.allocateBuffer(text.length() + 16);
+    try {
+      return buffer.write(text, UTF_8);
+    } catch (RuntimeException e) {
+      DataBufferUtils.release(buffer);
+      throw e;
+    }
+  }
+
+  private static StringBuilder rows(List<Transaction> transactions) {
+    StringBuilder rows = new StringBuilder(transactions.size() * ROW_SIZE);
+    for (Transaction transaction : transactions) {
+      rows.append(transaction.getId() == null ? "" : transaction.getId().toHexString())
+          .append(',');
+      if (transaction.getDate() != null) {
+        DATE.formatTo(transaction.getDate(), rows);
+      }
+      rows.append(',');
+      if (transaction.getType() != null) {
+        rows.append(transaction.getType().intValue());
+      }
+      rows.append(',');
+      appendText(rows, transaction.getDescription());
+      rows.append(',');
+      appendAmount(rows, transaction.getAmount());
+      rows.append(',');
+      appendAmount(rows, transaction.getCommission());
+      rows.append('\n');
+    }
+    return rows;
+  }
+
+  private static void appendAmount(StringBuilder rows, BigDecimal amount) {
+    if (amount != null) {
+      rows.append(amount.toPlainString());
+    }
+  }
+
+  /**
+   * Append a text cell. The descriptions are written by the clients, so a cell a spreadsheet
+   * would read as a formula gets a leading quote and is always quoted.
+   */
+  private static void appendText(StringBuilder rows, String text) {
+    if (text == null) {
+      return;
+    }
+    boolean formula = isFormula(text);
+    boolean quote = formula || text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+        || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+    if (!quote) {
+      rows.append(text);
+      return;
+    }
+
+    rows.append('"');
+    if (formula) {
+      rows.append('\'');
+    }
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"') {
+        rows.append('"');
+      }
+      rows.append(c);
+    }
+    rows.append('"');
+  }
+
+  private static boolean isFormula(String text) {
+    if (text.isEmpty()) {
+      return false;
+    }
+    char first = text.charAt(0);
+    return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t'
+        || first == '\r';
+  }
+}
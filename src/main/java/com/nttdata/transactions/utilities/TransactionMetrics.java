@@ -0,0 +1,98 @@
+package com.nttdata.transactions.utilities;
+
+import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.exceptions.customs.CustomInsufficientBalanceException;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Timers of the transaction operations and of each stage they wait on.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionMetrics {
+  public static final String OPERATION = "transactions.operation";
+  public static final String STAGE = "transactions.stage";
+
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Times a whole operation of the API, with a percentile histogram.
+   *
+   * @param operation Name of the operation
+   * @param mono      Operation
+   */
+  public <T> Mono<T> operation(String operation, Mono<T> mono) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      return mono
+          .doOnSuccess(x -> stop(sample, OPERATION, "operation", operation, "success"))
+          .doOnError(e -> stop(sample, OPERATION, "operation", operation, outcome(e)))
+          .doOnCancel(() -> stop(sample, OPERATION, "operation", operation, "cancelled"));
+    });
+  }
+
+  /**
+   * Times a stage of an operation such as a remote lookup or a query.
+   *
+   * @param stage Name of the stage
+   * @param mono  Stage
+   */
+  public <T> Mono<T> stage(String stage, Mono<T> mono) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      return mono
+          .doOnSuccess(x -> stop(sample, STAGE, "stage", stage, "success"))
+          .doOnError(e -> stop(sample, STAGE, "stage", stage, outcome(e)))
+          .doOnCancel(() -> stop(sample, STAGE, "stage", stage, "cancelled"));
+    });
+  }
+
+  /**
+   * Times a stage that returns many elements, until the last one is received.
+   *
+   * @param stage Name of the stage
+   * @param flux  Stage
+   */
+  public <T> Flux<T> stage(String stage, Flux<T> flux) {
+    return Flux.defer(() -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      return flux
+          .doOnComplete(() -> stop(sample, STAGE, "stage", stage, "success"))
+          .doOnError(e -> stop(sample, STAGE, "stage", stage, outcome(e)))
+          .doOnCancel(() -> stop(sample, STAGE, "stage", stage, "cancelled"));
+    });
+  }
+
+  private void stop(Timer.Sample sample, String name, String tag, String value, String outcome) {
+    Timer.Builder timer = Timer.builder(name)
+        .tag(tag, value)
+        .tag("outcome", outcome);
+    if (OPERATION.equals(name)) {
+      timer.publishPercentileHistogram();
+    }
+    sample.stop(timer.register(meterRegistry));
+  }
+
+  private static String outcome(Throwable error) {
+    if (error instanceof CustomInsufficientBalanceException) {
+      return "insufficient_balance";
+    }
+    if (error instanceof CustomNotFoundException) {
+      return "not_found";
+    }
+    if (error instanceof CustomUnavailableException) {
+      return "unavailable";
+    }
+    if (error instanceof CustomInformationException) {
+      return "rejected";
+    }
+    return "error";
+  }
+}
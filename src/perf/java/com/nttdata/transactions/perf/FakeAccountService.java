@@ -0,0 +1,110 @@
+package com.nttdata.transactions.perf;
+
+import static com.nttdata.transactions.utilities.Constants.AccountType.CHECKING;
+
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.TypeAccountResponse;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.service.AccountService;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Account service kept in memory. Every debit card has two checking accounts and the balance
+ * changes are applied once per Idempotency-Key, so the withdrawals see the deposits.
+ */
+public class FakeAccountService implements AccountService {
+  private static final long FIRST_NUMBER = 1_000_000_000L;
+  private static final String BACKEND = "account";
+
+  private final FakeLatency latency;
+  private final Map<String, AccountResponse> byNumber = new HashMap<>();
+  private final Map<String, List<AccountResponse>> byDebitCard;
+  private final Map<String, BigDecimal> balances = new ConcurrentHashMap<>();
+  private final Set<String> applied = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Return the account service.
+   *
+   * @param accounts Accounts, numbered from {@link #number(int)} of zero
+   * @param balance  Starting balance of every account
+   */
+  public FakeAccountService(FakeLatency latency, int accounts, BigDecimal balance) {
+    this.latency = latency;
+    TypeAccountResponse type = new TypeAccountResponse(CHECKING, BigDecimal.ZERO, 20,
+        BigDecimal.ONE, null);
+    for (int i = 0; i < accounts; i++) {
+      AccountResponse account = AccountResponse.builder()
+          .id(new ObjectId(String.format("%024x", i + 1)).toString())
+          .number(number(i))
+          .debitCard(debitCard(i))
+          .position(i % 2 + 1)
+          .typeAccount(type)
+          .status(true)
+          .build();
+      byNumber.put(account.getNumber(), account);
+      balances.put(account.getId(), balance);
+    }
+    this.byDebitCard = byNumber.values().stream()
+        .collect(Collectors.groupingBy(AccountResponse::getDebitCard));
+  }
+
+  public static String number(int account) {
+    return String.valueOf(FIRST_NUMBER + account);
+  }
+
+  public static String debitCard(int account) {
+    return String.format("4000%012d", account / 2);
+  }
+
+  @Override
+  public Flux<AccountResponse> listByDebitCard(String debitCard) {
+    return latency.call(BACKEND, () -> Mono.justOrEmpty(byDebitCard.get(debitCard))
+            .switchIfEmpty(Mono.error(
+                new CustomNotFoundException("Debit card " + debitCard + " not found"))))
+        .flatMapIterable(accounts -> accounts)
+        .map(this::current);
+  }
+
+  @Override
+  public Mono<AccountResponse> findAccount(String number) {
+    return latency.call(BACKEND, () -> Mono.justOrEmpty(byNumber.get(number))
+        .switchIfEmpty(Mono.error(new CustomNotFoundException("Account " + number + " not found")))
+        .map(this::current));
+  }
+
+  @Override
+  public Mono<AccountResponse> findAccountForDebit(String number) {
+    return findAccount(number);
+  }
+
+  @Override
+  public Mono<BigDecimal> getTotalBalanceByDebitCard(String debitCard) {
+    return listByDebitCard(debitCard)
+        .map(AccountResponse::getBalance)
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
+
+  @Override
+  public Mono<Void> updateAccount(String id, BigDecimal amount, String idempotencyKey) {
+    return latency.call(BACKEND, () -> Mono.fromRunnable(() -> {
+      if (applied.add(idempotencyKey)) {
+        balances.computeIfPresent(id, (key, balance) -> balance.add(amount));
+      }
+    }));
+  }
+
+  private AccountResponse current(AccountResponse account) {
+    return account.toBuilder()
+        .balance(balances.get(account.getId()))
+        .build();
+  }
+}
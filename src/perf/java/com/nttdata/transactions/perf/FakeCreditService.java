@@ -0,0 +1,63 @@
+package com.nttdata.transactions.perf;
+
+import com.nttdata.transactions.dto.response.CreditResponse;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.service.CreditService;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Mono;
+
+/**
+ * Credit service kept in memory, the balance changes are applied once per Idempotency-Key.
+ */
+public class FakeCreditService implements CreditService {
+  private static final long FIRST_NUMBER = 2_000_000_000L;
+  private static final String BACKEND = "credit";
+
+  private final FakeLatency latency;
+  private final Map<String, CreditResponse> byNumber = new HashMap<>();
+  private final Map<String, BigDecimal> balances = new ConcurrentHashMap<>();
+  private final Set<String> applied = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Return the credit service.
+   *
+   * @param credits Credits, numbered from {@link #number(int)} of zero
+   * @param total   Credit line of every credit, also its starting balance
+   */
+  public FakeCreditService(FakeLatency latency, int credits, BigDecimal total) {
+    this.latency = latency;
+    for (int i = 0; i < credits; i++) {
+      CreditResponse credit = new CreditResponse(
+          new ObjectId(String.format("%08x%016x", 1, i + 1)).toString(), null, number(i),
+          true, 1, total, null);
+      byNumber.put(credit.getNumber(), credit);
+      balances.put(credit.getId(), total);
+    }
+  }
+
+  public static String number(int credit) {
+    return String.valueOf(FIRST_NUMBER + credit);
+  }
+
+  @Override
+  public Mono<CreditResponse> findCredit(String number) {
+    return latency.call(BACKEND, () -> Mono.justOrEmpty(byNumber.get(number))
+        .switchIfEmpty(Mono.error(new CustomNotFoundException("Credit " + number + " not found")))
+        .map(credit -> new CreditResponse(credit.getId(), null, credit.getNumber(), true,
+            credit.getType(), credit.getCreditTotal(), balances.get(credit.getId()))));
+  }
+
+  @Override
+  public Mono<Void> updateCredit(String id, BigDecimal amount, String idempotencyKey) {
+    return latency.call(BACKEND, () -> Mono.fromRunnable(() -> {
+      if (applied.add(idempotencyKey)) {
+        balances.computeIfPresent(id, (key, balance) -> balance.add(amount));
+      }
+    }));
+  }
+}
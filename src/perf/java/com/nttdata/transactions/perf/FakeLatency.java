@@ -0,0 +1,49 @@
+package com.nttdata.transactions.perf;
+
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Latency and failures of the in-process backends. The latency follows a log-normal
+ * distribution, which has the long tail of a real remote call, fitted to a median and a p99.
+ */
+public class FakeLatency {
+  private static final double Z_99 = 2.3263;
+
+  private final double mu;
+  private final double sigma;
+  private final double errorRate;
+
+  /**
+   * Return the latency of the backends.
+   *
+   * @param median    Median latency of a call, zero for none
+   * @param p99       99th percentile latency of a call
+   * @param errorRate Fraction of the calls that fail as an unavailable backend
+   */
+  public FakeLatency(Duration median, Duration p99, double errorRate) {
+    this.mu = median.isZero() ? Double.NEGATIVE_INFINITY : Math.log(median.toNanos());
+    this.sigma = median.isZero() || p99.compareTo(median) <= 0
+        ? 0
+        : (Math.log(p99.toNanos()) - mu) / Z_99;
+    this.errorRate = errorRate;
+  }
+
+  /**
+   * Return the answer of a call once its latency has passed, or an error at the error rate.
+   *
+   * @param backend Name of the backend, for the error message
+   * @param answer  Answer of the call
+   */
+  public <T> Mono<T> call(String backend, Supplier<Mono<T>> answer) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Mono<T> result = random.nextDouble() < errorRate
+        ? Mono.error(new CustomUnavailableException("The " + backend + " service is unavailable"))
+        : Mono.defer(answer);
+    long delay = (long) Math.exp(mu + sigma * random.nextGaussian());
+    return delay <= 0 ? result : Mono.delay(Duration.ofNanos(delay)).then(result);
+  }
+}
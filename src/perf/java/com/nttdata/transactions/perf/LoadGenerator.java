@@ -0,0 +1,266 @@
+package com.nttdata.transactions.perf;
+
+import com.nttdata.transactions.TransactionsApplication;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Starts the service with the perf profile and drives its HTTP endpoints with a weighted mix
+ * of operations from a fixed number of concurrent clients, each one sends its next request
+ * when the previous one is answered. After a warmup it reports the throughput and the latency
+ * percentiles of every operation, a response that is not 2xx counts as an error. The settings
+ * are the perf.load properties, any of them can be given as an argument such as
+ * --perf.load.duration=5m or --perf.load.mix.summary=0.
+ */
+public class LoadGenerator {
+  private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+  private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+  private final WebClient webClient;
+  private final int accounts;
+  private final int credits;
+  private final int concurrency;
+  private final BigDecimal amount;
+  private final Map<String, Function<ThreadLocalRandom, Mono<?>>> operations;
+  private final String[] weighted;
+
+  /**
+   * Return the load generator of a running service.
+   *
+   * @param baseUrl     Base URL of the transactions
+   * @param environment Environment with the perf settings
+   */
+  public LoadGenerator(String baseUrl, Environment environment) {
+    this.webClient = WebClient.create(baseUrl);
+    this.accounts = environment.getProperty("perf.backend.accounts", Integer.class, 1000);
+    this.credits = environment.getProperty("perf.backend.credits", Integer.class, 100);
+    this.concurrency = environment.getProperty("perf.load.concurrency", Integer.class, 32);
+    this.amount = environment.getProperty("perf.load.amount", BigDecimal.class, BigDecimal.TEN);
+    this.operations = operations();
+
+    Map<String, Integer> mix = Binder.get(environment)
+        .bind("perf.load.mix", Bindable.mapOf(String.class, Integer.class))
+        .orElse(Map.of("deposit", 1));
+    mix.keySet().stream()
+        .filter(operation -> !operations.containsKey(operation))
+        .findFirst()
+        .ifPresent(operation -> {
+          throw new IllegalArgumentException("Unknown operation " + operation
+              + ", the operations are " + operations.keySet());
+        });
+    this.weighted = mix.entrySet().stream()
+        .flatMap(entry -> Stream.generate(entry::getKey).limit(Math.max(entry.getValue(), 0)))
+        .toArray(String[]::new);
+    if (weighted.length == 0) {
+      throw new IllegalArgumentException("The mix has no operation with a positive weight");
+    }
+  }
+
+  /**
+   * Start the service, load it and print the report.
+   */
+  public static void main(String[] args) {
+    String[] arguments = Stream.concat(Stream.of("--spring.profiles.active=perf"),
+        Stream.of(args)).toArray(String[]::new);
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(
+        TransactionsApplication.class).run(arguments);
+    int status = 0;
+    try {
+      Environment environment = context.getEnvironment();
+      LoadGenerator generator = new LoadGenerator("http://localhost:"
+          + environment.getProperty("local.server.port")
+          + environment.getProperty("spring.webflux.base-path", ""), environment);
+      generator.run(environment.getProperty("perf.load.warmup", Duration.class,
+          Duration.ofSeconds(10)));
+      Report report = generator.run(environment.getProperty("perf.load.duration",
+          Duration.class, Duration.ofSeconds(60)));
+      report.print(System.out);
+    } catch (RuntimeException e) {
+      logger.error("The load could not be generated", e);
+      status = 1;
+    } finally {
+      SpringApplication.exit(context);
+    }
+    System.exit(status);
+  }
+
+  /**
+   * Return the report of a run of the mix for a duration.
+   */
+  public Report run(Duration duration) {
+    Report report = new Report(operations.keySet());
+    long deadline = System.nanoTime() + duration.toNanos();
+    long start = System.nanoTime();
+    Flux.range(0, concurrency)
+        .flatMap(client -> Mono.defer(() -> call(report))
+            .repeat(() -> System.nanoTime() < deadline), concurrency)
+        .blockLast();
+    report.elapsed = System.nanoTime() - start;
+    return report;
+  }
+
+  private Mono<Void> call(Report report) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String operation = weighted[random.nextInt(weighted.length)];
+    Stats stats = report.stats.get(operation);
+    long start = System.nanoTime();
+    return operations.get(operation).apply(random)
+        .doOnSuccess(x -> stats.record(System.nanoTime() - start))
+        .doOnError(e -> stats.errors.increment())
+        .onErrorResume(e -> Mono.empty())
+        .then();
+  }
+
+  private Map<String, Function<ThreadLocalRandom, Mono<?>>> operations() {
+    Map<String, Function<ThreadLocalRandom, Mono<?>>> all = new LinkedHashMap<>();
+    all.put("deposit", random -> post("/deposit/account/{number}", account(random)));
+    all.put("withdrawal", random -> post("/withdrawal/account/{number}", account(random)));
+    all.put("transfer", random -> {
+      int exit = random.nextInt(accounts);
+      int entry = (exit + 1 + random.nextInt(Math.max(accounts - 1, 1))) % accounts;
+      return post("/transfer/account/{exitNumber}/account/{entryNumber}",
+          FakeAccountService.number(exit), FakeAccountService.number(entry));
+    });
+    all.put("debit-card", random -> post("/withdrawal/debitCard/{debitCard}",
+        FakeAccountService.debitCard(random.nextInt(accounts))));
+    all.put("pay", random -> postAmount("/pay/credit/{number}", credit(random)));
+    all.put("spend", random -> postAmount("/spend/credit/{number}", credit(random)));
+    all.put("summary", random -> webClient
+        .get()
+        .uri(uri -> uri.path("/get/account/{number}/summary")
+            .queryParam("start", LocalDate.now().withDayOfMonth(1).format(DAY))
+            .queryParam("end", LocalDate.now().format(DAY))
+            .build(account(random)))
+        .retrieve()
+        .onStatus(status -> !status.is2xxSuccessful(), ClientResponse::createException)
+        .toBodilessEntity());
+    all.put("list", random -> webClient
+        .get()
+        .uri(uri -> uri.path("/get/account/{number}")
+            .queryParam("limit", 20)
+            .build(account(random)))
+        .retrieve()
+        .onStatus(status -> !status.is2xxSuccessful(), ClientResponse::createException)
+        .bodyToFlux(String.class)
+        .then());
+    return all;
+  }
+
+  /**
+   * Post to an account or debit card endpoint, which reads the amount from a JSON body.
+   */
+  private Mono<?> post(String path, Object... variables) {
+    return webClient
+        .post()
+        .uri(path, variables)
+        .bodyValue(Map.of("amount", amount))
+        .retrieve()
+        .onStatus(status -> !status.is2xxSuccessful(), ClientResponse::createException)
+        .toBodilessEntity();
+  }
+
+  /**
+   * Post to a credit endpoint, which reads the amount from the query.
+   */
+  private Mono<?> postAmount(String path, Object... variables) {
+    return webClient
+        .post()
+        .uri(uri -> uri.path(path).queryParam("amount", amount).build(variables))
+        .retrieve()
+        .onStatus(status -> !status.is2xxSuccessful(), ClientResponse::createException)
+        .toBodilessEntity();
+  }
+
+  private String account(ThreadLocalRandom random) {
+    return FakeAccountService.number(random.nextInt(accounts));
+  }
+
+  private String credit(ThreadLocalRandom random) {
+    return FakeCreditService.number(random.nextInt(credits));
+  }
+
+  /**
+   * Requests, errors and latencies of a run.
+   */
+  public static class Report {
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private long elapsed;
+
+    Report(Iterable<String> operations) {
+      operations.forEach(operation -> stats.put(operation, new Stats()));
+    }
+
+    /**
+     * Print a line for every operation of the mix and one for all of them.
+     */
+    public void print(PrintStream out) {
+      Stats total = new Stats();
+      List<Map.Entry<String, Stats>> used = stats.entrySet().stream()
+          .filter(entry -> entry.getValue().requests() > 0)
+          .collect(Collectors.toList());
+      used.forEach(entry -> total.add(entry.getValue()));
+
+      double seconds = elapsed / 1e9;
+      out.printf("%nLoad of %.1f s%n", seconds);
+      out.printf("%-12s %10s %8s %10s %9s %9s %9s %9s%n", "operation", "requests", "errors",
+          "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+      used.forEach(entry -> entry.getValue().print(out, entry.getKey(), seconds));
+      total.print(out, "total", seconds);
+    }
+  }
+
+  private static class Stats {
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY, 3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long latency) {
+      latencies.recordValue(Math.min(latency, HIGHEST_LATENCY));
+    }
+
+    void add(Stats other) {
+      latencies.add(other.latencies);
+      errors.add(other.errors.sum());
+    }
+
+    long requests() {
+      return latencies.getTotalCount() + errors.sum();
+    }
+
+    void print(PrintStream out, String operation, double seconds) {
+      out.printf("%-12s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", operation, requests(),
+          errors.sum(), requests() / seconds, millis(50), millis(99), millis(99.9),
+          latencies.getMaxValue() / 1e6);
+    }
+
+    private double millis(double percentile) {
+      return latencies.getValueAtPercentile(percentile) / 1e6;
+    }
+  }
+}
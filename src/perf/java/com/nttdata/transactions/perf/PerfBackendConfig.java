@@ -0,0 +1,51 @@
+package com.nttdata.transactions.perf;
+
+import com.nttdata.transactions.service.AccountService;
+import com.nttdata.transactions.service.CreditService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * In-process account and credit services of the perf profile, so the service can be loaded
+ * without the services it calls.
+ */
+@Configuration
+@Profile("perf")
+public class PerfBackendConfig {
+  /**
+   * Return the latency of the backends.
+   *
+   * @param median    Median latency of a call
+   * @param p99       99th percentile latency of a call
+   * @param errorRate Fraction of the calls that fail
+   */
+  @Bean
+  public FakeLatency fakeLatency(@Value("${perf.backend.latency.median:5ms}") Duration median,
+                                 @Value("${perf.backend.latency.p99:50ms}") Duration p99,
+                                 @Value("${perf.backend.error-rate:0}") double errorRate) {
+    return new FakeLatency(median, p99, errorRate);
+  }
+
+  @Bean
+  @Primary
+  public AccountService fakeAccountService(FakeLatency latency,
+                                           @Value("${perf.backend.accounts:1000}") int accounts,
+                                           @Value("${perf.backend.balance:1000000}")
+                                               BigDecimal balance) {
+    return new FakeAccountService(latency, accounts, balance);
+  }
+
+  @Bean
+  @Primary
+  public CreditService fakeCreditService(FakeLatency latency,
+                                         @Value("${perf.backend.credits:100}") int credits,
+                                         @Value("${perf.backend.credit-total:1000000}")
+                                             BigDecimal total) {
+    return new FakeCreditService(latency, credits, total);
+  }
+}
@@ -0,0 +1,82 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.service.AccountCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+
+class AccountCacheTest {
+  private final AtomicInteger remoteCalls = new AtomicInteger();
+
+  @SuppressWarnings("unchecked")
+  private final AccountCache accountCache = new AccountCache(true, Duration.ofMinutes(1), 100,
+      mock(ObjectProvider.class));
+
+  private Mono<AccountResponse> remoteAccount() {
+    return Mono.fromSupplier(() -> {
+      remoteCalls.incrementAndGet();
+      return AccountResponse.builder()
+          .id("6234f0ab1c2d3e4f5a6b7c8d")
+          .number("1234567890")
+          .balance(BigDecimal.valueOf(1000))
+          .build();
+    });
+  }
+
+  @Test
+  void testGetReadsTheAccountOnce() {
+    StepVerifier
+        .create(accountCache.get("1234567890", this::remoteAccount)
+            .then(accountCache.get("1234567890", this::remoteAccount)))
+        .consumeNextWith(account -> Assertions.assertEquals(BigDecimal.valueOf(1000),
+            account.getBalance()))
+        .verifyComplete();
+
+    Assertions.assertEquals(1, remoteCalls.get());
+  }
+
+  @Test
+  void testInvalidateByIdReadsTheAccountAgain() {
+    StepVerifier
+        .create(accountCache.get("1234567890", this::remoteAccount)
+            .doOnNext(account -> accountCache.invalidateById(account.getId()))
+            .then(accountCache.get("1234567890", this::remoteAccount)))
+        .consumeNextWith(account -> Assertions.assertEquals(BigDecimal.valueOf(1000),
+            account.getBalance()))
+        .verifyComplete();
+
+    Assertions.assertEquals(2, remoteCalls.get());
+  }
+
+  @Test
+  void testInvalidateByIdOfUnknownAccount() {
+    StepVerifier
+        .create(accountCache.get("1234567890", this::remoteAccount)
+            .doOnNext(account -> accountCache.invalidateById("6234f0ab1c2d3e4f5a6b7c8e"))
+            .then(accountCache.get("1234567890", this::remoteAccount)))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertEquals(1, remoteCalls.get());
+  }
+
+  @Test
+  void testRefreshAlwaysReadsTheAccount() {
+    StepVerifier
+        .create(accountCache.get("1234567890", this::remoteAccount)
+            .then(accountCache.refresh("1234567890", this::remoteAccount)))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertEquals(2, remoteCalls.get());
+  }
+}
@@ -0,0 +1,115 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.config.BackendClientProperties;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import com.nttdata.transactions.service.BackendResilience;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nttdata.transactions.service.BackendResilience.ACCOUNT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BackendResilienceTest {
+  private final AtomicInteger remoteCalls = new AtomicInteger();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final BackendClientProperties properties = new BackendClientProperties();
+
+  @BeforeEach
+  void setUp() {
+    BackendClientProperties.Pool account = properties.getAccount();
+    account.setDeadline(Duration.ofMillis(500));
+    account.getCircuitBreaker().setSlidingWindowSize(2);
+    account.getCircuitBreaker().setMinimumNumberOfCalls(2);
+    account.getHedge().setMinDelay(Duration.ofMillis(20));
+  }
+
+  @SuppressWarnings("unchecked")
+  private BackendResilience resilience() {
+    ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable(any())).thenReturn(meterRegistry);
+    return new BackendResilience(properties, provider);
+  }
+
+  private Mono<String> remote(Mono<String> response) {
+    return Mono.defer(() -> {
+      remoteCalls.incrementAndGet();
+      return response;
+    });
+  }
+
+  @Test
+  void testReadFailsAtTheDeadline() {
+    properties.getAccount().setDeadline(Duration.ofMillis(50));
+
+    StepVerifier
+        .create(resilience().read(ACCOUNT, () -> remote(Mono.never())))
+        .expectErrorMatches(e -> e instanceof CustomUnavailableException
+            && e.getMessage().equals("Account service did not answer in time"))
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testOpenCircuitRejectsWithoutCalling() {
+    BackendResilience resilience = resilience();
+    for (int i = 0; i < 2; i++) {
+      StepVerifier
+          .create(resilience.read(ACCOUNT, () -> remote(Mono.error(new IllegalStateException()))))
+          .expectError(IllegalStateException.class)
+          .verify();
+    }
+
+    StepVerifier
+        .create(resilience.read(ACCOUNT, () -> remote(Mono.just("account"))))
+        .expectErrorMatches(e -> e instanceof CustomUnavailableException
+            && e.getMessage().equals("Account service is unavailable"))
+        .verify();
+    Assertions.assertEquals(2, remoteCalls.get());
+  }
+
+  @Test
+  void testNotFoundDoesNotOpenTheCircuit() {
+    BackendResilience resilience = resilience();
+    for (int i = 0; i < 3; i++) {
+      StepVerifier
+          .create(resilience.read(ACCOUNT, () -> remote(Mono.error(
+              new CustomNotFoundException("Account 1234567890 not found")))))
+          .expectError(CustomNotFoundException.class)
+          .verify();
+    }
+
+    StepVerifier
+        .create(resilience.read(ACCOUNT, () -> remote(Mono.just("account"))))
+        .expectNext("account")
+        .verifyComplete();
+    Assertions.assertEquals(4, remoteCalls.get());
+  }
+
+  @Test
+  void testHedgeAnswersWhenTheFirstReadIsSlow() {
+    properties.getAccount().getHedge().setEnabled(true);
+    BackendResilience resilience = resilience();
+
+    StepVerifier
+        .create(resilience.read(ACCOUNT, () -> remoteCalls.get() == 0
+            ? remote(Mono.never())
+            : remote(Mono.just("hedged"))))
+        .expectNext("hedged")
+        .verifyComplete();
+
+    Assertions.assertEquals(2, remoteCalls.get());
+    Assertions.assertEquals(1, meterRegistry.get(BackendResilience.HEDGES)
+        .tag("downstream", ACCOUNT).tag("outcome", "won").counter().count());
+  }
+}
@@ -0,0 +1,499 @@
+package com.nttdata.transactions;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.model.BalanceChange;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionQueries;
+import com.nttdata.transactions.service.AccountService;
+import com.nttdata.transactions.service.BalanceOutboxServiceImpl;
+import com.nttdata.transactions.service.CreditService;
+import com.nttdata.transactions.utilities.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.DONE;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.FAILED;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PENDING;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.PROCESSING;
+import static com.nttdata.transactions.utilities.Constants.OutboxStatus.REJECTED;
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.CREDIT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class BalanceOutboxServiceTest {
+  @Mock
+  private ReactiveMongoTemplate mongoTemplate;
+
+  @Mock
+  private AccountService accountService;
+
+  @Mock
+  private CreditService creditService;
+
+  @Spy
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @InjectMocks
+  private BalanceOutboxServiceImpl balanceOutboxService;
+
+  private final List<Transaction> stored = new ArrayList<>();
+
+  private final List<Transaction> listed = new ArrayList<>();
+
+  private final List<Transaction> due = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(balanceOutboxService, "batchSize", 10);
+    ReflectionTestUtils.setField(balanceOutboxService, "concurrency", 2);
+    ReflectionTestUtils.setField(balanceOutboxService, "idempotentDownstream", true);
+    ReflectionTestUtils.setField(balanceOutboxService, "maxAttempts", 3);
+    ReflectionTestUtils.setField(balanceOutboxService, "backoff", Duration.ofMillis(100));
+    ReflectionTestUtils.setField(balanceOutboxService, "maxBackoff", Duration.ofSeconds(1));
+    ReflectionTestUtils.setField(balanceOutboxService, "lease", Duration.ofSeconds(5));
+    ReflectionTestUtils.setField(balanceOutboxService, "coalesceMax", 2);
+    when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Transaction.class)))
+        .thenAnswer(invocation -> {
+          long matched = assign(invocation.getArgument(0), invocation.getArgument(1));
+          return Mono.just(UpdateResult.acknowledged(matched, matched, null));
+        });
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+        .thenAnswer(invocation -> Flux.fromIterable(find(invocation.getArgument(0))));
+  }
+
+  @Test
+  void testEnqueue() {
+    Transaction transaction = new Transaction();
+
+    balanceOutboxService.enqueue(transaction, Money.ofMinor(-10000));
+    balanceOutboxService.enqueue(transaction, Money.ofMinor(-200));
+
+    assertEquals(Money.ofMinor(-10200), transaction.getBalance().getAmount());
+    assertEquals(PENDING, transaction.getBalance().getStatus());
+  }
+
+  @Test
+  void testDrain() {
+    Transaction account = entry(ACCOUNT, 1);
+    Transaction credit = entry(CREDIT, 1);
+    claim(account, credit);
+    when(accountService.updateAccount(eq(account.getIdProduct().toString()),
+        eq(BigDecimal.valueOf(1000, 2)), anyString()))
+        .thenReturn(Mono.empty());
+    when(creditService.updateCredit(eq(credit.getIdProduct().toString()),
+        eq(BigDecimal.valueOf(1000, 2)), anyString()))
+        .thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(2L)
+        .verifyComplete();
+
+    assertEquals(List.of(DONE, DONE), statuses());
+    verify(accountService).updateAccount(account.getIdProduct().toString(),
+        BigDecimal.valueOf(1000, 2), account.getBalance().getDelivery().toString());
+    verify(creditService).updateCredit(credit.getIdProduct().toString(),
+        BigDecimal.valueOf(1000, 2), credit.getBalance().getDelivery().toString());
+  }
+
+  @Test
+  void testDrainCoalesced() {
+    Transaction first = entry(ACCOUNT, 1);
+    Transaction second = entry(ACCOUNT, 1);
+    Transaction third = entry(ACCOUNT, 1);
+    second.setIdProduct(first.getIdProduct());
+    second.getBalance().setAmount(Money.ofMinor(-300));
+    third.setIdProduct(first.getIdProduct());
+    claim(first, second, third);
+    when(accountService.updateAccount(any(), any(), any())).thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(3L)
+        .verifyComplete();
+
+    String id = first.getIdProduct().toString();
+    assertEquals(first.getBalance().getDelivery(), second.getBalance().getDelivery());
+    verify(accountService).updateAccount(id, BigDecimal.valueOf(700, 2),
+        first.getBalance().getDelivery().toString());
+    verify(accountService).updateAccount(id, BigDecimal.valueOf(1000, 2),
+        third.getBalance().getDelivery().toString());
+    assertEquals(2, meterRegistry.summary("transactions.outbox.coalesced").count());
+    assertEquals(3, meterRegistry.summary("transactions.outbox.coalesced").totalAmount());
+  }
+
+  @Test
+  void testDrainClaimsBatchInOneUpdate() {
+    Transaction first = entry(ACCOUNT, 1);
+    Transaction second = entry(ACCOUNT, 1);
+    Transaction taken = entry(ACCOUNT, 1);
+    second.setIdProduct(first.getIdProduct());
+    claim(first, second, taken);
+    // another drain claims it between the listing and the update
+    due.remove(taken);
+    when(accountService.updateAccount(any(), any(), any())).thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(2L)
+        .verifyComplete();
+
+    ArgumentCaptor<Query> updates = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate, times(3)).updateMulti(updates.capture(), any(Update.class),
+        eq(Transaction.class));
+    assertEquals(1, updates.getAllValues().stream()
+        .filter(query -> query.getQueryObject().containsKey("$or"))
+        .count());
+    assertEquals(first.getBalance().getClaim(), second.getBalance().getClaim());
+    assertNull(taken.getBalance().getClaim());
+    verify(accountService).updateAccount(first.getIdProduct().toString(),
+        BigDecimal.valueOf(2000, 2), first.getBalance().getDelivery().toString());
+    assertEquals(List.of(DONE, DONE, PROCESSING), statuses());
+  }
+
+  @Test
+  void testDrainWithoutDueEntries() {
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(0L)
+        .verifyComplete();
+
+    verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class),
+        eq(Transaction.class));
+  }
+
+  @Test
+  void testDrainSendsDeliveryAgain() {
+    ObjectId delivery = new ObjectId();
+    Transaction claimed = entry(ACCOUNT, 2);
+    Transaction other = entry(ACCOUNT, 1);
+    other.setIdProduct(claimed.getIdProduct());
+    other.getBalance().setAmount(Money.ofMinor(-300));
+    claimed.getBalance().setDelivery(delivery);
+    other.getBalance().setDelivery(delivery);
+    stored.add(other);
+    claim(claimed);
+    when(accountService.updateAccount(any(), any(), any())).thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(2L)
+        .verifyComplete();
+
+    verify(accountService).updateAccount(claimed.getIdProduct().toString(),
+        BigDecimal.valueOf(700, 2), delivery.toString());
+    assertEquals(List.of(DONE, DONE), statuses());
+  }
+
+  @Test
+  void testDrainWithError() {
+    Transaction retry = entry(ACCOUNT, 1);
+    claim(retry);
+    when(accountService.updateAccount(any(), any(), any()))
+        .thenReturn(Mono.error(new IllegalStateException("Service unavailable")));
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(PENDING), statuses());
+
+    Transaction failed = entry(ACCOUNT, 3);
+    stored.clear();
+    claim(failed);
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(FAILED), statuses());
+    ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+    verify(accountService, times(2)).updateAccount(any(), any(), keys.capture());
+    assertEquals(retry.getBalance().getDelivery().toString(), keys.getAllValues().get(0));
+    verify(creditService, never()).updateCredit(any(), any(), any());
+  }
+
+  @Test
+  void testDrainWithoutIdempotentDownstream() {
+    ReflectionTestUtils.setField(balanceOutboxService, "idempotentDownstream", false);
+    Transaction unknown = entry(ACCOUNT, 1);
+    claim(unknown);
+    when(accountService.updateAccount(any(), any(), any()))
+        .thenReturn(Mono.error(new IllegalStateException("Read timed out")));
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(FAILED), statuses());
+
+    Transaction refused = entry(ACCOUNT, 1);
+    stored.clear();
+    claim(refused);
+    when(accountService.updateAccount(any(), any(), any()))
+        .thenReturn(Mono.error(new IllegalStateException("Connection failed",
+            new ConnectException("Connection refused"))));
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(PENDING), statuses());
+    assertNull(refused.getBalance().getDelivery());
+  }
+
+  @Test
+  void testDrainDoesNotSendAgainWithoutIdempotentDownstream() {
+    ReflectionTestUtils.setField(balanceOutboxService, "idempotentDownstream", false);
+    Transaction claimed = entry(ACCOUNT, 2);
+    claimed.getBalance().setDelivery(new ObjectId());
+    claim(claimed);
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(0L)
+        .verifyComplete();
+
+    assertEquals(List.of(FAILED), statuses());
+    verify(accountService, never()).updateAccount(any(), any(), any());
+    assertEquals(1, meterRegistry.counter("transactions.outbox.failed").count());
+  }
+
+  @Test
+  void testDrainCountsFailedEntries() {
+    ReflectionTestUtils.setField(balanceOutboxService, "idempotentDownstream", false);
+    claim(entry(ACCOUNT, 1));
+    when(accountService.updateAccount(any(), any(), any()))
+        .thenReturn(Mono.error(new IllegalStateException("Read timed out")));
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(FAILED), statuses());
+    assertEquals(1, meterRegistry.counter("transactions.outbox.failed").count());
+  }
+
+  @Test
+  void testDrainRejectedByClientError() {
+    ReflectionTestUtils.setField(balanceOutboxService, "idempotentDownstream", false);
+    claim(entry(ACCOUNT, 1));
+    when(accountService.updateAccount(any(), any(), any()))
+        .thenReturn(Mono.error(WebClientResponseException.create(400, "Bad Request", null,
+            null, null)));
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(REJECTED), statuses());
+    assertEquals(0, meterRegistry.counter("transactions.outbox.failed").count());
+
+    Transaction throttled = entry(ACCOUNT, 1);
+    stored.clear();
+    claim(throttled);
+    when(accountService.updateAccount(any(), any(), any()))
+        .thenReturn(Mono.error(WebClientResponseException.create(429, "Too Many Requests",
+            null, null, null)));
+
+    StepVerifier
+        .create(balanceOutboxService.drain())
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(PENDING), statuses());
+  }
+
+  @Test
+  void testUnsettledLeavesRejectedOut() {
+    Document filter = TransactionQueries.unsettledBalanceDebits(List.of(new ObjectId()), ACCOUNT,
+        LocalDateTime.now()).getQueryObject();
+    Collection<?> statuses = filter.getList("$or", Document.class).get(0)
+        .get("balance.status", Document.class).get("$in", Collection.class);
+
+    assertTrue(statuses.contains(FAILED));
+    assertFalse(statuses.contains(REJECTED));
+  }
+
+  @Test
+  void testResolve() {
+    Transaction applied = entry(ACCOUNT, 3);
+    Transaction notApplied = entry(ACCOUNT, 3);
+    applied.getBalance().setDelivery(new ObjectId());
+    applied.getBalance().setStatus(FAILED);
+    notApplied.getBalance().setDelivery(new ObjectId());
+    notApplied.getBalance().setStatus(FAILED);
+    stored.addAll(List.of(applied, notApplied));
+
+    StepVerifier
+        .create(balanceOutboxService.resolve(applied.getBalance().getDelivery().toString(),
+            true))
+        .expectNext(1L)
+        .verifyComplete();
+    StepVerifier
+        .create(balanceOutboxService.resolve(notApplied.getBalance().getDelivery().toString(),
+            false))
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(List.of(DONE, REJECTED), statuses());
+  }
+
+  @Test
+  void testResolveWithoutFailedDelivery() {
+    Transaction pending = entry(ACCOUNT, 1);
+    pending.getBalance().setDelivery(new ObjectId());
+    stored.add(pending);
+
+    StepVerifier
+        .create(balanceOutboxService.resolve(pending.getBalance().getDelivery().toString(),
+            true))
+        .expectError(CustomNotFoundException.class)
+        .verify();
+    StepVerifier
+        .create(balanceOutboxService.resolve("unknown", false))
+        .expectError(CustomNotFoundException.class)
+        .verify();
+
+    assertEquals(List.of(PROCESSING), statuses());
+  }
+
+  private Transaction entry(int collection, int attempts) {
+    LocalDateTime now = LocalDateTime.now();
+    Transaction transaction = new Transaction(collection, new ObjectId().toString(), null, EXIT,
+        BigDecimal.TEN, BigDecimal.ZERO);
+    transaction.setId(new ObjectId());
+    transaction.setBalance(new BalanceChange(Money.of(BigDecimal.TEN), PROCESSING, attempts,
+        now, now.plusSeconds(5), null, null, null, null));
+    return transaction;
+  }
+
+  /**
+   * Store transactions that a drain lists as due and can claim.
+   */
+  private void claim(Transaction... transactions) {
+    stored.addAll(List.of(transactions));
+    listed.addAll(List.of(transactions));
+    due.addAll(List.of(transactions));
+  }
+
+  private List<Transaction> find(Query query) {
+    Document filter = query.getQueryObject();
+    if (filter.containsKey("balance.claim")) {
+      Collection<?> ids = filter.get("_id", Document.class).get("$in", Collection.class);
+      return stored.stream()
+          .filter(transaction -> ids.contains(transaction.getId()))
+          .filter(transaction -> filter.get("balance.claim")
+              .equals(transaction.getBalance().getClaim()))
+          .collect(Collectors.toList());
+    } else if (filter.containsKey("$or")) {
+      return listed.stream().limit(query.getLimit()).collect(Collectors.toList());
+    }
+    return delivery(query);
+  }
+
+  /**
+   * Apply to the stored transactions the claim, delivery and status updates of the outbox.
+   */
+  private long assign(Query query, Update update) {
+    Document filter = query.getQueryObject();
+    Document set = update.getUpdateObject().get("$set", Document.class);
+    Document unset = update.getUpdateObject().get("$unset", Document.class);
+    List<Transaction> matched;
+    if (filter.containsKey("_id") && filter.containsKey("$or")) {
+      Collection<?> ids = filter.get("_id", Document.class).get("$in", Collection.class);
+      matched = due.stream()
+          .filter(transaction -> ids.contains(transaction.getId()))
+          .collect(Collectors.toList());
+      due.removeAll(matched);
+      listed.removeAll(matched);
+    } else if (filter.containsKey("_id")) {
+      Collection<?> ids = filter.get("_id", Document.class).get("$in", Collection.class);
+      matched = stored.stream()
+          .filter(transaction -> ids.contains(transaction.getId()))
+          .filter(transaction -> transaction.getBalance().getDelivery() == null)
+          .collect(Collectors.toList());
+    } else {
+      matched = delivery(query);
+    }
+    matched.forEach(transaction -> {
+      BalanceChange balance = transaction.getBalance();
+      if (set.containsKey("balance.claim")) {
+        balance.setClaim(set.get("balance.claim", ObjectId.class));
+      }
+      if (set.containsKey("balance.delivery")) {
+        balance.setDelivery(set.get("balance.delivery", ObjectId.class));
+      }
+      if (set.containsKey("balance.status")) {
+        balance.setStatus(set.getInteger("balance.status"));
+      }
+      if (unset != null && unset.containsKey("balance.delivery")) {
+        balance.setDelivery(null);
+      }
+    });
+    return matched.size();
+  }
+
+  private List<Transaction> delivery(Query query) {
+    Object delivery = query.getQueryObject().get("balance.delivery");
+    Object status = query.getQueryObject().get("balance.status");
+    return stored.stream()
+        .filter(transaction -> Objects.equals(delivery, transaction.getBalance().getDelivery()))
+        .filter(transaction -> status == null
+            || status.equals(transaction.getBalance().getStatus()))
+        .collect(Collectors.toList());
+  }
+
+  private List<Integer> statuses() {
+    return stored.stream()
+        .map(transaction -> transaction.getBalance().getStatus())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,235 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.dto.request.BatchOperationRequest;
+import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.BatchOperationResponse;
+import com.nttdata.transactions.dto.response.TypeAccountResponse;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.service.AccountService;
+import com.nttdata.transactions.service.BalanceOutboxService;
+import com.nttdata.transactions.service.BatchTransactionServiceImpl;
+import com.nttdata.transactions.service.ProductLanes;
+import com.nttdata.transactions.utilities.Money;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static com.nttdata.transactions.utilities.Constants.AccountType.SAVING;
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class BatchTransactionServiceTest {
+  @Mock
+  private TransactionRepository transactionRepository;
+
+  @Mock
+  private AccountService accountService;
+
+  @Mock
+  private BalanceOutboxService balanceOutboxService;
+
+  @Spy
+  @SuppressWarnings("unchecked")
+  private ProductLanes lanes = new ProductLanes(true, 16, mock(ObjectProvider.class));
+
+  @InjectMocks
+  private BatchTransactionServiceImpl batchTransactionService;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(batchTransactionService, "batchSize", 10);
+    ReflectionTestUtils.setField(batchTransactionService, "maxWait", Duration.ofMillis(10));
+    ReflectionTestUtils.setField(batchTransactionService, "concurrency", 4);
+    when(balanceOutboxService.unsettled(eq(ACCOUNT), anyCollection(), any()))
+        .thenReturn(Mono.just(Map.of()));
+  }
+
+  @Test
+  void testProcess() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(new TypeAccountResponse(SAVING, null, 5, BigDecimal.valueOf(2), null));
+    account.setBalance(BigDecimal.valueOf(100));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(accountService.findAccount("1234567891"))
+        .thenReturn(Mono.error(new CustomNotFoundException("Account 1234567891 not found")));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT))
+        .thenReturn(Mono.just(0L));
+    when(transactionRepository.insert(anyIterable()))
+        .thenAnswer(invocation -> Flux.fromIterable(invocation.<Iterable<Transaction>>getArgument(0)));
+
+    var operations = Flux.just(
+        new BatchOperationRequest("1234567890", EXIT, null, BigDecimal.valueOf(80)),
+        new BatchOperationRequest("1234567891", ENTRY, null, BigDecimal.valueOf(10)),
+        new BatchOperationRequest("1234567890", EXIT, null, BigDecimal.valueOf(50)),
+        new BatchOperationRequest("1234567890", ENTRY, null, BigDecimal.valueOf(30)));
+
+    StepVerifier
+        .create(batchTransactionService.process(operations).collectSortedList(
+            Comparator.comparingLong(BatchOperationResponse::getIndex)))
+        .consumeNextWith(results -> {
+          Assertions.assertEquals(4, results.size());
+          Assertions.assertTrue(results.get(0).isSuccess());
+          Assertions.assertEquals("Account 1234567891 not found", results.get(1).getMessage());
+          Assertions.assertEquals("You do not have a balance to carry out this transaction",
+              results.get(2).getMessage());
+          Assertions.assertTrue(results.get(3).isSuccess());
+        })
+        .verifyComplete();
+
+    verify(transactionRepository).insert(anyIterable());
+    verify(balanceOutboxService).enqueue(any(Transaction.class), eq(Money.ofMinor(-8000)));
+    verify(balanceOutboxService).enqueue(any(Transaction.class), eq(Money.ofMinor(3000)));
+    verify(balanceOutboxService).wakeUp();
+    verify(lanes).run(eq(id.toString()), any());
+  }
+
+  @Test
+  void testProcessCountsUnsettledDebits() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(new TypeAccountResponse(SAVING, null, 5, BigDecimal.ZERO, null));
+    account.setBalance(BigDecimal.valueOf(100));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(balanceOutboxService.unsettled(eq(ACCOUNT), eq(List.of(id.toString())), any()))
+        .thenReturn(Mono.just(Map.of(id.toString(), Money.ofMinor(-5000))));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT))
+        .thenReturn(Mono.just(0L));
+
+    var operations = Flux.just(
+        new BatchOperationRequest("1234567890", EXIT, null, BigDecimal.valueOf(80)));
+
+    StepVerifier
+        .create(batchTransactionService.process(operations).collectList())
+        .consumeNextWith(results -> Assertions.assertEquals(
+            "You do not have a balance to carry out this transaction",
+            results.get(0).getMessage()))
+        .verifyComplete();
+    verify(transactionRepository, never()).insert(anyIterable());
+  }
+
+  @Test
+  void testProcessWithPartialInsert() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(new TypeAccountResponse(SAVING, null, 5, BigDecimal.ZERO, null));
+    account.setBalance(BigDecimal.valueOf(100));
+
+    ArgumentCaptor<Iterable<Transaction>> inserted = ArgumentCaptor.forClass(Iterable.class);
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT))
+        .thenReturn(Mono.just(0L));
+    when(transactionRepository.insert(inserted.capture()))
+        .thenReturn(Flux.error(new IllegalStateException("Write error")));
+    when(transactionRepository.findAllById(anyIterable()))
+        .thenAnswer(invocation -> Flux.just(inserted.getValue().iterator().next()));
+
+    var operations = Flux.just(
+        new BatchOperationRequest("1234567890", ENTRY, null, BigDecimal.valueOf(10)),
+        new BatchOperationRequest("1234567890", ENTRY, null, BigDecimal.valueOf(20)));
+
+    StepVerifier
+        .create(batchTransactionService.process(operations).collectSortedList(
+            Comparator.comparingLong(BatchOperationResponse::getIndex)))
+        .consumeNextWith(results -> {
+          Assertions.assertTrue(results.get(0).isSuccess());
+          Assertions.assertFalse(results.get(1).isSuccess());
+          Assertions.assertEquals("The transaction could not be stored",
+              results.get(1).getMessage());
+        })
+        .verifyComplete();
+    verify(balanceOutboxService).wakeUp();
+  }
+
+  @Test
+  void testProcessWithoutAmount() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(new TypeAccountResponse(SAVING, null, null, null, null));
+    account.setBalance(BigDecimal.valueOf(100));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.countByIdProductAndCollection(any(), any()))
+        .thenReturn(Mono.just(0L));
+
+    var operations = Flux.just(new BatchOperationRequest("1234567890", ENTRY, null, null));
+
+    StepVerifier
+        .create(batchTransactionService.process(operations).collectList())
+        .consumeNextWith(results -> Assertions.assertEquals("The minimum amount must be 1",
+            results.get(0).getMessage()))
+        .verifyComplete();
+  }
+
+  @Test
+  void testProcessSlowLaneWithTricklingInput() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(new TypeAccountResponse(SAVING, null, null, null, null));
+    account.setBalance(BigDecimal.valueOf(100));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT))
+        .thenReturn(Mono.just(0L));
+    when(transactionRepository.insert(anyIterable()))
+        .thenAnswer(invocation -> Mono.delay(Duration.ofMillis(200))
+            .thenMany(Flux.fromIterable(invocation.<Iterable<Transaction>>getArgument(0))));
+
+    // every line arrives after the wait of its chunk, and a chunk is written slower than that
+    StepVerifier
+        .withVirtualTime(() -> batchTransactionService.process(Flux.interval(Duration.ofMillis(15))
+                .take(60)
+                .map(i -> new BatchOperationRequest("1234567890", ENTRY, null, BigDecimal.ONE)))
+            .count())
+        .thenAwait(Duration.ofMinutes(1))
+        .expectNext(60L)
+        .verifyComplete();
+  }
+}
@@ -0,0 +1,142 @@
+package com.nttdata.transactions;
+
+import com.mongodb.client.result.DeleteResult;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.model.TransactionBucket;
+import com.nttdata.transactions.repository.CustomTransactionBucketRepositoryImpl;
+import com.nttdata.transactions.repository.TransactionTiers;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomTransactionBucketRepositoryTest {
+  private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+  private final CustomTransactionBucketRepositoryImpl repository =
+      new CustomTransactionBucketRepositoryImpl(mongoTemplate,
+          new TransactionTiers(false, "transactions_archive", Duration.ofDays(365)), 2);
+  private final ObjectId idProduct = new ObjectId();
+
+  private Transaction transaction(int type, LocalDateTime date, BigDecimal commission) {
+    Transaction transaction = new Transaction(ACCOUNT, idProduct.toString(), "Benchmark", type,
+        BigDecimal.TEN, commission);
+    transaction.setId(new ObjectId());
+    transaction.setDate(date);
+    return transaction;
+  }
+
+  private TransactionBucket bucket(String period, Transaction... transactions) {
+    return new TransactionBucket(null, idProduct, ACCOUNT, period, transactions.length, 0,
+        null, null, null, List.of(transactions));
+  }
+
+  @Test
+  void testAppendFillsTheOpenBucketOfTheMonth() {
+    when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(TransactionBucket.class)))
+        .thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(repository.append(transaction(EXIT, LocalDateTime.of(2021, 10, 5, 12, 0),
+            BigDecimal.ONE)))
+        .verifyComplete();
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(TransactionBucket.class));
+    Assertions.assertEquals("2021-10", query.getValue().getQueryObject().get("period"));
+    Assertions.assertEquals(new Document("$lt", 2),
+        query.getValue().getQueryObject().get("count"));
+    Document increments = update.getValue().getUpdateObject().get("$inc", Document.class);
+    Assertions.assertEquals(1, increments.get("count"));
+    Assertions.assertEquals(1, increments.get("charged"));
+    Assertions.assertTrue(increments.containsKey("exitAmount"));
+    Assertions.assertFalse(increments.containsKey("entryAmount"));
+  }
+
+  @Test
+  void testHistoryOrdersTheBucketsOfEveryMonth() {
+    Transaction february = transaction(ENTRY, LocalDateTime.of(2022, 2, 10, 9, 0),
+        BigDecimal.ZERO);
+    Transaction early = transaction(ENTRY, LocalDateTime.of(2022, 3, 1, 9, 0), BigDecimal.ZERO);
+    Transaction middle = transaction(EXIT, LocalDateTime.of(2022, 3, 2, 9, 0), BigDecimal.ZERO);
+    Transaction late = transaction(EXIT, LocalDateTime.of(2022, 3, 3, 9, 0), BigDecimal.ZERO);
+    when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class)))
+        .thenReturn(Flux.just(bucket("2022-02", february),
+            bucket("2022-03", early, late),
+            bucket("2022-03", middle)));
+
+    StepVerifier
+        .create(repository.findHistoryByIdProductAndCollection(idProduct, ACCOUNT,
+            YearMonth.of(2022, 2), YearMonth.of(2022, 3)))
+        .expectNext(february, early, middle, late)
+        .verifyComplete();
+  }
+
+  @Test
+  void testHistoryReturnsATransactionOnce() {
+    Transaction transaction = transaction(ENTRY, LocalDateTime.of(2022, 3, 1, 9, 0),
+        BigDecimal.ZERO);
+    when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class)))
+        .thenReturn(Flux.just(bucket("2022-03", transaction), bucket("2022-03", transaction)));
+
+    StepVerifier
+        .create(repository.findHistoryByIdProductAndCollection(idProduct, ACCOUNT,
+            YearMonth.of(2022, 3), YearMonth.of(2022, 3)))
+        .expectNext(transaction)
+        .verifyComplete();
+  }
+
+  @Test
+  void testRebuildMergesTheChunksOfTheClosedMonths() {
+    when(mongoTemplate.getCollectionName(TransactionBucket.class))
+        .thenReturn("transaction_buckets");
+    when(mongoTemplate.getCollectionName(Transaction.class)).thenReturn("transactions");
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("transactions"), eq(Document.class)))
+        .thenReturn(Flux.empty());
+    when(mongoTemplate.remove(any(Query.class), eq("transaction_buckets")))
+        .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+    StepVerifier
+        .create(repository.rebuild())
+        .verifyComplete();
+
+    ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+    verify(mongoTemplate).aggregate(aggregation.capture(), eq("transactions"),
+        eq(Document.class));
+    List<String> stages = aggregation.getValue()
+        .toPipeline(Aggregation.DEFAULT_CONTEXT).stream()
+        .map(stage -> stage.keySet().iterator().next())
+        .collect(Collectors.toList());
+    Assertions.assertEquals(List.of("$match", "$unset", "$setWindowFields", "$sort", "$group",
+        "$set", "$project", "$merge"), stages);
+
+    ArgumentCaptor<Query> appended = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(appended.capture(), eq("transaction_buckets"));
+    Assertions.assertEquals(new Document("$type", 7),
+        appended.getValue().getQueryObject().get("_id"));
+  }
+}
@@ -0,0 +1,87 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.config.MongoConfig;
+import com.nttdata.transactions.model.TransactionCounter;
+import com.nttdata.transactions.repository.TransactionCounterRepository;
+import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.repository.TransactionTiers;
+import com.nttdata.transactions.utilities.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import reactor.test.StepVerifier;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.CREDIT;
+
+@DataMongoTest(properties = "spring.mongodb.embedded.version=5.0.5")
+@Import({MongoConfig.class, TransactionMetrics.class, TransactionTiers.class,
+    SimpleMeterRegistry.class})
+class CustomTransactionRepositoryIT {
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  @Autowired
+  private TransactionCounterRepository counterRepository;
+
+  private final ObjectId first = new ObjectId();
+  private final ObjectId second = new ObjectId();
+  private final ObjectId third = new ObjectId();
+  private final YearMonth period = YearMonth.now();
+
+  @BeforeEach
+  void setUp() {
+    StepVerifier
+        .create(counterRepository.deleteAll()
+            .thenMany(counterRepository.saveAll(List.of(
+                counter(first, ACCOUNT, period, 7),
+                counter(first, ACCOUNT, period.minusMonths(1), 30),
+                counter(second, ACCOUNT, period, 2),
+                counter(second, CREDIT, period, 5),
+                counter(third, CREDIT, period, 9)))))
+        .expectNextCount(5)
+        .verifyComplete();
+  }
+
+  @Test
+  void testCountByIdProducts() {
+    StepVerifier
+        .create(transactionRepository.countByIdProductsAndCollection(
+            List.of(first.toString(), second.toString(), third.toString()), ACCOUNT, period))
+        .expectNext(Map.of(first.toString(), 7L, second.toString(), 2L, third.toString(), 0L))
+        .verifyComplete();
+
+    StepVerifier
+        .create(transactionRepository.countByIdProductsAndCollection(
+            List.of(first.toString()), ACCOUNT, period.minusMonths(1)))
+        .expectNext(Map.of(first.toString(), 30L))
+        .verifyComplete();
+  }
+
+  @Test
+  void testCountByIdProduct() {
+    StepVerifier
+        .create(transactionRepository.countByIdProductAndCollection(second.toString(), CREDIT))
+        .expectNext(5L)
+        .verifyComplete();
+
+    StepVerifier
+        .create(transactionRepository.countByIdProductAndCollection(first.toString(), CREDIT))
+        .expectNext(0L)
+        .verifyComplete();
+  }
+
+  private static TransactionCounter counter(ObjectId idProduct, int collection,
+                                            YearMonth period, long count) {
+    return new TransactionCounter(TransactionCounter.key(idProduct, collection, period),
+        idProduct, collection, period.toString(), count);
+  }
+}
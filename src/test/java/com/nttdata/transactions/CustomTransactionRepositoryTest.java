@@ -0,0 +1,290 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.model.TransactionCounter;
+import com.nttdata.transactions.model.TransactionRollup;
+import com.nttdata.transactions.repository.CustomTransactionRepositoryImpl;
+import com.nttdata.transactions.repository.TransactionBucketRepository;
+import com.nttdata.transactions.repository.TransactionTiers;
+import com.nttdata.transactions.utilities.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.TypeBasedAggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class CustomTransactionRepositoryTest {
+  @Mock
+  private ReactiveMongoTemplate mongoTemplate;
+  @Mock
+  private TransactionBucketRepository bucketRepository;
+
+  private CustomTransactionRepositoryImpl repository;
+  private TypeBasedAggregationOperationContext context;
+
+  @BeforeEach
+  void setUp() {
+    repository = repository(false);
+
+    MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+    MongoMappingContext mappingContext = new MongoMappingContext();
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    mappingContext.afterPropertiesSet();
+    MappingMongoConverter converter =
+        new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+    context = new TypeBasedAggregationOperationContext(Transaction.class, mappingContext,
+        new QueryMapper(converter));
+  }
+
+  private CustomTransactionRepositoryImpl repository(boolean archive) {
+    return new CustomTransactionRepositoryImpl(mongoTemplate, bucketRepository,
+        new TransactionTiers(archive, "transactions_archive", Duration.ofDays(365)),
+        new TransactionMetrics(new SimpleMeterRegistry()));
+  }
+
+  private static Transaction transaction(ObjectId idProduct, LocalDateTime date) {
+    Transaction transaction = new Transaction(ACCOUNT, idProduct.toString(), "Deposit", ENTRY,
+        BigDecimal.TEN, BigDecimal.ZERO);
+    transaction.setId(new ObjectId());
+    transaction.setDate(date);
+    return transaction;
+  }
+
+  @Test
+  void testCommissionReport() {
+    ObjectId id = new ObjectId();
+    CommissionReportResponse row = new CommissionReportResponse("2022-03", EXIT, 4, 1,
+        BigDecimal.valueOf(2));
+    when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(CommissionReportResponse.class)))
+        .thenReturn(Flux.just(row));
+
+    StepVerifier
+        .create(repository.commissionReportByIdProductAndCollection(id.toString(), ACCOUNT,
+            LocalDate.of(2022, 3, 1), LocalDate.of(2022, 3, 31), true))
+        .expectNext(row)
+        .verifyComplete();
+
+    ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+    verify(mongoTemplate).aggregate(aggregation.capture(), eq(CommissionReportResponse.class));
+    List<Document> pipeline = aggregation.getValue().toPipeline(context);
+
+    Assertions.assertEquals(4, pipeline.size());
+    Document match = pipeline.get(0).get("$match", Document.class);
+    Assertions.assertEquals(id, match.get("idProduct"));
+    Assertions.assertEquals(ACCOUNT, match.get("collection"));
+    Document group = pipeline.get(1).get("$group", Document.class);
+    List<?> period = group.get("_id", Document.class).get("period", Document.class)
+        .getList("$ifNull", Object.class);
+    Assertions.assertEquals("$period", period.get(0));
+    Assertions.assertEquals("%Y-%m", ((Document) period.get(1))
+        .get("$dateToString", Document.class).get("format"));
+    Assertions.assertEquals(new Document("$sum", "$commission"), group.get("commission"));
+    Assertions.assertTrue(pipeline.get(3).containsKey("$sort"));
+  }
+
+  @Test
+  void testSummaryWithoutRollups() {
+    ObjectId id = new ObjectId();
+    LocalDate start = LocalDate.of(2022, 1, 1);
+    LocalDate end = LocalDate.of(2022, 12, 31);
+    when(mongoTemplate.aggregate(any(TypedAggregation.class),
+        eq(TransactionSummaryResponse.class))).thenReturn(Flux.empty());
+
+    StepVerifier
+        .create(repository.summaryByIdProductAndCollection(id.toString(), ACCOUNT, start, end))
+        .expectNext(TransactionSummaryResponse.empty(start, end))
+        .verifyComplete();
+
+    ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+    verify(mongoTemplate).aggregate(aggregation.capture(), eq(TransactionSummaryResponse.class));
+    Assertions.assertEquals(TransactionRollup.class, aggregation.getValue().getInputType());
+    Document match = aggregation.getValue().toPipeline(context).get(0)
+        .get("$match", Document.class);
+    Assertions.assertEquals(new Document("$gte", "2022-01-01").append("$lte", "2022-12-31"),
+        match.get("day"));
+  }
+
+  @Test
+  void testCountByIdProducts() {
+    ObjectId first = new ObjectId();
+    ObjectId second = new ObjectId();
+    YearMonth period = YearMonth.of(2022, 3);
+    when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class)))
+        .thenReturn(Flux.just(new Document("_id", first).append("count", 12L)));
+
+    StepVerifier
+        .create(repository.countByIdProductsAndCollection(
+            List.of(first.toString(), second.toString()), ACCOUNT, period))
+        .expectNext(Map.of(first.toString(), 12L, second.toString(), 0L))
+        .verifyComplete();
+
+    ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+    verify(mongoTemplate).aggregate(aggregation.capture(), eq(Document.class));
+    List<Document> pipeline = aggregation.getValue().toPipeline(context);
+    Assertions.assertEquals(TransactionCounter.class, aggregation.getValue().getInputType());
+    Assertions.assertEquals(List.of(TransactionCounter.key(first, ACCOUNT, period),
+            TransactionCounter.key(second, ACCOUNT, period)),
+        pipeline.get(0).get("$match", Document.class).get("_id", Document.class).get("$in"));
+    Assertions.assertEquals("$idProduct",
+        pipeline.get(1).get("$group", Document.class).get("_id"));
+  }
+
+  @Test
+  void testCountByIdProductWithoutCounter() {
+    when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class)))
+        .thenReturn(Flux.empty());
+
+    StepVerifier
+        .create(repository.countByIdProductAndCollection(new ObjectId().toString(), ACCOUNT))
+        .expectNext(0L)
+        .verifyComplete();
+  }
+
+  @Test
+  void testStatementFromBuckets() {
+    ReflectionTestUtils.setField(repository, "buckets", true);
+    ObjectId id = new ObjectId();
+    Transaction before = new Transaction(ACCOUNT, id.toString(), "Deposit", ENTRY,
+        BigDecimal.TEN, BigDecimal.ZERO);
+    before.setDate(LocalDateTime.of(2022, 2, 27, 23, 59));
+    Transaction first = new Transaction(ACCOUNT, id.toString(), "Deposit", ENTRY,
+        BigDecimal.TEN, BigDecimal.ZERO);
+    first.setDate(LocalDateTime.of(2022, 2, 28, 0, 0));
+    Transaction last = new Transaction(ACCOUNT, id.toString(), "Withdrawal", EXIT,
+        BigDecimal.ONE, BigDecimal.ZERO);
+    last.setDate(LocalDateTime.of(2022, 4, 15, 23, 59));
+    Transaction after = new Transaction(ACCOUNT, id.toString(), "Withdrawal", EXIT,
+        BigDecimal.ONE, BigDecimal.ZERO);
+    after.setDate(LocalDateTime.of(2022, 4, 16, 0, 0));
+    when(bucketRepository.findHistoryByIdProductAndCollection(id, ACCOUNT,
+        YearMonth.of(2022, 2), YearMonth.of(2022, 4)))
+        .thenReturn(Flux.just(before, first, last, after));
+
+    StepVerifier
+        .create(repository.findStatementByIdProductAndCollection(id, ACCOUNT,
+            LocalDate.of(2022, 2, 28), LocalDate.of(2022, 4, 15), 256))
+        .expectNext(first, last)
+        .verifyComplete();
+
+    verify(mongoTemplate, never()).find(any(), eq(Transaction.class));
+  }
+
+  @Test
+  void testPageInsideTheHotTierSkipsTheArchive() {
+    repository = repository(true);
+    ObjectId id = new ObjectId();
+    Transaction newest = transaction(id, LocalDateTime.now());
+    Transaction older = transaction(id, LocalDateTime.now().minusDays(30));
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+        .thenReturn(Flux.just(newest, older));
+
+    StepVerifier
+        .create(repository.findPageByIdProductAndCollection(id, ACCOUNT, null, 2, null))
+        .expectNext(newest, older)
+        .verifyComplete();
+
+    verify(mongoTemplate, never()).find(any(Query.class), eq(Transaction.class),
+        eq("transactions_archive"));
+  }
+
+  @Test
+  void testShortPageContinuesInTheArchive() {
+    repository = repository(true);
+    ObjectId id = new ObjectId();
+    Transaction hot = transaction(id, LocalDateTime.now());
+    Transaction moving = transaction(id, LocalDateTime.now().minusYears(2));
+    Transaction archived = transaction(id, LocalDateTime.now().minusYears(3));
+    Transaction oldest = transaction(id, LocalDateTime.now().minusYears(4));
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+        .thenReturn(Flux.just(hot, moving));
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class), eq("transactions_archive")))
+        .thenReturn(Flux.just(moving, archived, oldest));
+
+    StepVerifier
+        .create(repository.findPageByIdProductAndCollection(id, ACCOUNT, null, 3, null))
+        .expectNext(hot, moving, archived)
+        .verifyComplete();
+  }
+
+  @Test
+  void testListingWithoutPageIsOldestFirst() {
+    repository = repository(true);
+    ObjectId id = new ObjectId();
+    Transaction archived = transaction(id, LocalDateTime.now().minusYears(3));
+    Transaction hot = transaction(id, LocalDateTime.now());
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+        .thenReturn(Flux.just(hot));
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class), eq("transactions_archive")))
+        .thenReturn(Flux.just(archived));
+
+    StepVerifier
+        .create(repository.findPageByIdProductAndCollection(id, ACCOUNT, null, null, null))
+        .expectNext(archived, hot)
+        .verifyComplete();
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).find(query.capture(), eq(Transaction.class));
+    Assertions.assertEquals(new Document("date", 1).append("_id", 1),
+        query.getValue().getSortObject());
+  }
+
+  @Test
+  void testCommissionReportBeforeTheHorizonReadsTheArchive() {
+    repository = repository(true);
+    when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(CommissionReportResponse.class)))
+        .thenReturn(Flux.empty());
+
+    StepVerifier
+        .create(repository.commissionReportByIdProductAndCollection(new ObjectId().toString(),
+            ACCOUNT, LocalDate.now().minusYears(2), LocalDate.now(), false))
+        .verifyComplete();
+
+    ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+    verify(mongoTemplate).aggregate(aggregation.capture(), eq(CommissionReportResponse.class));
+    Document union = aggregation.getValue().toPipeline(context).get(1)
+        .get("$unionWith", Document.class);
+    Assertions.assertEquals("transactions_archive", union.get("coll"));
+    Assertions.assertTrue(union.getList("pipeline", Document.class).get(0)
+        .containsKey("$match"));
+  }
+}
@@ -0,0 +1,158 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import com.nttdata.transactions.model.IdempotencyRecord;
+import com.nttdata.transactions.service.IdempotencyServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static com.nttdata.transactions.utilities.Constants.IdempotencyStatus.COMPLETED;
+import static com.nttdata.transactions.utilities.Constants.IdempotencyStatus.FAILED;
+import static com.nttdata.transactions.utilities.Constants.IdempotencyStatus.IN_PROGRESS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+  private static final String REQUEST = "deposit|1234567890|100|Ingreso en efectivo";
+  private static final Predicate<Throwable> REJECTED = CustomUnavailableException.class::isInstance;
+
+  private final AtomicInteger executions = new AtomicInteger();
+  private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+
+  @SuppressWarnings("unchecked")
+  private final IdempotencyServiceImpl idempotencyService = new IdempotencyServiceImpl(
+      mongoTemplate, true, Duration.ofMinutes(10), 100, Duration.ofSeconds(30),
+      Duration.ofSeconds(1), Duration.ofMillis(10), mock(ObjectProvider.class));
+
+  private Mono<String> deposit() {
+    return Mono.fromSupplier(() -> {
+      executions.incrementAndGet();
+      return "Successful transaction";
+    });
+  }
+
+  @Test
+  void testRepeatedKeyRunsOnce() {
+    when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    when(mongoTemplate.save(any(IdempotencyRecord.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+    StepVerifier
+        .create(idempotencyService.execute("key-1", REQUEST, this::deposit, REJECTED)
+            .then(idempotencyService.execute("key-1", REQUEST, this::deposit, REJECTED)))
+        .expectNext("Successful transaction")
+        .verifyComplete();
+
+    Assertions.assertEquals(1, executions.get());
+    verify(mongoTemplate, times(1)).insert(any(IdempotencyRecord.class));
+    verify(mongoTemplate).save(any(IdempotencyRecord.class));
+  }
+
+  @Test
+  void testDuplicateWaitsForTheFirstRequest() {
+    LocalDateTime now = LocalDateTime.now();
+    when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+        .thenReturn(Mono.error(new DuplicateKeyException("key-2")));
+    when(mongoTemplate.findById("key-2", IdempotencyRecord.class))
+        .thenReturn(Mono.just(new IdempotencyRecord("key-2", REQUEST, IN_PROGRESS, null, now,
+                now.plusSeconds(30))),
+            Mono.just(new IdempotencyRecord("key-2", REQUEST, COMPLETED,
+                "Successful transaction", now, null)));
+
+    StepVerifier
+        .create(idempotencyService.execute("key-2", REQUEST, this::deposit, REJECTED))
+        .expectNext("Successful transaction")
+        .verifyComplete();
+
+    Assertions.assertEquals(0, executions.get());
+    verify(mongoTemplate, times(2)).findById("key-2", IdempotencyRecord.class);
+  }
+
+  @Test
+  void testKeyOfAnotherRequest() {
+    when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+        .thenReturn(Mono.error(new DuplicateKeyException("key-3")));
+    when(mongoTemplate.findById("key-3", IdempotencyRecord.class))
+        .thenReturn(Mono.just(new IdempotencyRecord("key-3", "withdrawal|1234567890|100|",
+            COMPLETED, "Successful transaction", LocalDateTime.now(), null)));
+
+    StepVerifier
+        .create(idempotencyService.execute("key-3", REQUEST, this::deposit, REJECTED))
+        .expectErrorMatches(throwable -> throwable instanceof CustomInformationException
+            && throwable.getMessage().equals("Idempotency-Key key-3 was used by another request"))
+        .verify();
+
+    Assertions.assertEquals(0, executions.get());
+  }
+
+  @Test
+  void testFailedRequestReleasesTheKey() {
+    when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    when(mongoTemplate.remove(any(Query.class), eq(IdempotencyRecord.class)))
+        .thenReturn(Mono.empty());
+    when(mongoTemplate.save(any(IdempotencyRecord.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+    StepVerifier
+        .create(idempotencyService.execute("key-4", REQUEST,
+            () -> Mono.<String>error(
+                new CustomUnavailableException("Account service unavailable")), REJECTED))
+        .expectError(CustomUnavailableException.class)
+        .verify();
+    StepVerifier
+        .create(idempotencyService.execute("key-4", REQUEST, this::deposit, REJECTED))
+        .expectNext("Successful transaction")
+        .verifyComplete();
+
+    Assertions.assertEquals(1, executions.get());
+    verify(mongoTemplate).remove(any(Query.class), eq(IdempotencyRecord.class));
+  }
+
+  @Test
+  void testUnknownFailureKeepsTheKey() {
+    when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)))
+        .thenReturn(Mono.error(new DuplicateKeyException("key-5")));
+    when(mongoTemplate.save(any(IdempotencyRecord.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    when(mongoTemplate.findById("key-5", IdempotencyRecord.class))
+        .thenReturn(Mono.just(new IdempotencyRecord("key-5", REQUEST, FAILED,
+            "Connection reset", LocalDateTime.now(), null)));
+
+    StepVerifier
+        .create(idempotencyService.execute("key-5", REQUEST,
+            () -> Mono.<String>error(new IllegalStateException("Connection reset")), REJECTED))
+        .expectError(IllegalStateException.class)
+        .verify();
+    StepVerifier
+        .create(idempotencyService.execute("key-5", REQUEST, this::deposit, REJECTED))
+        .expectErrorMatches(throwable -> throwable instanceof CustomInformationException
+            && throwable.getMessage().endsWith("Connection reset"))
+        .verify();
+
+    Assertions.assertEquals(0, executions.get());
+    verify(mongoTemplate, never()).remove(any(Query.class), eq(IdempotencyRecord.class));
+    verify(mongoTemplate).save(argThat((IdempotencyRecord record) ->
+        record.getStatus() == FAILED));
+  }
+}
@@ -0,0 +1,59 @@
+package com.nttdata.transactions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nttdata.transactions.utilities.Money;
+import com.nttdata.transactions.utilities.MoneyConverters;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+class MoneyTest {
+  @Test
+  void testArithmetic() {
+    Money balance = Money.of(new BigDecimal("150.25"));
+    Money commission = Money.of(BigDecimal.valueOf(2));
+
+    Assertions.assertEquals(15025, balance.getMinor());
+    Assertions.assertEquals(Money.ofMinor(14825), balance.subtract(commission));
+    Assertions.assertEquals(Money.ofMinor(-200), commission.negate());
+    Assertions.assertTrue(commission.isLessThan(balance));
+    Assertions.assertEquals(new BigDecimal("152.25"), balance.add(commission).toBigDecimal());
+    Assertions.assertSame(Money.ZERO, Money.of(null));
+  }
+
+  @Test
+  void testScaleAndOverflow() {
+    Assertions.assertThrows(ArithmeticException.class,
+        () -> Money.of(new BigDecimal("10.005")));
+    Assertions.assertFalse(Money.isValid(new BigDecimal("10.005")));
+    Assertions.assertTrue(Money.isValid(new BigDecimal("10.500")));
+    Assertions.assertThrows(ArithmeticException.class,
+        () -> Money.ofMinor(Long.MAX_VALUE).add(Money.ofMinor(1)));
+    Assertions.assertThrows(ArithmeticException.class,
+        () -> Money.ofMinor(Long.MIN_VALUE).negate());
+  }
+
+  @Test
+  void testRounded() {
+    Assertions.assertEquals(Money.ofMinor(1000), Money.rounded(new BigDecimal("10.005")));
+    Assertions.assertEquals(Money.ofMinor(1002), Money.rounded(new BigDecimal("10.015")));
+    Assertions.assertEquals(Money.ofMinor(-126), Money.rounded(new BigDecimal("-1.255")));
+    Assertions.assertSame(Money.ZERO, Money.rounded(null));
+  }
+
+  @Test
+  void testConverters() throws Exception {
+    Money amount = Money.of(new BigDecimal("-80.5"));
+
+    Decimal128 stored = MoneyConverters.MoneyToDecimal128Converter.INSTANCE.convert(amount);
+    Assertions.assertEquals(new Decimal128(new BigDecimal("-80.50")), stored);
+    Assertions.assertEquals(amount,
+        MoneyConverters.Decimal128ToMoneyConverter.INSTANCE.convert(stored));
+
+    ObjectMapper mapper = new ObjectMapper();
+    Assertions.assertEquals("-80.50", mapper.writeValueAsString(amount));
+    Assertions.assertEquals(amount, mapper.readValue("-80.5", Money.class));
+  }
+}
@@ -0,0 +1,45 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.controller.OutboxEndpoint;
+import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
+import com.nttdata.transactions.service.BalanceOutboxService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxEndpointTest {
+  private final BalanceOutboxService balanceOutboxService = mock(BalanceOutboxService.class);
+  private final OutboxEndpoint endpoint = new OutboxEndpoint(balanceOutboxService);
+
+  @Test
+  void testResolve() {
+    when(balanceOutboxService.resolve("6ad4d4085347290e3a115593", false))
+        .thenReturn(Mono.just(2L));
+
+    StepVerifier
+        .create(endpoint.resolve("6ad4d4085347290e3a115593", false))
+        .consumeNextWith(response -> {
+          Assertions.assertEquals(WebEndpointResponse.STATUS_OK, response.getStatus());
+          Assertions.assertEquals(2L, response.getBody());
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void testResolveWithoutFailedDelivery() {
+    when(balanceOutboxService.resolve("6ad4d4085347290e3a115593", true))
+        .thenReturn(Mono.error(new CustomNotFoundException("Failed delivery "
+            + "6ad4d4085347290e3a115593 not found")));
+
+    StepVerifier
+        .create(endpoint.resolve("6ad4d4085347290e3a115593", true))
+        .consumeNextWith(response -> Assertions.assertEquals(
+            WebEndpointResponse.STATUS_NOT_FOUND, response.getStatus()))
+        .verifyComplete();
+  }
+}
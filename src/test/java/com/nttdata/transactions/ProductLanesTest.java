@@ -0,0 +1,99 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.service.ProductLanes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductLanesTest {
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<String> started = new CopyOnWriteArrayList<>();
+
+  @SuppressWarnings("unchecked")
+  private ProductLanes lanes(int stripes) {
+    ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(meterRegistry);
+    return new ProductLanes(true, stripes, provider);
+  }
+
+  private Mono<String> operation(String name, Mono<Void> done) {
+    return Mono.defer(() -> {
+      started.add(name);
+      return done.thenReturn(name);
+    });
+  }
+
+  @Test
+  void testOperationsOfAProductRunInOrder() {
+    ProductLanes lanes = lanes(16);
+    Sinks.Empty<Void> first = Sinks.empty();
+
+    Mono<String> firstResult = lanes.run("account", () -> operation("first", first.asMono()))
+        .cache();
+    Mono<String> secondResult = lanes.run("account", () -> operation("second", Mono.empty()))
+        .cache();
+    firstResult.subscribe();
+    secondResult.subscribe();
+
+    Assertions.assertEquals(List.of("first"), started);
+    Assertions.assertEquals(1.0, meterRegistry.get(ProductLanes.PENDING).gauge().value());
+
+    first.tryEmitEmpty();
+    StepVerifier.create(secondResult).expectNext("second").verifyComplete();
+    Assertions.assertEquals(List.of("first", "second"), started);
+    Assertions.assertEquals(0.0, meterRegistry.get(ProductLanes.PENDING).gauge().value());
+  }
+
+  @Test
+  void testOperationsOfOtherProductsDoNotWait() {
+    ProductLanes lanes = lanes(1024);
+
+    lanes.run("account", () -> operation("first", Mono.never())).subscribe();
+    StepVerifier
+        .create(lanes.run("other", () -> operation("other", Mono.empty())))
+        .expectNext("other")
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testFailedOrCancelledOperationReleasesTheLane() {
+    ProductLanes lanes = lanes(1);
+
+    StepVerifier
+        .create(lanes.run("account", () -> Mono.error(new IllegalStateException())))
+        .expectError(IllegalStateException.class)
+        .verify();
+    lanes.run("account", () -> operation("cancelled", Mono.never())).subscribe().dispose();
+
+    StepVerifier
+        .create(lanes.run(List.of("account", "other"), () -> operation("many", Mono.empty())))
+        .expectNext("many")
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testOperationKeepsTheContextOfItsSubscriber() {
+    ProductLanes lanes = lanes(16);
+
+    StepVerifier
+        .create(lanes.run("account", () -> Mono.deferContextual(context ->
+                Mono.just(context.<String>get("request"))))
+            .contextWrite(context -> context.put("request", "deposit")))
+        .expectNext("deposit")
+        .verifyComplete();
+  }
+}
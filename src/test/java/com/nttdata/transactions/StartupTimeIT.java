@@ -0,0 +1,79 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.config.StartupReport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class StartupTimeIT {
+  private static final Logger logger = LogManager.getLogger(StartupTimeIT.class);
+  private static final Duration BOUND = Duration.ofSeconds(60);
+
+  /**
+   * Return the auto-configurations excluded by the fast start profile and the embedded Mongo of
+   * the integration tests, an exclude argument replaces the list of the profile.
+   */
+  private static String excluded() throws IOException {
+    List<PropertySource<?>> faststart = new YamlPropertySourceLoader()
+        .load("faststart", new ClassPathResource("application-faststart.yml"));
+    List<String> excluded = new ArrayList<>(List.of(new Binder(
+        ConfigurationPropertySources.from(faststart))
+        .bind("spring.autoconfigure.exclude", String[].class)
+        .orElse(new String[0])));
+    excluded.add(EmbeddedMongoAutoConfiguration.class.getName());
+    return String.join(",", excluded);
+  }
+
+  @Test
+  void testTimeToFirstRequestWithTheFastStartProfile() throws IOException {
+    long start = System.nanoTime();
+    try (ConfigurableApplicationContext context = TransactionsApplication.application().run(
+        "--spring.profiles.active=faststart",
+        "--server.port=0",
+        "--eureka.client.enabled=false",
+        "--spring.cloud.config.enabled=false",
+        "--spring.autoconfigure.exclude=" + excluded(),
+        "--spring.data.mongodb.uri=mongodb://localhost:1/transactions?serverSelectionTimeoutMS=500")) {
+      WebTestClient client = WebTestClient
+          .bindToServer()
+          .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+              + "/transactions/actuator")
+          .build();
+
+      client.get().uri("/info").exchange().expectStatus().isOk();
+      Duration firstRequest = Duration.ofNanos(System.nanoTime() - start);
+
+      TimeGauge sinceJvmStart = context.getBean(MeterRegistry.class)
+          .get(StartupReport.FIRST_REQUEST)
+          .timeGauge();
+      logger.info("Time to first request: {} ms from the run, {} ms from the JVM start",
+          firstRequest.toMillis(), Math.round(sinceJvmStart.value(TimeUnit.MILLISECONDS)));
+      Assertions.assertTrue(firstRequest.compareTo(BOUND) < 0,
+          "First request after " + firstRequest.toMillis() + " ms");
+      Assertions.assertTrue(sinceJvmStart.value(TimeUnit.MILLISECONDS) > 0);
+
+      client.post().uri("/startup").exchange()
+          .expectStatus().isOk()
+          .expectBody().jsonPath("$.timeline.events").isNotEmpty();
+      Assertions.assertTrue(context.getBeanFactory().containsSingleton("transactionArchiver"));
+      Assertions.assertFalse(context.getBeanFactory().containsSingleton("transactionController"));
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.utilities.StatementCsv;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+
+class StatementCsvTest {
+  private static Transaction transaction(String description) {
+    Transaction transaction = new Transaction(ACCOUNT, new ObjectId().toString(), description,
+        ENTRY, new BigDecimal("10.50"), BigDecimal.ZERO);
+    transaction.setId(new ObjectId("6ad4d4085347290e3a115591"));
+    transaction.setDate(LocalDateTime.of(2022, 3, 18, 14, 15, 20));
+    return transaction;
+  }
+
+  private static List<String> encode(String... descriptions) {
+    String csv = StatementCsv.encode(Flux.fromStream(Arrays.stream(descriptions)
+                .map(StatementCsvTest::transaction)),
+            DefaultDataBufferFactory.sharedInstance, 2)
+        .map(buffer -> {
+          String text = buffer.toString(StandardCharsets.UTF_8);
+          DataBufferUtils.release(buffer);
+          return text;
+        })
+        .collect(Collectors.joining())
+        .block();
+    return Arrays.asList(csv.split("\n"));
+  }
+
+  @Test
+  void testEncode() {
+    List<String> lines = encode("Deposit", "Rent, March", "Say \"hi\"");
+
+    Assertions.assertEquals(StatementCsv.HEADER.trim(), lines.get(0));
+    Assertions.assertEquals("6ad4d4085347290e3a115591,2022-03-18 14:15:20,1,Deposit,10.50,0",
+        lines.get(1));
+    Assertions.assertEquals(
+        "6ad4d4085347290e3a115591,2022-03-18 14:15:20,1,\"Rent, March\",10.50,0", lines.get(2));
+    Assertions.assertEquals(
+        "6ad4d4085347290e3a115591,2022-03-18 14:15:20,1,\"Say \"\"hi\"\"\",10.50,0",
+        lines.get(3));
+  }
+
+  @Test
+  void testEncodeEscapesFormulas() {
+    List<String> lines = encode("=HYPERLINK(\"http://x\")", "+1", "-1", "@SUM(A1)", "\tTab",
+        "a=b");
+
+    Assertions.assertEquals(
+        "6ad4d4085347290e3a115591,2022-03-18 14:15:20,1,\"'=HYPERLINK(\"\"http://x\"\")\","
+            + "10.50,0", lines.get(1));
+    Assertions.assertTrue(lines.get(2).contains(",\"'+1\","));
+    Assertions.assertTrue(lines.get(3).contains(",\"'-1\","));
+    Assertions.assertTrue(lines.get(4).contains(",\"'@SUM(A1)\","));
+    Assertions.assertTrue(lines.get(5).contains(",\"'\tTab\","));
+    Assertions.assertTrue(lines.get(6).contains(",a=b,"));
+  }
+
+  @Test
+  void testEncodeWithoutTransactions() {
+    List<DataBuffer> buffers = StatementCsv.encode(Flux.empty(),
+        DefaultDataBufferFactory.sharedInstance, 2).collectList().block();
+
+    Assertions.assertEquals(1, buffers.size());
+    Assertions.assertEquals(StatementCsv.HEADER,
+        buffers.get(0).toString(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,98 @@
+package com.nttdata.transactions;
+
+import com.mongodb.client.result.DeleteResult;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionTiers;
+import com.nttdata.transactions.service.TransactionArchiver;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionArchiverTest {
+  private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+
+  @BeforeEach
+  void setUp() {
+    when(mongoTemplate.getCollectionName(Transaction.class)).thenReturn("transactions");
+    when(mongoTemplate.insert(anyCollection(), eq("transactions_archive")))
+        .thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+    when(mongoTemplate.remove(any(Query.class), eq("transactions")))
+        .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+  }
+
+  private TransactionArchiver archiver(boolean enabled, int maxBatches) {
+    return new TransactionArchiver(mongoTemplate,
+        new TransactionTiers(enabled, "transactions_archive", Duration.ofDays(365)), 2,
+        maxBatches);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testArchiveMovesBatchesUntilNothingIsOld() {
+    Document first = new Document("_id", new ObjectId());
+    Document second = new Document("_id", new ObjectId());
+    Document third = new Document("_id", new ObjectId());
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("transactions")))
+        .thenReturn(Flux.just(first, second), Flux.just(third), Flux.empty());
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("transactions_archive")))
+        .thenReturn(Flux.just(new Document("_id", second.get("_id"))), Flux.empty());
+
+    StepVerifier
+        .create(archiver(true, 100).archive())
+        .expectNext(3L)
+        .verifyComplete();
+
+    ArgumentCaptor<Collection<Document>> inserted = ArgumentCaptor.forClass(Collection.class);
+    verify(mongoTemplate, times(2)).insert(inserted.capture(), eq("transactions_archive"));
+    Assertions.assertEquals(List.of(List.of(first), List.of(third)),
+        List.copyOf(inserted.getAllValues()));
+    verify(mongoTemplate, times(2)).remove(any(Query.class), eq("transactions"));
+  }
+
+  @Test
+  void testArchiveStopsAtTheBatchLimit() {
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("transactions")))
+        .thenAnswer(invocation -> Flux.just(new Document("_id", new ObjectId()),
+            new Document("_id", new ObjectId())));
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("transactions_archive")))
+        .thenReturn(Flux.empty());
+
+    StepVerifier
+        .create(archiver(true, 3).archive())
+        .expectNext(6L)
+        .verifyComplete();
+
+    verify(mongoTemplate, times(3)).remove(any(Query.class), eq("transactions"));
+  }
+
+  @Test
+  void testDisabledArchiveMovesNothing() {
+    StepVerifier
+        .create(archiver(false, 100).archive())
+        .expectNext(0L)
+        .verifyComplete();
+
+    verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq("transactions"));
+  }
+}
@@ -0,0 +1,229 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.exceptions.customs.CustomUnavailableException;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionCursor;
+import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.service.TransactionFeed;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionFeedTest {
+  private static final BsonTimestamp CLUSTER_TIME = new BsonTimestamp(1700000000, 1);
+
+  private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+  private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+  private final Sinks.Many<ChangeStreamEvent<Transaction>> changes =
+      Sinks.many().multicast().directBestEffort();
+  private TransactionFeed feed;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(mongoTemplate.getCollectionName(Transaction.class)).thenReturn("transactions");
+    when(mongoTemplate.changeStream(eq("transactions"), any(ChangeStreamOptions.class),
+        eq(Transaction.class))).thenReturn(changes.asFlux());
+    when(mongoTemplate.executeCommand(any(Document.class)))
+        .thenReturn(Mono.just(new Document("ok", 1.0).append("$clusterTime",
+            new Document("clusterTime", CLUSTER_TIME))));
+    feed = new TransactionFeed(mongoTemplate, transactionRepository, 16,
+        Duration.ofMillis(10), Duration.ofMillis(10), mock(ObjectProvider.class));
+  }
+
+  @AfterEach
+  void tearDown() {
+    feed.stop();
+  }
+
+  private static Transaction transaction(ObjectId idProduct, LocalDateTime date) {
+    Transaction transaction = new Transaction(ACCOUNT, idProduct.toString(), "Deposit", ENTRY,
+        BigDecimal.TEN, BigDecimal.ZERO);
+    transaction.setId(new ObjectId());
+    transaction.setDate(date);
+    return transaction;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ChangeStreamEvent<Transaction> event(Transaction transaction) {
+    ChangeStreamEvent<Transaction> event = mock(ChangeStreamEvent.class);
+    when(event.getBody()).thenReturn(transaction);
+    when(event.getResumeToken()).thenReturn(new BsonString(transaction.getId().toHexString()));
+    return event;
+  }
+
+  private void insert(Transaction transaction) {
+    changes.tryEmitNext(event(transaction));
+  }
+
+  @Test
+  void testWatchersShareTheChangeStream() {
+    ObjectId first = new ObjectId();
+    ObjectId second = new ObjectId();
+    Transaction firstTransaction = transaction(first, LocalDateTime.now());
+    Transaction secondTransaction = transaction(second, LocalDateTime.now());
+    List<Transaction> secondWatched = new CopyOnWriteArrayList<>();
+
+    StepVerifier
+        .create(feed.watch(first, ACCOUNT, null))
+        .then(() -> feed.watch(second, ACCOUNT, null).subscribe(secondWatched::add))
+        .then(() -> {
+          insert(secondTransaction);
+          insert(firstTransaction);
+        })
+        .expectNext(firstTransaction)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+
+    Assertions.assertEquals(List.of(secondTransaction), secondWatched);
+    verify(mongoTemplate, times(1)).changeStream(eq("transactions"),
+        any(ChangeStreamOptions.class), eq(Transaction.class));
+  }
+
+  @Test
+  void testWatchReplaysBeforeFollowing() {
+    ObjectId idProduct = new ObjectId();
+    Transaction old = transaction(idProduct, LocalDateTime.now().minusDays(1));
+    Transaction recent = transaction(idProduct, LocalDateTime.now());
+    Transaction next = transaction(idProduct, LocalDateTime.now());
+    TransactionCursor after = new TransactionCursor(LocalDateTime.now().minusDays(2),
+        new ObjectId());
+    Sinks.Many<Transaction> replay = Sinks.many().unicast().onBackpressureBuffer();
+    when(transactionRepository.findFeedByIdProductAndCollection(idProduct, ACCOUNT, after, 16))
+        .thenReturn(replay.asFlux());
+
+    StepVerifier
+        .create(feed.watch(idProduct, ACCOUNT, after))
+        .then(() -> {
+          insert(recent);
+          replay.tryEmitNext(old);
+          replay.tryEmitNext(recent);
+          replay.tryEmitComplete();
+          insert(next);
+        })
+        .expectNext(old, recent, next)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testInsertBetweenReplayAndChangeStreamIsDelivered() {
+    ObjectId idProduct = new ObjectId();
+    Transaction old = transaction(idProduct, LocalDateTime.now().minusDays(1));
+    Transaction gap = transaction(idProduct, LocalDateTime.now());
+    TransactionCursor after = new TransactionCursor(LocalDateTime.now().minusDays(2),
+        new ObjectId());
+    // the inserts stored since the cluster time, what a change stream started at it sees
+    List<ChangeStreamEvent<Transaction>> stored = new CopyOnWriteArrayList<>();
+    when(mongoTemplate.changeStream(eq("transactions"), any(ChangeStreamOptions.class),
+        eq(Transaction.class)))
+        .thenAnswer(invocation -> {
+          ChangeStreamOptions options = invocation.getArgument(1);
+          return Mono.delay(Duration.ofMillis(200))
+              .thenMany(Flux.defer(() -> options.getResumeBsonTimestamp()
+                  .filter(CLUSTER_TIME::equals)
+                  .map(time -> Flux.fromIterable(stored))
+                  .orElse(Flux.empty())))
+              .concatWith(changes.asFlux());
+        });
+    // the insert lands after the replay read its transactions and before the stream is open
+    when(transactionRepository.findFeedByIdProductAndCollection(idProduct, ACCOUNT, after, 16))
+        .thenReturn(Flux.just(old).doOnComplete(() -> stored.add(event(gap))));
+
+    StepVerifier
+        .create(feed.watch(idProduct, ACCOUNT, after))
+        .expectNext(old, gap)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testChangeStreamClosesWithoutWatchers() {
+    StepVerifier
+        .create(feed.watch(new ObjectId(), ACCOUNT, null))
+        .then(() -> Assertions.assertEquals(1, changes.currentSubscriberCount()))
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+
+    Assertions.assertEquals(0, changes.currentSubscriberCount());
+  }
+
+  @Test
+  void testSlowWatcherOverflows() {
+    ObjectId idProduct = new ObjectId();
+
+    StepVerifier
+        .create(feed.watch(idProduct, ACCOUNT, null), 0)
+        .then(() -> {
+          for (int i = 0; i < 17; i++) {
+            insert(transaction(idProduct, LocalDateTime.now()));
+          }
+        })
+        .thenRequest(Long.MAX_VALUE)
+        .expectNextCount(16)
+        .expectErrorMatches(e -> e.getMessage().contains("fell 16 transactions behind"))
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testTransientErrorOpensTheChangeStreamAgain() {
+    ObjectId idProduct = new ObjectId();
+    Transaction transaction = transaction(idProduct, LocalDateTime.now());
+    when(mongoTemplate.changeStream(eq("transactions"), any(ChangeStreamOptions.class),
+        eq(Transaction.class)))
+        .thenReturn(Flux.error(new DataAccessResourceFailureException("Connection reset")))
+        .thenReturn(Flux.just(event(transaction)).concatWith(Flux.never()));
+
+    StepVerifier
+        .create(feed.watch(idProduct, ACCOUNT, null))
+        .expectNext(transaction)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testRejectedChangeStreamClosesTheWatchers() {
+    when(mongoTemplate.changeStream(eq("transactions"), any(ChangeStreamOptions.class),
+        eq(Transaction.class)))
+        .thenReturn(Flux.error(new InvalidDataAccessApiUsageException("Not supported")));
+
+    StepVerifier
+        .create(feed.watch(new ObjectId(), ACCOUNT, null))
+        .expectError(CustomUnavailableException.class)
+        .verify(Duration.ofSeconds(5));
+
+    verify(mongoTemplate, times(1)).changeStream(eq("transactions"),
+        any(ChangeStreamOptions.class), eq(Transaction.class));
+  }
+}
@@ -0,0 +1,46 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.config.MongoConfig;
+import com.nttdata.transactions.config.MongoIndexInitializer;
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionRepository;
+import com.nttdata.transactions.repository.TransactionTiers;
+import com.nttdata.transactions.utilities.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+
+@DataMongoTest(properties = "spring.mongodb.embedded.version=5.0.5")
+@Import({MongoIndexInitializer.class, MongoConfig.class, TransactionMetrics.class,
+    TransactionTiers.class, SimpleMeterRegistry.class})
+class TransactionIndexesIT {
+  @Autowired
+  private MongoIndexInitializer indexInitializer;
+
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  @Test
+  void testEveryQueryShapeUsesAnIndex() {
+    Transaction transaction = new Transaction(ACCOUNT, new ObjectId().toString(),
+        "Ingreso en efectivo", ENTRY, BigDecimal.valueOf(100), BigDecimal.ZERO);
+
+    StepVerifier
+        .create(transactionRepository.save(transaction)
+            .then(indexInitializer.ensureIndexes())
+            .then(indexInitializer.findCollectionScans()))
+        .consumeNextWith(collectionScans -> Assertions.assertTrue(collectionScans.isEmpty(),
+            "Query shapes without index: " + collectionScans))
+        .verifyComplete();
+  }
+}
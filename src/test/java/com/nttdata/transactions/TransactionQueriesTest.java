@@ -0,0 +1,84 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionQueries;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Checks every query shape against the indexes declared on Transaction, without a server. A
+ * shape can be served by an index when it constrains the first field of the index and, for a
+ * partial index, the field of its filter; a shape with $or needs that for every branch unless
+ * its other fields already use an index. A shape that constrains _id always has its index. The
+ * plans chosen by a real server are only checked at startup and by TransactionIndexesIT.
+ */
+class TransactionQueriesTest {
+  private static final List<CompoundIndex> INDEXES = Arrays.asList(
+      Transaction.class.getAnnotation(CompoundIndexes.class).value());
+
+  @Test
+  void testEveryQueryShapeHasAnIndex() {
+    List<String> withoutIndex = TransactionQueries.samples().entrySet().stream()
+        .filter(sample -> !indexed(sample.getValue().getQueryObject(), new HashMap<>()))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+
+    Assertions.assertTrue(withoutIndex.isEmpty(), "Query shapes without index: " + withoutIndex);
+  }
+
+  @Test
+  void testShapeWithoutIndexIsFound() {
+    Assertions.assertFalse(indexed(new Document("description", "Deposit"), new HashMap<>()));
+    Assertions.assertFalse(indexed(new Document("$or", List.of(
+        new Document("balance.delivery", 1), new Document("type", 1))), new HashMap<>()));
+  }
+
+  /**
+   * Return whether a filter can be served by an index.
+   *
+   * @param inherited Fields constrained by the enclosing filter of an $or branch
+   */
+  private static boolean indexed(Document filter, Map<String, Object> inherited) {
+    Map<String, Object> fields = new HashMap<>(inherited);
+    filter.forEach((key, value) -> {
+      if (!key.startsWith("$")) {
+        fields.put(key, value);
+      }
+    });
+    if (filter.containsKey("$and")) {
+      filter.getList("$and", Document.class).forEach(branch -> branch.forEach(fields::put));
+    }
+    if (fields.containsKey("_id") || INDEXES.stream().anyMatch(index -> usable(index, fields))) {
+      return true;
+    }
+    return filter.containsKey("$or") && filter.getList("$or", Document.class).stream()
+        .allMatch(branch -> indexed(branch, fields));
+  }
+
+  private static boolean usable(CompoundIndex index, Map<String, Object> fields) {
+    String first = Document.parse(index.def()).keySet().iterator().next();
+    if (!fields.containsKey(first)) {
+      return false;
+    }
+    if (index.partialFilter().isEmpty()) {
+      return true;
+    }
+    // the partial filters are {field: {$exists: true}}, implied by any other condition
+    return Document.parse(index.partialFilter()).keySet().stream()
+        .allMatch(field -> fields.containsKey(field) && !isNotExists(fields.get(field)));
+  }
+
+  private static boolean isNotExists(Object condition) {
+    return condition instanceof Document
+        && Boolean.FALSE.equals(((Document) condition).get("$exists"));
+  }
+}
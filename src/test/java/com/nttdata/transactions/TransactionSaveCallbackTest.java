@@ -0,0 +1,56 @@
+package com.nttdata.transactions;
+
+import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionBucketRepository;
+import com.nttdata.transactions.repository.TransactionCounterRepository;
+import com.nttdata.transactions.repository.TransactionRollupRepository;
+import com.nttdata.transactions.repository.TransactionSaveCallback;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
+import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionSaveCallbackTest {
+  private final TransactionCounterRepository counterRepository =
+      mock(TransactionCounterRepository.class);
+  private final TransactionRollupRepository rollupRepository =
+      mock(TransactionRollupRepository.class);
+  private final TransactionBucketRepository bucketRepository =
+      mock(TransactionBucketRepository.class);
+  private final TransactionSaveCallback callback =
+      new TransactionSaveCallback(counterRepository, rollupRepository, bucketRepository, true);
+
+  @Test
+  void testFailedCounterDoesNotFailTheStoredTransaction() {
+    Transaction transaction = new Transaction(ACCOUNT, new ObjectId().toString(), "Deposit",
+        ENTRY, BigDecimal.TEN, BigDecimal.ZERO);
+    transaction.setId(new ObjectId());
+    transaction.setDate(LocalDateTime.now());
+    when(counterRepository.increment(any(ObjectId.class), eq(ACCOUNT), any(YearMonth.class)))
+        .thenReturn(Mono.error(new DataAccessResourceFailureException("Connection reset")));
+    when(rollupRepository.increment(transaction)).thenReturn(Mono.empty());
+    when(bucketRepository.append(transaction)).thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(callback.onAfterSave(transaction, new Document(), "transactions"))
+        .expectNext(transaction)
+        .verifyComplete();
+
+    verify(rollupRepository).increment(transaction);
+    verify(bucketRepository).append(transaction);
+  }
+}
@@ -1,15 +1,28 @@
 package com.nttdata.transactions;
 
 import com.nttdata.transactions.controller.TransactionController;
+import com.nttdata.transactions.dto.request.BatchOperationRequest;
 import com.nttdata.transactions.dto.request.FilterRequest;
 import com.nttdata.transactions.dto.request.TransactionRequest;
+import com.nttdata.transactions.dto.response.BatchOperationResponse;
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
 import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionCursor;
+import com.nttdata.transactions.service.BatchTransactionService;
+import com.nttdata.transactions.service.IdempotencyService;
 import com.nttdata.transactions.service.TransactionService;
+import com.nttdata.transactions.utilities.StatementCsv;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
@@ -17,14 +30,24 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.nttdata.transactions.utilities.Constants.TransactionType.ENTRY;
 import static com.nttdata.transactions.utilities.Constants.TransactionType.EXIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @ExtendWith(SpringExtension.class)
 @WebFluxTest(TransactionController.class)
@@ -37,6 +60,12 @@ class TransactionsApplicationTests {
   @MockBean
   private TransactionService transactionService;
 
+  @MockBean
+  private BatchTransactionService batchTransactionService;
+
+  @MockBean
+  private IdempotencyService idempotencyService;
+
   @Test
   void testListByAccountNumber() {
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
@@ -52,7 +81,7 @@ class TransactionsApplicationTests {
     transaction1.setAmount(BigDecimal.valueOf(100));
 
     var fluxTransaction = Flux.just(transaction, transaction1);
-    when(transactionService.listByAccountNumber("1234567890")).thenReturn(fluxTransaction);
+    when(transactionService.listByAccountNumber(eq("1234567890"), any())).thenReturn(fluxTransaction);
 
     var responseBody = webTestClient
         .get()
@@ -70,6 +99,168 @@ class TransactionsApplicationTests {
         .verifyComplete();
   }
 
+  @Test
+  void testWatchByAccountNumber() {
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    transaction.setDate(LocalDateTime.of(2022, 3, 18, 14, 15, 20));
+    transaction.setAmount(BigDecimal.valueOf(200));
+    String after = TransactionCursor.of(transaction).encode();
+
+    when(transactionService.watchByAccountNumber("1234567890", after))
+        .thenReturn(Flux.just(transaction));
+
+    var responseBody = webTestClient
+        .get()
+        .uri("/watch/account/1234567890")
+        .header("Last-Event-ID", after)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(new ParameterizedTypeReference<ServerSentEvent<Transaction>>() {
+        })
+        .getResponseBody();
+
+    StepVerifier
+        .create(responseBody)
+        .consumeNextWith(event -> {
+          Assertions.assertEquals(after, event.id());
+          Assertions.assertEquals(transaction.getId(), event.data().getId());
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void testListByAccountNumberPage() {
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    transaction.setDate(LocalDateTime.of(2022, 3, 18, 14, 15, 20));
+    transaction.setAmount(BigDecimal.valueOf(200));
+    Transaction transaction1 = new Transaction();
+    transaction1.setId(new ObjectId());
+    transaction1.setDate(LocalDateTime.of(2022, 3, 17, 10, 0, 0));
+    transaction1.setAmount(BigDecimal.valueOf(100));
+
+    when(transactionService.listByAccountNumber(eq("1234567890"),
+        argThat(page -> page.getLimit() == 2 && page.getFields().equals(List.of("amount")))))
+        .thenReturn(Flux.just(transaction, transaction1));
+
+    webTestClient
+        .get()
+        .uri("/get/account/1234567890?limit=2&fields=amount")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("X-Next-Cursor", TransactionCursor.of(transaction1).encode())
+        .expectBody(String.class)
+        .value(body -> {
+          Assertions.assertTrue(body.contains("\"amount\":200"));
+          Assertions.assertFalse(body.contains("\"type\""));
+          Assertions.assertFalse(body.contains("\"collection\""));
+        });
+  }
+
+  @Test
+  void testListByCreditNumberAfterWithoutLimit() {
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    transaction.setDate(LocalDateTime.of(2022, 3, 17, 10, 0, 0));
+    String after = TransactionCursor.of(transaction).encode();
+    List<Transaction> page = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Transaction older = new Transaction();
+      older.setId(new ObjectId());
+      older.setDate(LocalDateTime.of(2022, 3, 16, 10, 0, 0).minusMinutes(i));
+      page.add(older);
+    }
+
+    when(transactionService.listByCreditNumber(eq("1234567890"),
+        argThat(request -> request.getLimit() == 100 && after.equals(request.getAfter()))))
+        .thenReturn(Flux.fromIterable(page));
+
+    webTestClient
+        .get()
+        .uri("/get/credit/1234567890?after=" + after)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("X-Next-Cursor",
+            TransactionCursor.of(page.get(99)).encode());
+  }
+
+  @Test
+  void testListByAccountNumberLastPage() {
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    transaction.setDate(LocalDateTime.of(2022, 3, 18, 14, 15, 20));
+
+    when(transactionService.listByAccountNumber(eq("1234567890"), any()))
+        .thenReturn(Flux.just(transaction));
+
+    webTestClient
+        .get()
+        .uri("/get/account/1234567890?limit=2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().doesNotExist("X-Next-Cursor");
+
+    webTestClient
+        .get()
+        .uri("/get/account/1234567890?limit=0")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void testReportAccountCommissions() {
+    CommissionReportResponse row = new CommissionReportResponse("2022-03-18", EXIT, 3, 1,
+        BigDecimal.valueOf(2));
+    when(transactionService.reportAccountCommissions(eq("1234567890"), any(), eq("day")))
+        .thenReturn(Flux.just(row));
+
+    webTestClient
+        .get()
+        .uri("/get/account/1234567890/commissions/report?start=01/03/2022&end=31/03/2022")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(CommissionReportResponse.class)
+        .contains(row).hasSize(1);
+  }
+
+  @Test
+  void testSummaryByAccountNumber() {
+    TransactionSummaryResponse summary = new TransactionSummaryResponse(
+        LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31), 200, 450, 300, 150,
+        BigDecimal.valueOf(9000), BigDecimal.valueOf(4000), BigDecimal.valueOf(30));
+    when(transactionService.summaryByAccountNumber(eq("1234567890"), any()))
+        .thenReturn(Mono.just(summary));
+
+    webTestClient
+        .get()
+        .uri("/get/account/1234567890/summary?start=01/01/2022&end=31/12/2022")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.start").isEqualTo("01/01/2022")
+        .jsonPath("$.days").isEqualTo(200)
+        .jsonPath("$.transactions").isEqualTo(450)
+        .jsonPath("$.commission").isEqualTo(30);
+  }
+
+  @Test
+  void testExportAccountStatement() {
+    when(transactionService.exportAccountStatement(eq("1234567890"), any(), any()))
+        .thenAnswer(invocation -> Flux.just(invocation.<DataBufferFactory>getArgument(2)
+            .wrap(StatementCsv.HEADER.getBytes(StandardCharsets.UTF_8))));
+
+    webTestClient
+        .get()
+        .uri("/export/account/1234567890?start=01/03/2022&end=31/03/2022")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith("text/csv")
+        .expectHeader().valueEquals("Content-Disposition",
+            "attachment; filename=\"statement-1234567890.csv\"")
+        .expectBody(String.class).isEqualTo(StatementCsv.HEADER);
+  }
+
   @Test
   void testListByCreditNumber() {
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
@@ -85,7 +276,7 @@ class TransactionsApplicationTests {
     transaction1.setAmount(BigDecimal.valueOf(100));
 
     var fluxTransaction = Flux.just(transaction, transaction1);
-    when(transactionService.listByCreditNumber("1234567890")).thenReturn(fluxTransaction);
+    when(transactionService.listByCreditNumber(eq("1234567890"), any())).thenReturn(fluxTransaction);
 
     var responseBody = webTestClient
         .get()
@@ -178,6 +369,29 @@ class TransactionsApplicationTests {
         .expectStatus().isCreated();
   }
 
+  @Test
+  void testDepositWithIdempotencyKey() {
+    TransactionRequest request = new TransactionRequest();
+    request.setAmount(new BigDecimal("2000.00"));
+
+    when(idempotencyService.<String>execute(eq("c5a1f6d2"),
+        eq("deposit|1234567890|2000|Ingreso en efectivo"), any(), any()))
+        .thenReturn(Mono.just(SUCCESS_MESSAGE));
+
+    webTestClient
+        .post()
+        .uri("/deposit/account/1234567890")
+        .header("Idempotency-Key", "c5a1f6d2")
+        .contentType(APPLICATION_JSON)
+        .accept(APPLICATION_JSON)
+        .body(Mono.just(request), TransactionRequest.class)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody(String.class).isEqualTo(SUCCESS_MESSAGE);
+
+    verify(transactionService, never()).depositAccount(any(), any());
+  }
+
   @Test
   void testDepositWithoutAmount() {
     TransactionRequest request = new TransactionRequest();
@@ -325,4 +539,64 @@ class TransactionsApplicationTests {
         .exchange()
         .expectStatus().isCreated();
   }
+
+  @Test
+  void testBatch() {
+    BatchOperationRequest deposit = new BatchOperationRequest("1234567890", ENTRY, null,
+        BigDecimal.valueOf(200));
+    BatchOperationRequest withdrawal = new BatchOperationRequest("1234567891", EXIT, null,
+        BigDecimal.valueOf(100));
+
+    BatchOperationResponse result = new BatchOperationResponse(0, "1234567890", true,
+        SUCCESS_MESSAGE);
+    BatchOperationResponse result1 = new BatchOperationResponse(1, "1234567891", false,
+        "You do not have a balance to carry out this transaction");
+    when(batchTransactionService.process(any())).thenReturn(Flux.just(result, result1));
+
+    var responseBody = webTestClient
+        .post()
+        .uri("/batch")
+        .contentType(APPLICATION_NDJSON)
+        .accept(APPLICATION_NDJSON)
+        .body(Flux.just(deposit, withdrawal), BatchOperationRequest.class)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(BatchOperationResponse.class)
+        .getResponseBody();
+
+    StepVerifier
+        .create(responseBody)
+        .expectNext(result)
+        .expectNext(result1)
+        .verifyComplete();
+  }
+
+  @Test
+  void testBatchWithIdempotencyKey() {
+    BatchOperationRequest deposit = new BatchOperationRequest("1234567890", ENTRY, null,
+        BigDecimal.valueOf(200));
+    BatchOperationResponse result = new BatchOperationResponse(0, "1234567890", true,
+        SUCCESS_MESSAGE);
+    when(idempotencyService.<List<BatchOperationResponse>>execute(eq("d41b9e07"),
+        startsWith("batch|1|"), any(), any()))
+        .thenReturn(Mono.just(List.of(result)));
+
+    var responseBody = webTestClient
+        .post()
+        .uri("/batch")
+        .header("Idempotency-Key", "d41b9e07")
+        .contentType(APPLICATION_NDJSON)
+        .accept(APPLICATION_NDJSON)
+        .body(Flux.just(deposit), BatchOperationRequest.class)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(BatchOperationResponse.class)
+        .getResponseBody();
+
+    StepVerifier
+        .create(responseBody)
+        .expectNext(result)
+        .verifyComplete();
+    verify(batchTransactionService, never()).process(any());
+  }
 }
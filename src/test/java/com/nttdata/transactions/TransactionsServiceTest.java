@@ -1,31 +1,55 @@
 package com.nttdata.transactions;
 
 import com.nttdata.transactions.dto.request.FilterRequest;
+import com.nttdata.transactions.dto.request.TransactionPageRequest;
 import com.nttdata.transactions.dto.request.TransactionRequest;
 import com.nttdata.transactions.dto.response.AccountResponse;
+import com.nttdata.transactions.dto.response.CommissionReportResponse;
 import com.nttdata.transactions.dto.response.CreditResponse;
+import com.nttdata.transactions.dto.response.TransactionSummaryResponse;
 import com.nttdata.transactions.dto.response.TypeAccountResponse;
 import com.nttdata.transactions.exceptions.customs.CustomInformationException;
+import com.nttdata.transactions.exceptions.customs.CustomInsufficientBalanceException;
 import com.nttdata.transactions.exceptions.customs.CustomNotFoundException;
 import com.nttdata.transactions.model.Transaction;
+import com.nttdata.transactions.repository.TransactionCursor;
 import com.nttdata.transactions.repository.TransactionRepository;
 import com.nttdata.transactions.service.AccountService;
+import com.nttdata.transactions.service.BalanceOutboxService;
 import com.nttdata.transactions.service.CreditService;
+import com.nttdata.transactions.service.ProductLanes;
+import com.nttdata.transactions.service.TransactionFeed;
 import com.nttdata.transactions.service.TransactionServiceImpl;
+import com.nttdata.transactions.utilities.Money;
+import com.nttdata.transactions.utilities.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import static com.nttdata.transactions.utilities.Constants.AccountType.SAVING;
 import static com.nttdata.transactions.utilities.Constants.TransactionCollection.ACCOUNT;
 import static com.nttdata.transactions.utilities.Constants.TransactionCollection.CREDIT;
@@ -49,6 +73,30 @@ class TransactionsServiceTest {
   @Mock
   private CreditService creditService;
 
+  @Mock
+  private BalanceOutboxService balanceOutboxService;
+
+  @Mock
+  private TransactionFeed feed;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy
+  private TransactionMetrics metrics = new TransactionMetrics(meterRegistry);
+
+  @Spy
+  @SuppressWarnings("unchecked")
+  private ProductLanes lanes = new ProductLanes(true, 16, mock(ObjectProvider.class));
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(balanceOutboxService.unsettled(anyInt(), anyCollection(), any()))
+        .thenAnswer(invocation -> Mono.just(((Collection<String>) invocation.getArgument(1))
+            .stream()
+            .collect(Collectors.toMap(Function.identity(), id -> Money.ZERO, (a, b) -> a))));
+  }
+
   @Test
   void testListByAccountNumber() {
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
@@ -72,9 +120,10 @@ class TransactionsServiceTest {
     var fluxTransaction = Flux.just(transaction, transaction1);
     var monoAccount = Mono.just(account);
     when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
-    when(transactionRepository.findByIdProductAndCollection(id, ACCOUNT)).thenReturn(fluxTransaction);
+    when(transactionRepository.findPageByIdProductAndCollection(id, ACCOUNT, null, null, null))
+        .thenReturn(fluxTransaction);
 
-    var list = transactionService.listByAccountNumber("1234567890");
+    var list = transactionService.listByAccountNumber("1234567890", new TransactionPageRequest());
     StepVerifier
         .create(list)
         .expectSubscription()
@@ -105,7 +154,7 @@ class TransactionsServiceTest {
 
     when(accountService.findAccount("1234567890")).thenReturn(Mono.error(new CustomNotFoundException("Account 1234567890 not found")));
 
-    var list = transactionService.listByAccountNumber("1234567890");
+    var list = transactionService.listByAccountNumber("1234567890", new TransactionPageRequest());
     StepVerifier
         .create(list)
         .expectErrorMatches(throwable -> throwable instanceof CustomNotFoundException &&
@@ -113,6 +162,141 @@ class TransactionsServiceTest {
         .verify();
   }
 
+  @Test
+  void testListByAccountNumberPage() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    transaction.setDate(LocalDateTime.of(2022, 3, 18, 14, 15, 20));
+    TransactionCursor cursor = TransactionCursor.of(transaction);
+
+    TransactionPageRequest page = new TransactionPageRequest();
+    page.setLimit(20);
+    page.setAfter(cursor.encode());
+    page.setFields(List.of("amount", "date"));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.findPageByIdProductAndCollection(id, ACCOUNT, cursor, 20,
+        List.of("amount", "date"))).thenReturn(Flux.just(transaction));
+
+    StepVerifier
+        .create(transactionService.listByAccountNumber("1234567890", page))
+        .expectNext(transaction)
+        .verifyComplete();
+  }
+
+  @Test
+  void testListByAccountNumberInvalidPage() {
+    TransactionPageRequest page = new TransactionPageRequest();
+    page.setAfter("invalid");
+
+    StepVerifier
+        .create(transactionService.listByAccountNumber("1234567890", page))
+        .expectErrorMatches(throwable -> throwable instanceof CustomInformationException &&
+            throwable.getMessage().equals("Field after is not a valid cursor"))
+        .verify();
+
+    page.setAfter(null);
+    page.setFields(List.of("amount", "password"));
+
+    StepVerifier
+        .create(transactionService.listByAccountNumber("1234567890", page))
+        .expectErrorMatches(throwable -> throwable instanceof CustomInformationException &&
+            throwable.getMessage().equals("Field password can not be selected"))
+        .verify();
+    verify(accountService, never()).findAccount(any());
+  }
+
+  @Test
+  void testReportAccountCommissions() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+
+    FilterRequest request = new FilterRequest();
+    request.setStart(LocalDate.of(2022, 3, 1));
+    request.setEnd(LocalDate.of(2022, 3, 31));
+    CommissionReportResponse row = new CommissionReportResponse("2022-03", EXIT, 25, 5,
+        BigDecimal.valueOf(10));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.commissionReportByIdProductAndCollection(id.toString(), ACCOUNT,
+        request.getStart(), request.getEnd(), true)).thenReturn(Flux.just(row));
+
+    StepVerifier
+        .create(transactionService.reportAccountCommissions("1234567890", request, "month"))
+        .expectNext(row)
+        .verifyComplete();
+
+    StepVerifier
+        .create(transactionService.reportAccountCommissions("1234567890", request, "year"))
+        .expectErrorMatches(throwable -> throwable instanceof CustomInformationException &&
+            throwable.getMessage().equals("Field groupBy must be day or month"))
+        .verify();
+  }
+
+  @Test
+  void testSummaryByCreditNumber() {
+    ObjectId id = new ObjectId();
+    CreditResponse credit = new CreditResponse();
+    credit.setId(id.toString());
+
+    FilterRequest request = new FilterRequest();
+    request.setStart(LocalDate.of(2022, 1, 1));
+    request.setEnd(LocalDate.of(2022, 12, 31));
+    TransactionSummaryResponse summary = new TransactionSummaryResponse(request.getStart(),
+        request.getEnd(), 40, 120, 20, 100, BigDecimal.valueOf(2000), BigDecimal.valueOf(-1500),
+        BigDecimal.ZERO);
+
+    when(creditService.findCredit("1234567890")).thenReturn(Mono.just(credit));
+    when(transactionRepository.summaryByIdProductAndCollection(id.toString(), CREDIT,
+        request.getStart(), request.getEnd())).thenReturn(Mono.just(summary));
+
+    StepVerifier
+        .create(transactionService.summaryByCreditNumber("1234567890", request))
+        .expectNext(summary)
+        .verifyComplete();
+  }
+
+  @Test
+  void testExportAccountStatement() {
+    ObjectId id = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    transaction.setType(ENTRY);
+    transaction.setDescription("Pago \"luz\", agua");
+    transaction.setDate(LocalDateTime.of(2022, 3, 18, 14, 15, 20));
+    transaction.setAmount(BigDecimal.valueOf(200.5));
+    transaction.setCommission(BigDecimal.ZERO);
+
+    FilterRequest request = new FilterRequest();
+    request.setStart(LocalDate.of(2022, 3, 1));
+    request.setEnd(LocalDate.of(2022, 3, 31));
+
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.findStatementByIdProductAndCollection(id, ACCOUNT,
+        request.getStart(), request.getEnd(), 256)).thenReturn(Flux.just(transaction));
+
+    var csv = DataBufferUtils.join(transactionService.exportAccountStatement("1234567890",
+            request, new DefaultDataBufferFactory()))
+        .map(buffer -> buffer.toString(StandardCharsets.UTF_8));
+    StepVerifier
+        .create(csv)
+        .expectNext("id,date,type,description,amount,commission\n"
+            + transaction.getId().toHexString()
+            + ",2022-03-18 14:15:20,1,\"Pago \"\"luz\"\", agua\",200.5,0\n")
+        .verifyComplete();
+  }
+
   @Test
   void testListByCreditNumber() {
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
@@ -135,9 +319,10 @@ class TransactionsServiceTest {
     var fluxTransaction = Flux.just(transaction, transaction1);
     var monoCredit = Mono.just(credit);
     when(creditService.findCredit("1234567890")).thenReturn(monoCredit);
-    when(transactionRepository.findByIdProductAndCollection(id, CREDIT)).thenReturn(fluxTransaction);
+    when(transactionRepository.findPageByIdProductAndCollection(id, CREDIT, null, null, null))
+        .thenReturn(fluxTransaction);
 
-    var list = transactionService.listByCreditNumber("1234567890");
+    var list = transactionService.listByCreditNumber("1234567890", new TransactionPageRequest());
     StepVerifier
         .create(list)
         .expectSubscription()
@@ -214,7 +399,6 @@ class TransactionsServiceTest {
     when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.depositAccount("1234567890", request);
     StepVerifier
@@ -256,7 +440,6 @@ class TransactionsServiceTest {
     when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.depositAccount("1234567890", request);
     StepVerifier
@@ -299,7 +482,6 @@ class TransactionsServiceTest {
     when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.depositAccount("1234567890", request);
     StepVerifier
@@ -342,7 +524,6 @@ class TransactionsServiceTest {
     when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.depositAccount("1234567890", request);
     StepVerifier
@@ -381,10 +562,9 @@ class TransactionsServiceTest {
     var monoAccount = Mono.just(account);
     var monoCount = Mono.just(0L);
     var monoTransaction = Mono.just(transaction);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.withdrawalAccount("1234567890", request);
     StepVerifier
@@ -424,10 +604,9 @@ class TransactionsServiceTest {
     var monoAccount = Mono.just(account);
     var monoCount = Mono.just(10L);
     var monoTransaction = Mono.just(transaction);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.withdrawalAccount("1234567890", request);
     StepVerifier
@@ -440,6 +619,42 @@ class TransactionsServiceTest {
         .verifyComplete();
   }
 
+  @Test
+  void testWithdrawalWithUnroundedAccount() {
+    ObjectId id = new ObjectId();
+
+    TypeAccountResponse typeAccount = new TypeAccountResponse(SAVING, null, 5, new BigDecimal("1.255"), null);
+
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setPosition(1);
+    account.setNumber("1234567890");
+    account.setDebitCard("4420652012504888");
+    account.setTypeAccount(typeAccount);
+    account.setBalance(new BigDecimal("4000.005"));
+
+    Transaction transaction = new Transaction();
+    transaction.setIdProduct(id);
+    transaction.setCollection(ACCOUNT);
+    transaction.setType(EXIT);
+    transaction.setAmount(BigDecimal.valueOf(2000));
+    transaction.setCommission(new BigDecimal("1.26"));
+
+    TransactionRequest request = new TransactionRequest();
+    request.setAmount(BigDecimal.valueOf(2000));
+
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(Mono.just(10L));
+    when(transactionRepository.save(any())).thenReturn(Mono.just(transaction));
+
+    StepVerifier
+        .create(transactionService.withdrawalAccount("1234567890", request))
+        .expectNext(SUCCESS_MESSAGE)
+        .verifyComplete();
+    verify(transactionRepository).save(argThat(saved ->
+        new BigDecimal("1.26").equals(saved.getCommission())));
+  }
+
   @Test
   void testWithdrawalWithCommissionNull() {
     ObjectId id = new ObjectId();
@@ -467,10 +682,9 @@ class TransactionsServiceTest {
     var monoAccount = Mono.just(account);
     var monoCount = Mono.just(10L);
     var monoTransaction = Mono.just(transaction);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
     var resAccount = transactionService.withdrawalAccount("1234567890", request);
     StepVerifier
@@ -508,7 +722,7 @@ class TransactionsServiceTest {
 
     var monoAccount = Mono.just(account);
     var monoCount = Mono.just(0L);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccount);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccount);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
 
     var resAccount = transactionService.withdrawalAccount("1234567890", request);
@@ -517,6 +731,95 @@ class TransactionsServiceTest {
         .expectErrorMatches(throwable -> throwable instanceof CustomInformationException &&
             throwable.getMessage().equals("You do not have a balance to carry out this transaction"))
         .verify();
+
+    Assertions.assertEquals(1, meterRegistry.get(TransactionMetrics.OPERATION)
+        .tags("operation", "withdrawal", "outcome", "insufficient_balance")
+        .timer().count());
+  }
+
+  @Test
+  void testWatchByAccountNumberFromATransactionId() {
+    ObjectId id = new ObjectId();
+    ObjectId after = new ObjectId();
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+
+    Transaction transaction = new Transaction();
+    transaction.setId(new ObjectId());
+    when(accountService.findAccount("1234567890")).thenReturn(Mono.just(account));
+    when(feed.watch(eq(id), eq(ACCOUNT), argThat(cursor -> cursor.getId().equals(after))))
+        .thenReturn(Flux.just(transaction));
+
+    StepVerifier
+        .create(transactionService.watchByAccountNumber("1234567890", after.toHexString()))
+        .expectNext(transaction)
+        .verifyComplete();
+  }
+
+  @Test
+  void testWatchByAccountNumberWithInvalidCursor() {
+    StepVerifier
+        .create(transactionService.watchByAccountNumber("1234567890", "not-a-cursor"))
+        .expectErrorMatches(e -> e instanceof CustomInformationException
+            && e.getMessage().equals("Field after is not a valid cursor"))
+        .verify();
+    verify(accountService, never()).findAccount(any());
+  }
+
+  @Test
+  void testWithdrawalCountsUnsettledChanges() {
+    ObjectId id = new ObjectId();
+
+    TypeAccountResponse typeAccount = new TypeAccountResponse(SAVING, null, 5, BigDecimal.ZERO, null);
+
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(typeAccount);
+    account.setBalance(BigDecimal.valueOf(1000));
+
+    TransactionRequest request = new TransactionRequest();
+    request.setAmount(BigDecimal.valueOf(600));
+
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(balanceOutboxService.unsettled(eq(ACCOUNT), eq(List.of(id.toString())), any()))
+        .thenReturn(Mono.just(Map.of(id.toString(), Money.ofMinor(-50000))));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT))
+        .thenReturn(Mono.just(0L));
+
+    StepVerifier
+        .create(transactionService.withdrawalAccount("1234567890", request))
+        .expectError(CustomInsufficientBalanceException.class)
+        .verify();
+    verify(transactionRepository, never()).save(any());
+  }
+
+  @Test
+  void testWithdrawalIgnoresUnsettledCredits() {
+    ObjectId id = new ObjectId();
+
+    TypeAccountResponse typeAccount = new TypeAccountResponse(SAVING, null, 5, BigDecimal.ZERO, null);
+
+    AccountResponse account = new AccountResponse();
+    account.setId(id.toString());
+    account.setNumber("1234567890");
+    account.setTypeAccount(typeAccount);
+    account.setBalance(BigDecimal.valueOf(100));
+
+    TransactionRequest request = new TransactionRequest();
+    request.setAmount(BigDecimal.valueOf(600));
+
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(account));
+    when(balanceOutboxService.unsettled(eq(ACCOUNT), eq(List.of(id.toString())), any()))
+        .thenReturn(Mono.just(Map.of(id.toString(), Money.ofMinor(50000))));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT))
+        .thenReturn(Mono.just(0L));
+
+    StepVerifier
+        .create(transactionService.withdrawalAccount("1234567890", request))
+        .expectError(CustomInsufficientBalanceException.class)
+        .verify();
+    verify(transactionRepository, never()).save(any());
   }
 
   @Test
@@ -561,12 +864,12 @@ class TransactionsServiceTest {
     request.setAmount(BigDecimal.valueOf(200));
 
     var fluxAccounts = Flux.just(account, account1, account2);
-    var monoCount = Mono.just(5L);
+    var monoCount = Mono.just(Map.of(id.toString(), 5L));
     var monoTransaction = Mono.just(transaction);
     when(accountService.listByDebitCard("4420652012504888")).thenReturn(fluxAccounts);
-    when(transactionRepository.countByIdProductAndCollection(account.getId(), ACCOUNT)).thenReturn(monoCount);
+    when(transactionRepository.countByIdProductsAndCollection(anyCollection(), eq(ACCOUNT),
+        any(YearMonth.class))).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(200));
 
     var result = transactionService.withdrawalFromDebitCard("4420652012504888", request);
     StepVerifier
@@ -577,6 +880,14 @@ class TransactionsServiceTest {
           Assertions.assertEquals(SUCCESS_MESSAGE, x);
         })
         .verifyComplete();
+
+    verify(accountService, times(1)).listByDebitCard("4420652012504888");
+    verify(transactionRepository, times(1))
+        .countByIdProductsAndCollection(anyCollection(), eq(ACCOUNT), any(YearMonth.class));
+    verify(transactionRepository, never()).countByIdProductAndCollection(any(), any());
+    verify(transactionRepository, times(2)).save(any());
+    verify(balanceOutboxService, times(2))
+        .enqueue(any(Transaction.class), eq(Money.ofMinor(-10000)));
   }
 
   @Test
@@ -619,9 +930,10 @@ class TransactionsServiceTest {
     request.setAmount(BigDecimal.valueOf(500));
 
     var fluxAccounts = Flux.just(account, account1, account2);
-    var monoCount = Mono.just(0L);
+    var monoCount = Mono.just(Map.of(id.toString(), 0L));
     when(accountService.listByDebitCard("4420652012504888")).thenReturn(fluxAccounts);
-    when(transactionRepository.countByIdProductAndCollection(account.getId(), ACCOUNT)).thenReturn(monoCount);
+    when(transactionRepository.countByIdProductsAndCollection(anyCollection(), eq(ACCOUNT),
+        any(YearMonth.class))).thenReturn(monoCount);
 
     var result = transactionService.withdrawalFromDebitCard("4420652012504888", request);
     StepVerifier
@@ -668,13 +980,11 @@ class TransactionsServiceTest {
     var monoCount = Mono.just(0L);
     var monoTransactionExit = Mono.just(exit);
     var monoTransactionEntry = Mono.just(entry);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccountExit);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccountExit);
     when(accountService.findAccount("1234567891")).thenReturn(monoAccountEntry);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransactionExit);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
     when(transactionRepository.save(any())).thenReturn(monoTransactionEntry);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
 
     var resAccount = transactionService.transferBetweenAccounts("1234567890", "1234567891", request);
@@ -726,13 +1036,11 @@ class TransactionsServiceTest {
     var monoCount = Mono.just(10L);
     var monoTransactionExit = Mono.just(exit);
     var monoTransactionEntry = Mono.just(entry);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccountExit);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccountExit);
     when(accountService.findAccount("1234567891")).thenReturn(monoAccountEntry);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
     when(transactionRepository.save(any())).thenReturn(monoTransactionExit);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
     when(transactionRepository.save(any())).thenReturn(monoTransactionEntry);
-    doNothing().when(accountService).updateAccount(id.toString(), BigDecimal.valueOf(2000));
 
 
     var resAccount = transactionService.transferBetweenAccounts("1234567890", "1234567891", request);
@@ -781,7 +1089,7 @@ class TransactionsServiceTest {
     var monoAccountExit = Mono.just(accountExit);
     var monoAccountEntry = Mono.just(accountEntry);
     var monoCount = Mono.just(0L);
-    when(accountService.findAccount("1234567890")).thenReturn(monoAccountExit);
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(monoAccountExit);
     when(accountService.findAccount("1234567891")).thenReturn(monoAccountEntry);
     when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(monoCount);
 
@@ -794,6 +1102,42 @@ class TransactionsServiceTest {
         .verify();
   }
 
+  @Test
+  void testTransferBetweenAccountsReadsAtSubscription() throws InterruptedException {
+    TypeAccountResponse typeAccount = new TypeAccountResponse(SAVING, null, 5, BigDecimal.valueOf(3), null);
+
+    ObjectId id = new ObjectId();
+    AccountResponse accountExit = new AccountResponse();
+    accountExit.setId(id.toString());
+    accountExit.setTypeAccount(typeAccount);
+    accountExit.setBalance(BigDecimal.valueOf(500));
+
+    AccountResponse accountEntry = new AccountResponse();
+    accountEntry.setId(new ObjectId().toString());
+    accountEntry.setTypeAccount(typeAccount);
+    accountEntry.setBalance(BigDecimal.valueOf(1000));
+
+    TransactionRequest request = new TransactionRequest();
+    request.setAmount(BigDecimal.valueOf(2000));
+
+    when(accountService.findAccountForDebit("1234567890")).thenReturn(Mono.just(accountExit));
+    when(accountService.findAccount("1234567891")).thenReturn(Mono.just(accountEntry));
+    when(transactionRepository.countByIdProductAndCollection(id.toString(), ACCOUNT)).thenReturn(Mono.just(0L));
+
+    var resAccount = transactionService.transferBetweenAccounts("1234567890", "1234567891", request);
+    Thread.sleep(10);
+    LocalDateTime subscribedAt = LocalDateTime.now();
+    verify(accountService, never()).findAccountForDebit(any());
+    StepVerifier
+        .create(resAccount)
+        .expectError(CustomInsufficientBalanceException.class)
+        .verify();
+
+    ArgumentCaptor<LocalDateTime> readAt = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(balanceOutboxService).unsettled(eq(ACCOUNT), eq(List.of(id.toString())), readAt.capture());
+    Assertions.assertFalse(readAt.getValue().isBefore(subscribedAt));
+  }
+
   @Test
   void testPayCredit() {
     ObjectId id = new ObjectId();
@@ -813,7 +1157,6 @@ class TransactionsServiceTest {
     var monoTransaction = Mono.just(transaction);
     when(creditService.findCredit("1234567890")).thenReturn(monoCredit);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(creditService).updateCredit(id.toString(), BigDecimal.valueOf(2000));
 
     var result = transactionService.payCredit("1234567890", BigDecimal.valueOf(2000));
     StepVerifier
@@ -824,6 +1167,9 @@ class TransactionsServiceTest {
           Assertions.assertEquals(SUCCESS_MESSAGE, x);
         })
         .verifyComplete();
+
+    verify(transactionRepository).save(any());
+    verify(balanceOutboxService).enqueue(any(Transaction.class), eq(Money.of(BigDecimal.valueOf(2000))));
   }
 
   @Test
@@ -846,7 +1192,6 @@ class TransactionsServiceTest {
     var monoTransaction = Mono.just(transaction);
     when(creditService.findCredit("1234567890")).thenReturn(monoCredit);
     when(transactionRepository.save(any())).thenReturn(monoTransaction);
-    doNothing().when(creditService).updateCredit(id.toString(), BigDecimal.valueOf(2000));
 
     var result = transactionService.spendCredit("1234567890", BigDecimal.valueOf(2000));
     StepVerifier